@@ -3,7 +3,10 @@ package com.denizenscript.denizencore;
 import com.denizenscript.denizencore.events.OldEventManager;
 import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.events.core.*;
+import com.denizenscript.denizencore.flags.FlagStorageBackend;
 import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.flags.ShardedFlagStorage;
+import com.denizenscript.denizencore.flags.SingleFileFlagStorage;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.core.SecretTag;
 import com.denizenscript.denizencore.objects.notable.NoteManager;
@@ -16,6 +19,7 @@ import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
 import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.ReplaceableTagEvent;
 import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
@@ -153,18 +157,33 @@ public class DenizenCore {
      * Call to reload anything that was saved, especially after init.
      */
     public static void reloadSaves() {
-        serverFlagMap = SavableMapFlagTracker.loadFlagFile(new File(implementation.getDataFolder(), "server_flags").getPath(), true);
+        if (serverFlagMap != null) {
+            serverFlagMap.waitForSaves();
+        }
+        // Note: expired server flags are cleaned gradually by 'tick' rather than all at once here.
+        FlagStorageBackend flagBackend = CoreConfiguration.serverFlagShards > 0 ? new ShardedFlagStorage(CoreConfiguration.serverFlagShards) : SingleFileFlagStorage.instance;
+        serverFlagMap = SavableMapFlagTracker.loadFlagFile(new File(implementation.getDataFolder(), "server_flags").getPath(), false, flagBackend);
         SecretTag.load();
     }
 
     /**
      * Call to save anything that needs to be saved, especially before shutdown.
+     * Returns once everything is written.
      */
     public static void saveAll() {
         NoteManager.save();
         serverFlagMap.saveToFile(new File(implementation.getDataFolder(), "server_flags").getPath());
     }
 
+    /**
+     * Equivalent to 'saveAll', but server flags are written in the background rather than waited for. Intended for periodic autosaves.
+     * Use 'serverFlagMap.waitForSaves()' if the save needs to be complete.
+     */
+    public static void saveAllAsync() {
+        NoteManager.save();
+        serverFlagMap.saveToFile(new File(implementation.getDataFolder(), "server_flags").getPath(), true);
+    }
+
     /**
      * Must be called last: performs final shutdowns / saves / etc.
      */
@@ -288,6 +307,9 @@ public class DenizenCore {
             TickScriptEvent.instance.fire();
         }
         RunLaterCommand.tickFutureRuns();
+        if (serverFlagMap != null) {
+            serverFlagMap.cleanExpired(SavableMapFlagTracker.maxExpirationChecksPerTick);
+        }
         tMS += ms_elapsed;
         while (tMS > 1000) {
             tMS -= 1000;
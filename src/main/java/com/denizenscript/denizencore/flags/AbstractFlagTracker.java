@@ -33,6 +33,24 @@ public abstract class AbstractFlagTracker {
         return getFlagValue(key) != null;
     }
 
+    /**
+     * Same as 'getFlagValue(String)', for a pre-split path. Trackers that can look up pre-split paths directly should override this.
+     */
+    public ObjectTag getFlagValue(FlagKeyPath path) {
+        return getFlagValue(path.key);
+    }
+
+    /**
+     * Same as 'getFlagExpirationTime(String)', for a pre-split path. Trackers that can look up pre-split paths directly should override this.
+     */
+    public TimeTag getFlagExpirationTime(FlagKeyPath path) {
+        return getFlagExpirationTime(path.key);
+    }
+
+    public boolean hasFlag(FlagKeyPath path) {
+        return getFlagValue(path) != null;
+    }
+
     public static <T extends FlaggableObject> void registerFlagHandlers(ObjectTagProcessor<T> processor) {
 
         // <--[tag]
@@ -120,6 +138,9 @@ public abstract class AbstractFlagTracker {
             }
             return tracker.doFlagMapTag(attribute);
         });
+        processor.registerConstantParamHandler("flag", FlagKeyPath::new);
+        processor.registerConstantParamHandler("has_flag", FlagKeyPath::new);
+        processor.registerConstantParamHandler("flag_expiration", FlagKeyPath::new);
 
         // <--[mechanism]
         // @object FlaggableObject
@@ -141,7 +162,8 @@ public abstract class AbstractFlagTracker {
             attribute.echoError("The has_flag[...] tag must have an input!");
             return null;
         }
-        return new ElementTag(hasFlag(attribute.getParam()));
+        FlagKeyPath path = attribute.getCompiledParam(FlagKeyPath.class, FlagKeyPath::new);
+        return new ElementTag(path != null ? hasFlag(path) : hasFlag(attribute.getParam()));
     }
 
     public ObjectTag doFlagTag(Attribute attribute) {
@@ -164,8 +186,9 @@ public abstract class AbstractFlagTracker {
             attribute.fulfill(1);
             return new DurationTag((time.millis() - TimeTag.now().millis()) / 1000.0);
         }
-        String flagName = attribute.getParam();
-        ObjectTag retVal = getFlagValue(flagName);
+        FlagKeyPath path = attribute.getCompiledParam(FlagKeyPath.class, FlagKeyPath::new);
+        String flagName = path != null ? path.key : attribute.getParam();
+        ObjectTag retVal = path != null ? getFlagValue(path) : getFlagValue(flagName);
         if (retVal == null) {
             attribute.echoError("No flag named '" + flagName + "' (did you forget to set it, or has it already expired? Or did you forget a 'has_flag' check?)");
             return null;
@@ -178,10 +201,11 @@ public abstract class AbstractFlagTracker {
             attribute.echoError("The flag_expiration[...] tag must have an input!");
             return null;
         }
-        String flagName = attribute.getParam();
-        TimeTag result = getFlagExpirationTime(flagName);
+        FlagKeyPath path = attribute.getCompiledParam(FlagKeyPath.class, FlagKeyPath::new);
+        String flagName = path != null ? path.key : attribute.getParam();
+        TimeTag result = path != null ? getFlagExpirationTime(path) : getFlagExpirationTime(flagName);
         if (result == null) {
-            if (hasFlag(flagName)) {
+            if (path != null ? hasFlag(path) : hasFlag(flagName)) {
                 attribute.echoError("Flag '" + flagName + "' exists but has no expiration set (did you forget to specify the 'expire:' time when setting the flag?)");
             }
             else {
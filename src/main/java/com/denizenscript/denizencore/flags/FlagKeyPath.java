@@ -0,0 +1,63 @@
+package com.denizenscript.denizencore.flags;
+
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A flag name (like "my_flag.sub_key") pre-split on '.' into pre-lowered parts, so that reading a flag doesn't need to split and lowercase the name every time.
+ * Constant flag names in tags are compiled when the tag is parsed and kept on the attribute component (see 'Attribute.getCompiledParam').
+ * Other names go through a bounded, thread-safe cache.
+ */
+public final class FlagKeyPath {
+
+    /** The maximum number of cached paths. When exceeded, the cache is emptied and starts refilling. */
+    public static int maxSize = 4096;
+
+    public static final ConcurrentHashMap<String, FlagKeyPath> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the path for the given flag name, creating it if not already cached.
+     */
+    public static FlagKeyPath of(String key) {
+        FlagKeyPath path = cache.get(key);
+        if (path == null) {
+            path = new FlagKeyPath(key);
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+            cache.put(key, path);
+        }
+        return path;
+    }
+
+    public final String key;
+
+    public final StringHolder[] parts;
+
+    public FlagKeyPath(String key) {
+        this.key = key;
+        List<String> split = CoreUtilities.split(key, '.');
+        parts = new StringHolder[split.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new StringHolder(split.get(i));
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FlagKeyPath && key.equals(((FlagKeyPath) other).key);
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,36 @@
+package com.denizenscript.denizencore.flags;
+
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Decides where and how the flags of a SavableMapFlagTracker are stored on disk, under a base path (with no extension).
+ * 'capture' runs on the thread that requested the save, 'writeSnapshot' on the tracker's background writer.
+ */
+public interface FlagStorageBackend {
+
+    /**
+     * Loads all flags stored under the path, or returns null if there are none stored.
+     * Throws an exception if stored data exists but can't be read.
+     */
+    SavableMapFlagTracker loadSnapshot(String filePath) throws IOException;
+
+    /**
+     * Captures the flags that a save needs to write.
+     * 'dirtyKeys' holds the root keys changed since the last save (only when 'isIncremental' is true), or is null if everything must be written.
+     */
+    SavableMapFlagTracker.FlagSnapshot capture(SavableMapFlagTracker tracker, Set<StringHolder> dirtyKeys);
+
+    /**
+     * Writes a snapshot from 'capture' in the text or binary flag file format. Returns false if the write failed (the error is already reported).
+     * A full write also removes data stored under the path by any other backend.
+     */
+    boolean writeSnapshot(String filePath, SavableMapFlagTracker.FlagSnapshot snapshot, boolean binary);
+
+    /**
+     * Whether this backend can save only what changed, in which case the tracker keeps track of changed keys for 'capture'.
+     */
+    boolean isIncremental();
+}
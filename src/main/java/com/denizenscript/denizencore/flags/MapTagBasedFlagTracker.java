@@ -11,12 +11,13 @@ import com.denizenscript.denizencore.utilities.text.StringHolder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
 
-    public static StringHolder valueString = new StringHolder("__value");
+    public static StringHolder valueString = StringHolder.intern("__value");
 
-    public static StringHolder expirationString = new StringHolder("__expiration");
+    public static StringHolder expirationString = StringHolder.intern("__expiration");
 
     public static boolean isExpired(ObjectTag expirationObj) {
         if (expirationObj == null) {
@@ -28,19 +29,58 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
         return false;
     }
 
+    public static class DeflaggedView {
+
+        public final long modificationCount;
+
+        public final MapTag source;
+
+        /** The earliest expiration time of any sub-flag included in the view, after which the view may include expired values. */
+        public final long validUntil;
+
+        public final MapTag view;
+
+        public DeflaggedView(long modificationCount, MapTag source, long validUntil, MapTag view) {
+            this.modificationCount = modificationCount;
+            this.source = source;
+            this.validUntil = validUntil;
+            this.view = view;
+        }
+    }
+
+    /** The maximum number of cached deflagged views per tracker. When exceeded, the cache is emptied and starts refilling. */
+    public static int maxDeflaggedViews = 64;
+
+    /** Incremented whenever any flag in this tracker changes, which invalidates all 'deflaggedViews'. */
+    public long modificationCount;
+
+    /** Deflagged views of map-valued flags previously read, by flag path. Null until first needed. */
+    public ConcurrentHashMap<FlagKeyPath, DeflaggedView> deflaggedViews;
+
+    /**
+     * Returns the root flag map for the given (pre-lowered) root key. Trackers that store root maps by StringHolder should override this to avoid rebuilding the holder.
+     */
+    public MapTag getRootMap(StringHolder key) {
+        return getRootMap(key.str);
+    }
+
     public ObjectTag getFlagValueOfType(String key, StringHolder type) {
-        List<String> splitKey = CoreUtilities.split(key, '.');
-        MapTag map = getRootMap(splitKey.get(0));
+        return getFlagValueOfType(FlagKeyPath.of(key), type);
+    }
+
+    public ObjectTag getFlagValueOfType(FlagKeyPath path, StringHolder type) {
+        StringHolder[] splitKey = path.parts;
+        MapTag map = getRootMap(splitKey[0]);
         if (map == null) {
             return null;
         }
         if (isExpired(map.map.get(expirationString))) {
             return null;
         }
-        if (splitKey.size() == 1) {
+        if (splitKey.length == 1) {
             ObjectTag returnValue = map.map.get(type);
             if (returnValue instanceof MapTag) {
-                return deflaggedSubMap((MapTag) returnValue);
+                return deflaggedView(path, type, (MapTag) returnValue);
             }
             return returnValue;
         }
@@ -49,9 +89,9 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
             return null;
         }
         map = (MapTag) rootValue;
-        String endKey = splitKey.get(splitKey.size() - 1);
-        for (int i = 1; i < splitKey.size() - 1; i++) {
-            MapTag subMap = (MapTag) map.getObject(splitKey.get(i));
+        StringHolder endKey = splitKey[splitKey.length - 1];
+        for (int i = 1; i < splitKey.length - 1; i++) {
+            MapTag subMap = (MapTag) map.map.get(splitKey[i]);
             if (subMap == null) {
                 return null;
             }
@@ -64,7 +104,7 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
             }
             map = (MapTag) subValue;
         }
-        MapTag obj = (MapTag) map.getObject(endKey);
+        MapTag obj = (MapTag) map.map.get(endKey);
         if (obj == null) {
             return null;
         }
@@ -76,26 +116,70 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
             return null;
         }
         if (value instanceof MapTag) {
-            return deflaggedSubMap((MapTag) value);
+            return deflaggedView(path, type, (MapTag) value);
         }
         return value;
     }
 
+    /**
+     * Returns the deflagged form of a map-valued flag, reusing the view built by an earlier read if nothing changed since (and no sub-flag in it expired since).
+     * The cached view itself is never given out: each read gets a 'duplicate' of it, which shares structure with the view until either is modified,
+     * so scripts can freely change the map they read (eg 'define x.key:value') without touching the cache.
+     */
+    public MapTag deflaggedView(FlagKeyPath path, StringHolder type, MapTag source) {
+        if (type != valueString) {
+            return deflaggedSubMap(source);
+        }
+        ConcurrentHashMap<FlagKeyPath, DeflaggedView> views = deflaggedViews;
+        if (views == null) {
+            views = new ConcurrentHashMap<>();
+            deflaggedViews = views;
+        }
+        DeflaggedView cached = views.get(path);
+        if (cached != null && cached.modificationCount == modificationCount && cached.source == source && DenizenCore.currentTimeMillis <= cached.validUntil) {
+            return cached.view.duplicate();
+        }
+        long modificationCountAtBuild = modificationCount;
+        long[] validUntil = new long[] { Long.MAX_VALUE };
+        MapTag view = deflaggedSubMap(source, validUntil);
+        if (views.size() >= maxDeflaggedViews) {
+            views.clear();
+        }
+        views.put(path, new DeflaggedView(modificationCountAtBuild, source, validUntil[0], view));
+        return view.duplicate();
+    }
+
     @Override
     public ObjectTag getFlagValue(String key) {
         return getFlagValueOfType(key, valueString);
     }
 
+    @Override
+    public ObjectTag getFlagValue(FlagKeyPath path) {
+        return getFlagValueOfType(path, valueString);
+    }
+
     public MapTag deflaggedSubMap(MapTag map) {
+        return deflaggedSubMap(map, null);
+    }
+
+    /**
+     * Same as 'deflaggedSubMap(MapTag)'. If 'validUntil' is non-null, its first value is lowered to the earliest expiration time of any sub-flag included in the result.
+     */
+    public MapTag deflaggedSubMap(MapTag map, long[] validUntil) {
         MapTag toReturn = new MapTag();
         for (Map.Entry<StringHolder, ObjectTag> pair : map.map.entrySet()) {
             MapTag subMap = (MapTag) pair.getValue();
-            if (isExpired(subMap.map.get(expirationString))) {
+            ObjectTag expiration = subMap.map.get(expirationString);
+            if (isExpired(expiration)) {
                 continue;
             }
+            if (validUntil != null && expiration != null) {
+                validUntil[0] = Math.min(validUntil[0], ((TimeTag) expiration).millis());
+            }
             ObjectTag subValue = subMap.map.get(valueString);
             if (subValue instanceof MapTag) {
-                subValue = deflaggedSubMap((MapTag) subValue);
+                subValue = deflaggedSubMap((MapTag) subValue, validUntil);
             }
             toReturn.map.put(pair.getKey(), subValue);
         }
@@ -107,6 +191,11 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
         return (TimeTag) getFlagValueOfType(key, expirationString);
     }
 
+    @Override
+    public TimeTag getFlagExpirationTime(FlagKeyPath path) {
+        return (TimeTag) getFlagValueOfType(path, expirationString);
+    }
+
     public boolean doClean(MapTag map) {
         if (CoreConfiguration.skipAllFlagCleanings) {
             return false;
@@ -132,6 +221,9 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
         for (StringHolder str : toRemove) {
             map.map.remove(str);
         }
+        if (anyCleaned) {
+            modificationCount++;
+        }
         return anyCleaned;
     }
 
@@ -152,6 +244,7 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
 
     @Override
     public void setFlag(String key, ObjectTag value, TimeTag expiration, boolean doFlaggify) {
+        modificationCount++;
         List<String> splitKey = CoreUtilities.split(key, '.');
         if (value == null && splitKey.size() == 1) {
             setRootMap(key, null);
@@ -181,7 +274,7 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
             map = (MapTag) innerMapTag;
         }
         if (value == null) {
-            map.map.remove(new StringHolder(endKey));
+            map.putObject(endKey, null);
             setRootMap(splitKey.get(0), rootMap);
         }
         else {
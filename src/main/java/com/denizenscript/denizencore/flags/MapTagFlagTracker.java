@@ -40,7 +40,15 @@ public class MapTagFlagTracker extends MapTagBasedFlagTracker {
 
     @Override
     public MapTag getRootMap(String key) {
-        ObjectTag subObj = map.getObject(key);
+        return wrapRootValue(map.getObject(key));
+    }
+
+    @Override
+    public MapTag getRootMap(StringHolder key) {
+        return wrapRootValue(map.map.get(key));
+    }
+
+    public static MapTag wrapRootValue(ObjectTag subObj) {
         if (subObj == null) {
             return null;
         }
@@ -54,8 +62,9 @@ public class MapTagFlagTracker extends MapTagBasedFlagTracker {
 
     @Override
     public void setRootMap(String key, MapTag value) {
+        modificationCount++;
         if (value == null) {
-            map.map.remove(new StringHolder(key));
+            map.putObject(key, null);
         }
         else {
             ObjectTag subValue = value.map.get(valueString);
@@ -1,19 +1,35 @@
 package com.denizenscript.denizencore.flags;
 
+import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.objects.core.TimeTag;
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
+import com.denizenscript.denizencore.utilities.ChannelOutputStream;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
 
@@ -25,14 +41,31 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
 
         public boolean canExpire;
 
+        /**
+         * If non-null, the value hasn't been read yet, and is the UTF-8 savable text of 'sourceLength' bytes at 'sourceOffset' in this binary flag file buffer.
+         */
+        public ByteBuffer source;
+
+        public int sourceOffset, sourceLength;
+
+        /**
+         * A lower bound for the earliest expiration time (in millis) of the flag or any sub-flag within it, or NONE if nothing in it can expire.
+         * 0 means unknown (needs to be checked).
+         */
+        public long expiration = NONE;
+
+        /** The time of this flag's live entry in the expiration index, or NONE if it has none. */
+        public long scheduledTime = NONE;
+
         public MapTag getMap() {
             if (map == null) {
+                String string = getString();
                 if (string.startsWith("map@")) {
-                    map = MapTag.valueOf(string, CoreUtilities.noDebugContext);
+                    map = MapTag.valueOf(string, CoreUtilities.noDebugContext, true, true);
                 }
                 else {
                     map = new MapTag();
-                    map.map.put(valueString, ObjectFetcher.pickObjectFor(string, CoreUtilities.noDebugContext));
+                    map.map.put(valueString, ObjectFetcher.pickStoredObjectFor(string, CoreUtilities.noDebugContext));
                 }
             }
             return map;
@@ -40,7 +73,11 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
 
         public String getString() {
             if (string == null) {
-                if (map.map.containsKey(expirationString) || map.map.get(valueString) instanceof MapTag) {
+                if (source != null) {
+                    string = decodeUtf8(source, sourceOffset, sourceLength);
+                    source = null;
+                }
+                else if (map.map.containsKey(expirationString) || map.map.get(valueString) instanceof MapTag) {
                     string = map.savable();
                 }
                 else {
@@ -51,22 +88,89 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         }
     }
 
+    public static final long NONE = Long.MAX_VALUE;
+
+    public static class ExpirationEntry implements Comparable<ExpirationEntry> {
+
+        public final long time;
+
+        public final StringHolder key;
+
+        public final SaveOptimizedFlag flag;
+
+        public ExpirationEntry(long time, StringHolder key, SaveOptimizedFlag flag) {
+            this.time = time;
+            this.key = key;
+            this.flag = flag;
+        }
+
+        @Override
+        public int compareTo(ExpirationEntry other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
     public HashMap<StringHolder, SaveOptimizedFlag> map;
 
+    /**
+     * Index of flags by 'SaveOptimizedFlag.expiration', so that cleaning only ever looks at flags that may have something expired.
+     * Entries are never removed early: an entry is stale (and skipped) if its flag was replaced or removed, or if its time no longer matches the flag's 'scheduledTime'.
+     */
+    public PriorityQueue<ExpirationEntry> expirations = new PriorityQueue<>();
+
+    /** Used by 'setFlag' to pass the expiration of a sub-flag being set down to 'setRootMap'. */
+    public long pendingExpiration = NONE;
+
+    /** The maximum number of flags 'cleanExpired' checks per server tick. */
+    public static int maxExpirationChecksPerTick = 200;
+
     public boolean modified;
 
+    /**
+     * The keys of root flags changed or removed since the last save, when saves can be incremental (when journalling, see 'CoreConfiguration.flagJournal', or with an incremental storage backend).
+     * Null otherwise, in which case every save rewrites all flags.
+     */
+    public HashSet<StringHolder> dirtyKeys;
+
+    /** How this tracker's flags are stored on disk. */
+    public FlagStorageBackend backend = SingleFileFlagStorage.instance;
+
+    /** Approximate sizes (in bytes) of the last flag file snapshot and of the journal written after it, used to decide when to compact. */
+    public volatile long snapshotSize, journalSize;
+
+    /** Whether the flag file snapshot this tracker was loaded from (or last saved to) uses the binary format. */
+    public boolean snapshotIsBinary;
+
+    /** The journal will never be compacted while smaller than this many bytes, regardless of the compaction ratio. */
+    public static long minimumCompactSize = 64 * 1024;
+
     public SavableMapFlagTracker() {
         map = new HashMap<>();
     }
 
     public SavableMapFlagTracker(String input) {
         map = new HashMap<>(input.length() / 50);
+        applyLines(input);
+    }
+
+    /**
+     * Applies flag file lines (as written by 'toString' or by the journal) on top of the current flags.
+     * A key prefixed with '\rm' is a journal tombstone, and removes that flag.
+     */
+    public void applyLines(String input) {
+        modificationCount++;
         int eol = input.indexOf('\n');
         int startOfLine = 0;
         while (eol != -1) {
             int colon = input.indexOf(':', startOfLine);
             if (colon != -1) {
                 String key = input.substring(startOfLine, colon);
+                if (key.startsWith("\\rm")) {
+                    map.remove(new StringHolder(unescapeKey(key.substring("\\rm".length()))));
+                    startOfLine = eol + 1;
+                    eol = input.indexOf('\n', eol + 1);
+                    continue;
+                }
                 boolean expirable = key.startsWith("\\ex");
                 if (expirable) {
                     key = key.substring("\\ex".length());
@@ -76,63 +180,178 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
                 SaveOptimizedFlag flag = new SaveOptimizedFlag();
                 flag.canExpire = expirable;
                 flag.string = value;
-                map.put(new StringHolder(key), flag);
+                flag.expiration = expirable ? 0 : NONE;
+                StringHolder holder = StringHolder.intern(key);
+                map.put(holder, flag);
+                schedule(holder, flag);
             }
             startOfLine = eol + 1;
             eol = input.indexOf('\n', eol + 1);
         }
     }
 
-    @Override
-    public void doTotalClean() {
-        if (CoreConfiguration.debugVerbose) {
-            Debug.echoError("Verbose - savable tracker is beginning doTotalClean");
+    /**
+     * Returns the expiration time (in millis) of an '__expiration' value (either a TimeTag, or its text form from a quick parse), or NONE.
+     */
+    public static long expirationMillis(ObjectTag expiration) {
+        if (expiration == null) {
+            return NONE;
         }
-        ArrayList<StringHolder> toRemove = new ArrayList<>();
-        for (Map.Entry<StringHolder, SaveOptimizedFlag> entry : map.entrySet()) {
-            SaveOptimizedFlag val = entry.getValue();
-            if (!val.canExpire) {
-                continue;
-            }
-            TimeTag expireTime = null;
-            boolean hasSubMap = false;
-            if (val.map != null) {
-                expireTime = (TimeTag) val.map.map.get(expirationString);
-                hasSubMap = val.map.map.get(valueString).canBeType(MapTag.class);
-            }
-            else if (val.string.startsWith("map@")) {
-                MapTag quickMap = MapTag.valueOf(val.string, CoreUtilities.noDebugContext, false);
-                ObjectTag time = quickMap.map.get(expirationString);
-                if (time != null) {
-                    expireTime = TimeTag.valueOf(time.toString(), CoreUtilities.noDebugContext);
+        if (expiration instanceof TimeTag) {
+            return ((TimeTag) expiration).millis();
+        }
+        TimeTag time = TimeTag.valueOf(expiration.toString(), CoreUtilities.noDebugContext);
+        return time == null ? NONE : time.millis();
+    }
+
+    /**
+     * Returns the earliest expiration time (in millis) of the flag map or any sub-flag within it, or NONE if nothing in it can expire.
+     * Handles both real flag maps and quick-parsed ones (where sub-maps may still be in text form).
+     */
+    public static long earliestExpiration(MapTag flagMap) {
+        long earliest = expirationMillis(flagMap.map.get(expirationString));
+        ObjectTag value = flagMap.map.get(valueString);
+        if (value != null && !(value instanceof MapTag) && value.toString().startsWith("map@")) {
+            value = MapTag.valueOf(value.toString(), CoreUtilities.noDebugContext, false, true);
+        }
+        if (value instanceof MapTag) {
+            for (ObjectTag subFlag : ((MapTag) value).map.values()) {
+                if (!(subFlag instanceof MapTag) && subFlag.toString().startsWith("map@")) {
+                    subFlag = MapTag.valueOf(subFlag.toString(), CoreUtilities.noDebugContext, false, true);
+                }
+                if (subFlag instanceof MapTag) {
+                    earliest = Math.min(earliest, earliestExpiration((MapTag) subFlag));
                 }
-                hasSubMap = quickMap.map.get(valueString).canBeType(MapTag.class);
             }
-            if (isExpired(expireTime)) {
-                toRemove.add(entry.getKey());
+        }
+        return earliest;
+    }
+
+    /**
+     * Adds the flag to the expiration index if its expiration bound is earlier than its current entry.
+     * A bound that moved later keeps its earlier entry, and is rescheduled when that entry comes up.
+     */
+    public void schedule(StringHolder key, SaveOptimizedFlag flag) {
+        if (flag.expiration < flag.scheduledTime) {
+            flag.scheduledTime = flag.expiration;
+            expirations.add(new ExpirationEntry(flag.expiration, key, flag));
+        }
+    }
+
+    /**
+     * Removes the flag if it has expired, or any expired sub-flags within it, then updates its expiration bound.
+     * A flag that was never read is checked from a quick parse of its text, and only fully parsed if something in it did expire.
+     */
+    public void checkExpiration(StringHolder key, SaveOptimizedFlag flag, long now) {
+        MapTag flagMap = flag.map;
+        if (flagMap == null) {
+            String string = flag.getString();
+            flagMap = string.startsWith("map@") ? MapTag.valueOf(string, CoreUtilities.noDebugContext, false, true) : null;
+        }
+        long earliest = flagMap == null ? NONE : earliestExpiration(flagMap);
+        if (earliest < now) {
+            if (expirationMillis(flagMap.map.get(expirationString)) < now) {
+                map.remove(key);
+                markDirty(key);
                 modified = true;
+                modificationCount++;
+                return;
             }
-            else if (hasSubMap) {
-                ObjectTag subValue = val.getMap().map.get(valueString);
-                if (subValue instanceof MapTag) {
-                    if (doClean((MapTag) subValue)) {
-                        val.string = null;
-                        modified = true;
-                    }
-                }
+            MapTag realMap = flag.getMap();
+            ObjectTag subValue = realMap.map.get(valueString);
+            if (subValue instanceof MapTag && doClean((MapTag) subValue)) {
+                flag.string = null;
+                modified = true;
+                markDirty(key);
+            }
+            earliest = earliestExpiration(realMap);
+            if (earliest < now) {
+                // Shouldn't be possible, but don't re-check a flag that can't be cleaned every tick.
+                earliest = NONE;
             }
         }
+        flag.expiration = earliest;
+        schedule(key, flag);
+    }
+
+    /**
+     * Removes expired flags (and expired sub-flags within flags) using the expiration index, checking at most 'limit' flags.
+     * Should be called regularly (the server flag tracker is cleaned every tick, see 'maxExpirationChecksPerTick').
+     */
+    public void cleanExpired(int limit) {
+        if (CoreConfiguration.skipAllFlagCleanings) {
+            return;
+        }
+        long now = DenizenCore.currentTimeMillis;
+        while (limit > 0) {
+            ExpirationEntry entry = expirations.peek();
+            if (entry == null || entry.time >= now) {
+                break;
+            }
+            expirations.poll();
+            SaveOptimizedFlag flag = entry.flag;
+            if (flag.scheduledTime != entry.time || map.get(entry.key) != flag) {
+                continue;
+            }
+            flag.scheduledTime = NONE;
+            if (flag.expiration >= now) {
+                schedule(entry.key, flag);
+                continue;
+            }
+            checkExpiration(entry.key, flag, now);
+            limit--;
+        }
+        if (expirations.size() > map.size() * 2 + 1024) {
+            rebuildExpirations();
+        }
+    }
+
+    /**
+     * Rebuilds the expiration index without stale entries.
+     */
+    public void rebuildExpirations() {
+        ArrayList<ExpirationEntry> entries = new ArrayList<>();
+        for (Map.Entry<StringHolder, SaveOptimizedFlag> entry : map.entrySet()) {
+            SaveOptimizedFlag flag = entry.getValue();
+            flag.scheduledTime = flag.expiration;
+            if (flag.expiration != NONE) {
+                entries.add(new ExpirationEntry(flag.expiration, entry.getKey(), flag));
+            }
+        }
+        expirations = new PriorityQueue<>(entries);
+    }
+
+    @Override
+    public void doTotalClean() {
         if (CoreConfiguration.debugVerbose) {
-            Debug.echoError("Verbose - savable tracker has finished doTotalClean and will remove " + toRemove.size());
+            Debug.echoError("Verbose - savable tracker is beginning doTotalClean");
         }
-        for (StringHolder str : toRemove) {
-            map.remove(str);
+        int oldSize = map.size();
+        long now = DenizenCore.currentTimeMillis;
+        for (Map.Entry<StringHolder, SaveOptimizedFlag> entry : new ArrayList<>(map.entrySet())) {
+            if (entry.getValue().expiration < now) {
+                checkExpiration(entry.getKey(), entry.getValue(), now);
+            }
+        }
+        if (CoreConfiguration.debugVerbose) {
+            Debug.echoError("Verbose - savable tracker has finished doTotalClean and removed " + (oldSize - map.size()));
+        }
+    }
+
+    public void markDirty(StringHolder key) {
+        if (dirtyKeys != null) {
+            dirtyKeys.add(key);
         }
     }
 
     @Override
     public MapTag getRootMap(String key) {
-        SaveOptimizedFlag flag = map.get(new StringHolder(key));
+        return getRootMap(new StringHolder(key));
+    }
+
+    @Override
+    public MapTag getRootMap(StringHolder key) {
+        SaveOptimizedFlag flag = map.get(key);
         if (flag == null) {
             return null;
         }
@@ -142,17 +361,47 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
     @Override
     public void setRootMap(String key, MapTag value) {
         modified = true;
+        modificationCount++;
         if (value == null) {
-            map.remove(new StringHolder(key));
+            StringHolder holder = new StringHolder(key);
+            map.remove(holder);
+            markDirty(holder);
             return;
         }
-        SaveOptimizedFlag flag = new SaveOptimizedFlag();
+        StringHolder holder = StringHolder.intern(key);
+        SaveOptimizedFlag flag = map.get(holder);
+        if (flag != null && flag.map == value) {
+            // Same flag map modified in place: the old bound still holds, only newly set expirations can make it earlier.
+            flag.expiration = Math.min(flag.expiration, Math.min(pendingExpiration, expirationMillis(value.map.get(expirationString))));
+        }
+        else {
+            if (flag == null) {
+                flag = new SaveOptimizedFlag();
+                map.put(holder, flag);
+            }
+            flag.expiration = earliestExpiration(value);
+        }
         flag.map = value;
         flag.string = null;
-        if (value.map.containsKey(expirationString) || value.map.get(valueString) instanceof MapTag) {
-            flag.canExpire = true;
+        flag.source = null;
+        flag.canExpire = value.map.containsKey(expirationString) || value.map.get(valueString) instanceof MapTag;
+        schedule(holder, flag);
+        markDirty(holder);
+    }
+
+    @Override
+    public void setFlag(String key, ObjectTag value, TimeTag expiration, boolean doFlaggify) {
+        long expirationTime = expiration == null ? NONE : expiration.millis();
+        if (value instanceof MapTag && !doFlaggify) {
+            expirationTime = Math.min(expirationTime, earliestExpiration((MapTag) value));
+        }
+        pendingExpiration = expirationTime;
+        try {
+            super.setFlag(key, value, expiration, doFlaggify);
+        }
+        finally {
+            pendingExpiration = NONE;
         }
-        map.put(new StringHolder(key), flag);
     }
 
     @Override
@@ -208,40 +457,537 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         return key;
     }
 
+    /**
+     * A copy of the flags at one point in time, which can be serialized from any thread.
+     * Each flag is a detached copy that only holds the flag's savable text (or its not yet decoded binary source).
+     */
+    public static class FlagSnapshot {
+
+        public StringHolder[] keys;
+
+        public SaveOptimizedFlag[] flags;
+
+        public String toText() {
+            StringBuilder toOutput = new StringBuilder(keys.length * 100);
+            for (int i = 0; i < keys.length; i++) {
+                appendLine(toOutput, keys[i], flags[i]);
+            }
+            return toOutput.toString();
+        }
+
+        /**
+         * Writes the flags in the text flag file format, in chunks, without building the full text first.
+         */
+        public void writeText(Writer writer) throws IOException {
+            StringBuilder chunk = new StringBuilder(WRITE_CHUNK_SIZE + 1024);
+            for (int i = 0; i < keys.length; i++) {
+                appendLine(chunk, keys[i], flags[i]);
+                if (chunk.length() >= WRITE_CHUNK_SIZE) {
+                    writer.append(chunk);
+                    chunk.setLength(0);
+                }
+            }
+            writer.append(chunk);
+        }
+
+        /**
+         * Returns the flags in the binary flag file format. Values that were never read are copied over as-is.
+         */
+        public byte[] toBinary() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(keys.length * 100 + 12);
+            try {
+                writeBinary(output);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return output.toByteArray();
+        }
+
+        /**
+         * Writes the flags in the binary flag file format. Values that were never read are copied over as-is.
+         */
+        public void writeBinary(OutputStream output) throws IOException {
+            int count = keys.length;
+            byte[][] keyBytes = new byte[count][];
+            byte[][] values = new byte[count][];
+            long size = 12;
+            int tableSize = 12;
+            for (int i = 0; i < count; i++) {
+                SaveOptimizedFlag flag = flags[i];
+                keyBytes[i] = keys[i].str.getBytes(StandardCharsets.UTF_8);
+                if (flag.source == null) {
+                    values[i] = flag.getString().getBytes(StandardCharsets.UTF_8);
+                }
+                tableSize += 17 + keyBytes[i].length;
+                size += 17L + keyBytes[i].length + (flag.source == null ? values[i].length : flag.sourceLength);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Flag data is too large for the binary flag file format");
+            }
+            ByteBuffer table = ByteBuffer.allocate(tableSize);
+            table.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(count);
+            for (int i = 0; i < count; i++) {
+                table.putInt(keyBytes[i].length).put(keyBytes[i]);
+                table.put(flags[i].canExpire ? BINARY_BIT_CAN_EXPIRE : 0);
+                table.putLong(flags[i].expiration);
+                table.putInt(flags[i].source == null ? values[i].length : flags[i].sourceLength);
+            }
+            output.write(table.array());
+            byte[] copyBuffer = null;
+            for (int i = 0; i < count; i++) {
+                SaveOptimizedFlag flag = flags[i];
+                if (flag.source == null) {
+                    output.write(values[i]);
+                }
+                else if (flag.source.hasArray()) {
+                    output.write(flag.source.array(), flag.source.arrayOffset() + flag.sourceOffset, flag.sourceLength);
+                }
+                else {
+                    ByteBuffer view = flag.source.duplicate();
+                    ((Buffer) view).position(flag.sourceOffset);
+                    ((Buffer) view).limit(flag.sourceOffset + flag.sourceLength);
+                    if (output instanceof ChannelOutputStream) {
+                        ((ChannelOutputStream) output).write(view);
+                        continue;
+                    }
+                    if (copyBuffer == null) {
+                        copyBuffer = new byte[WRITE_CHUNK_SIZE];
+                    }
+                    while (view.hasRemaining()) {
+                        int length = Math.min(view.remaining(), copyBuffer.length);
+                        view.get(copyBuffer, 0, length);
+                        output.write(copyBuffer, 0, length);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Captures the current flags. Only flags changed since they were last serialized need to be converted to text here, everything else is just a reference copy.
+     */
+    public FlagSnapshot snapshot() {
+        int count = map.size();
+        FlagSnapshot snapshot = new FlagSnapshot();
+        snapshot.keys = new StringHolder[count];
+        snapshot.flags = new SaveOptimizedFlag[count];
+        int i = 0;
+        for (Map.Entry<StringHolder, SaveOptimizedFlag> entry : map.entrySet()) {
+            snapshot.keys[i] = entry.getKey();
+            snapshot.flags[i] = copyForSnapshot(entry.getValue());
+            i++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns a detached copy of the flag for a FlagSnapshot.
+     */
+    public static SaveOptimizedFlag copyForSnapshot(SaveOptimizedFlag flag) {
+        SaveOptimizedFlag copy = new SaveOptimizedFlag();
+        copy.canExpire = flag.canExpire;
+        copy.expiration = flag.expiration;
+        if (flag.source != null) {
+            copy.source = flag.source;
+            copy.sourceOffset = flag.sourceOffset;
+            copy.sourceLength = flag.sourceLength;
+        }
+        else {
+            copy.string = flag.getString();
+        }
+        return copy;
+    }
+
     @Override
     public String toString() {
-        StringBuilder toOutput = new StringBuilder(map.size() * 100);
-        for (Map.Entry<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> flag : map.entrySet()) {
-            if (flag.getValue().canExpire) {
-                toOutput.append("\\ex");
+        return snapshot().toText();
+    }
+
+    public static void appendLine(StringBuilder output, StringHolder key, SaveOptimizedFlag flag) {
+        if (flag.canExpire) {
+            output.append("\\ex");
+        }
+        output.append(escapeKey(key.str)).append(":").append(escapeValue(flag.getString())).append('\n');
+    }
+
+    /**
+     * Header of the binary flag file format: a 0 byte (which a text flag file can never start with) followed by "DFB".
+     * The header is followed by the format version, the flag count, then a key table (for each flag: key byte length, UTF-8 key, flag bits, expiration bound, value byte length),
+     * then all the values (as UTF-8 savable text) in the same order, so that loading only needs to read the key table.
+     * The expiration bound is 'SaveOptimizedFlag.expiration', so that flags can be indexed for cleaning without parsing them. Version 1 files don't have it.
+     */
+    public static final int BINARY_MAGIC = 0x00444642;
+
+    public static final int BINARY_VERSION = 2;
+
+    public static final byte BINARY_BIT_CAN_EXPIRE = 1;
+
+    /** How many bytes or chars of flag data are gathered at a time when streaming a save. */
+    public static final int WRITE_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Whether binary flag files are memory-mapped when loaded, rather than read into the heap.
+     * Disabled on Windows, where a file can't be replaced while it is still mapped (and Java can't explicitly unmap it).
+     */
+    public static boolean memoryMapFiles = !System.getProperty("os.name", "").toLowerCase().contains("windows");
+
+    public static String decodeUtf8(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a binary format flag file. Only the key table is read: each flag's value is kept as a reference into the buffer, and decoded when first used.
+     */
+    public static SavableMapFlagTracker readBinary(ByteBuffer buffer) {
+        if (buffer.getInt() != BINARY_MAGIC) {
+            throw new IllegalStateException("Not a binary flag file");
+        }
+        int version = buffer.getInt();
+        if (version != 1 && version != BINARY_VERSION) {
+            throw new IllegalStateException("Unsupported binary flag file version " + version);
+        }
+        int count = buffer.getInt();
+        SavableMapFlagTracker tracker = new SavableMapFlagTracker();
+        tracker.map = new HashMap<>(count);
+        SaveOptimizedFlag[] flags = new SaveOptimizedFlag[count];
+        StringHolder[] keys = new StringHolder[count];
+        for (int i = 0; i < count; i++) {
+            int keyLength = buffer.getInt();
+            keys[i] = StringHolder.intern(decodeUtf8(buffer, buffer.position(), keyLength));
+            ((Buffer) buffer).position(buffer.position() + keyLength);
+            SaveOptimizedFlag flag = new SaveOptimizedFlag();
+            flag.canExpire = (buffer.get() & BINARY_BIT_CAN_EXPIRE) != 0;
+            flag.expiration = version == 1 ? (flag.canExpire ? 0 : NONE) : buffer.getLong();
+            flag.sourceLength = buffer.getInt();
+            flags[i] = flag;
+        }
+        int offset = buffer.position();
+        for (int i = 0; i < count; i++) {
+            SaveOptimizedFlag flag = flags[i];
+            if (flag.sourceLength < 0 || offset + flag.sourceLength > buffer.limit()) {
+                throw new IllegalStateException("Binary flag file is truncated");
+            }
+            flag.source = buffer;
+            flag.sourceOffset = offset;
+            offset += flag.sourceLength;
+            tracker.map.put(keys[i], flag);
+            tracker.schedule(keys[i], flag);
+        }
+        tracker.snapshotIsBinary = true;
+        return tracker;
+    }
+
+    public byte[] toBinary() {
+        return snapshot().toBinary();
+    }
+
+    /**
+     * Loads a flag file snapshot in either the text or binary format (optionally compressed), or returns null if there is no file.
+     * Throws an exception if the file can't be read.
+     */
+    public static SavableMapFlagTracker loadSnapshot(String filePath) throws IOException {
+        File file = CoreUtilities.journallingFindFile(filePath);
+        if (file == null) {
+            return null;
+        }
+        if (memoryMapFiles) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(4);
+                if (size >= 12 && channel.read(header, 0) == 4 && header.getInt(0) == BINARY_MAGIC) {
+                    if (size > Integer.MAX_VALUE) {
+                        throw new IllegalStateException("Binary flag file is too large");
+                    }
+                    return readBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                }
             }
-            toOutput.append(escapeKey(flag.getKey().str)).append(":").append(escapeValue(flag.getValue().getString())).append('\n');
         }
-        return toOutput.toString();
+        byte[] data = CoreUtilities.journallingLoadBytes(filePath);
+        if (data == null) {
+            return null;
+        }
+        if (data.length >= 12 && ByteBuffer.wrap(data).getInt() == BINARY_MAGIC) {
+            return readBinary(ByteBuffer.wrap(data));
+        }
+        String content = CoreUtilities.decodeSavedText(data);
+        if (CoreConfiguration.debugVerbose) {
+            Debug.echoError("Verbose - loaded flag content for " + filePath + " as " + content.length());
+        }
+        return new SavableMapFlagTracker(content);
     }
 
     public static SavableMapFlagTracker loadFlagFile(String filePath, boolean doClean) {
+        return loadFlagFile(filePath, doClean, SingleFileFlagStorage.instance);
+    }
+
+    /**
+     * Loads the flags stored under the path (without extension) with the given backend.
+     * If there is nothing stored by that backend, but there is data stored by the other built-in backend, that is loaded instead and moved over by the next save.
+     */
+    public static SavableMapFlagTracker loadFlagFile(String filePath, boolean doClean, FlagStorageBackend backend) {
         if (CoreConfiguration.debugVerbose) {
             Debug.echoError("Verbose - loading flag file path at " + filePath);
         }
-        String content = CoreUtilities.journallingLoadFile(filePath + ".dat");
-        if (CoreConfiguration.debugVerbose) {
-            Debug.echoError("Verbose - loaded flag content for " + filePath + " as " + (content == null ? "null" : content.length()));
+        SavableMapFlagTracker tracker;
+        try {
+            tracker = backend.loadSnapshot(filePath);
+            if (tracker == null) {
+                tracker = backend instanceof ShardedFlagStorage ? SingleFileFlagStorage.instance.loadSnapshot(filePath) : ShardedFlagStorage.loadShards(filePath, 0);
+                if (tracker != null) {
+                    tracker.needsFullSave = true;
+                }
+            }
+        }
+        catch (Throwable ex) {
+            Debug.echoError("Failed to load flag data for path '" + filePath + "'");
+            Debug.echoError(ex);
+            tracker = null;
+        }
+        File journalFile = new File(filePath + ".dat.journal");
+        boolean hasJournal = journalFile.exists();
+        if (tracker == null) {
+            tracker = new SavableMapFlagTracker();
+            tracker.snapshotIsBinary = CoreConfiguration.flagBinaryFormat;
+            tracker.backend = backend;
+            // Note: a new incremental backend still needs every part of storage written once.
+            tracker.needsFullSave = backend.isIncremental();
+            if (!hasJournal) {
+                if (CoreConfiguration.flagJournal || backend.isIncremental()) {
+                    tracker.dirtyKeys = new HashSet<>();
+                }
+                return tracker;
+            }
         }
-        if (content == null) {
-            return new SavableMapFlagTracker();
+        tracker.backend = backend;
+        if (hasJournal) {
+            String records = CoreUtilities.journallingLoadFile(journalFile.getPath());
+            if (CoreConfiguration.debugVerbose) {
+                Debug.echoError("Verbose - replaying flag journal " + journalFile.getPath() + " of length " + (records == null ? "null" : records.length()));
+            }
+            if (records != null) {
+                tracker.applyLines(records);
+            }
+        }
+        if (CoreConfiguration.flagJournal || backend.isIncremental()) {
+            tracker.dirtyKeys = new HashSet<>();
+        }
+        if (CoreConfiguration.flagJournal) {
+            tracker.snapshotSize = new File(filePath + ".dat").length();
+            tracker.journalSize = journalFile.length();
         }
-        SavableMapFlagTracker tracker = new SavableMapFlagTracker(content);
         if (CoreConfiguration.debugVerbose) {
             Debug.echoError("Verbose - loading flag file path at " + filePath + " to tracker of " + tracker.map.size() + " flags... doClean=" + doClean);
         }
-        if (doClean && !CoreConfiguration.skipAllFlagCleanings) {
-            tracker.doTotalClean();
+        if (doClean) {
+            tracker.cleanExpired(Integer.MAX_VALUE);
         }
         return tracker;
     }
 
+    public static class PendingWrite {
+
+        public String filePath;
+
+        public boolean binary;
+
+        public FlagStorageBackend backend;
+
+        /** The flag snapshot to write, or null if this write is a journal append. */
+        public FlagSnapshot snapshot;
+
+        /** Whether 'snapshot' only holds the changed part of the flags (from an incremental backend), so it can't replace other waiting saves. */
+        public boolean partial;
+
+        public StringBuilder records;
+    }
+
+    /** Writes waiting for the background writer, in order. Also used as the lock for 'writerRunning'. */
+    public final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    public boolean writerRunning;
+
+    /** Set by the background writer when a write failed, so that the next save writes the full flag file again. */
+    public volatile boolean needsFullSave;
+
     public void saveToFile(String filePath) {
-        CoreUtilities.journallingFileSave(filePath + ".dat", toString());
+        saveToFile(filePath, false);
+    }
+
+    /**
+     * Saves the flags to the given path (without the '.dat' extension).
+     * The flags are captured on the calling thread, then serialized and written by a background writer. If 'async' is false, waits until the write is done.
+     * Saves requested while the writer is still busy are coalesced: a full save replaces any save still waiting, and journal records are merged.
+     * With an incremental storage backend, only the parts of storage holding flags changed since the last save are rewritten.
+     * Otherwise when journalling, only the flags changed since the last save are appended to the journal file, and the journal is merged into the main file once it grows too large.
+     * Otherwise, all flags are rewritten and any leftover journal is removed.
+     */
+    public void saveToFile(String filePath, boolean async) {
+        PendingWrite write = new PendingWrite();
+        write.filePath = filePath;
+        write.binary = CoreConfiguration.flagBinaryFormat;
+        write.backend = backend;
+        // Note: a snapshot in the other format is rewritten in full first, to migrate it.
+        boolean incremental = dirtyKeys != null && !needsFullSave && snapshotIsBinary == write.binary;
+        if (incremental && backend.isIncremental()) {
+            if (!dirtyKeys.isEmpty()) {
+                write.snapshot = backend.capture(this, dirtyKeys);
+                write.partial = true;
+                dirtyKeys.clear();
+                queueWrite(write);
+            }
+        }
+        else if (incremental && CoreConfiguration.flagJournal) {
+            if (!dirtyKeys.isEmpty()) {
+                write.records = new StringBuilder(dirtyKeys.size() * 100);
+                for (StringHolder key : dirtyKeys) {
+                    SaveOptimizedFlag flag = map.get(key);
+                    if (flag == null) {
+                        write.records.append("\\rm").append(escapeKey(key.str)).append(":\n");
+                    }
+                    else {
+                        appendLine(write.records, key, flag);
+                    }
+                }
+                dirtyKeys.clear();
+                queueWrite(write);
+            }
+        }
+        else {
+            needsFullSave = false;
+            write.snapshot = backend.capture(this, null);
+            snapshotIsBinary = write.binary;
+            dirtyKeys = CoreConfiguration.flagJournal || backend.isIncremental() ? new HashSet<>() : null;
+            queueWrite(write);
+        }
+        if (!async) {
+            waitForSaves();
+        }
+    }
+
+    public void queueWrite(PendingWrite write) {
+        synchronized (pendingWrites) {
+            if (write.snapshot != null && !write.partial) {
+                pendingWrites.removeIf(pending -> pending.filePath.equals(write.filePath));
+            }
+            else {
+                PendingWrite last = pendingWrites.peekLast();
+                if (last != null && last.snapshot == null && last.filePath.equals(write.filePath)) {
+                    last.records.append(write.records);
+                    return;
+                }
+            }
+            pendingWrites.add(write);
+            if (!writerRunning) {
+                writerRunning = true;
+                DenizenCore.runAsync(this::runWriter);
+            }
+        }
+    }
+
+    /**
+     * Blocks until every save queued so far has been written.
+     */
+    public void waitForSaves() {
+        synchronized (pendingWrites) {
+            while (writerRunning) {
+                try {
+                    pendingWrites.wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void runWriter() {
+        while (true) {
+            PendingWrite write;
+            synchronized (pendingWrites) {
+                write = pendingWrites.poll();
+                if (write == null) {
+                    writerRunning = false;
+                    pendingWrites.notifyAll();
+                    return;
+                }
+            }
+            try {
+                if (!(write.snapshot != null ? writeSnapshot(write) : writeJournal(write))) {
+                    needsFullSave = true;
+                }
+            }
+            catch (Throwable ex) {
+                Debug.echoError(ex);
+                needsFullSave = true;
+            }
+        }
+    }
+
+    public boolean writeSnapshot(PendingWrite write) {
+        long start = CoreUtilities.monotonicMillis();
+        if (!write.backend.writeSnapshot(write.filePath, write.snapshot, write.binary)) {
+            return false;
+        }
+        if (!write.partial) {
+            new File(write.filePath + ".dat.journal").delete();
+            snapshotSize = new File(write.filePath + ".dat").length();
+            journalSize = 0;
+        }
+        if (CoreConfiguration.debugVerbose) {
+            Debug.echoError("Verbose - wrote " + write.snapshot.keys.length + " flags to " + write.filePath + " in " + (CoreUtilities.monotonicMillis() - start) + "ms");
+        }
+        return true;
+    }
+
+    public boolean writeJournal(PendingWrite write) {
+        String journalPath = write.filePath + ".dat.journal";
+        if (!CoreUtilities.appendToFile(journalPath, write.records.toString())) {
+            return false;
+        }
+        journalSize = new File(journalPath).length();
+        if (journalSize > Math.max(minimumCompactSize, (long) (snapshotSize * CoreConfiguration.flagJournalCompactRatio))) {
+            compact(write.filePath, write.binary);
+        }
+        return true;
+    }
+
+    /**
+     * Merges the journal into the flag file snapshot. Only reads the files, never the live flag map, so runs on the background writer.
+     * If interrupted after the snapshot is written but before the journal is removed, replaying the journal again on load is harmless, as each record holds a full value.
+     */
+    public void compact(String filePath, boolean binary) {
+        try {
+            long start = CoreUtilities.monotonicMillis();
+            File journalFile = new File(filePath + ".dat.journal");
+            String records = CoreUtilities.journallingLoadFile(journalFile.getPath());
+            if (records == null) {
+                return;
+            }
+            SavableMapFlagTracker merged = loadSnapshot(filePath + ".dat");
+            if (merged == null) {
+                merged = new SavableMapFlagTracker();
+            }
+            merged.applyLines(records);
+            PendingWrite write = new PendingWrite();
+            write.filePath = filePath;
+            write.binary = binary;
+            write.backend = SingleFileFlagStorage.instance;
+            write.snapshot = merged.snapshot();
+            if (writeSnapshot(write) && CoreConfiguration.debugVerbose) {
+                Debug.echoError("Verbose - compacted flag journal for " + filePath + " into " + merged.map.size() + " flags in " + (CoreUtilities.monotonicMillis() - start) + "ms");
+            }
+        }
+        catch (Throwable ex) {
+            Debug.echoError(ex);
+        }
     }
 }
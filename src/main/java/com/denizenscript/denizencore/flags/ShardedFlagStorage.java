@@ -0,0 +1,207 @@
+package com.denizenscript.denizencore.flags;
+
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Stores flags in a directory ('<path>_shards') of shard files named '<index>.dat', with each root flag assigned to a shard by the hash of its key.
+ * Each shard is a normal flag file (text or binary format). A save only rewrites the shards that hold changed flags, and shards are read and written in parallel.
+ * An interrupted save can leave some shards newer than others, but each shard file is always complete.
+ * If the shard count changes, the shards are redistributed by the first save after loading.
+ */
+public class ShardedFlagStorage implements FlagStorageBackend {
+
+    public static class ShardedSnapshot extends SavableMapFlagTracker.FlagSnapshot {
+
+        /** Whether every shard was captured, rather than only the changed ones. */
+        public boolean full;
+
+        public boolean[] dirtyShards;
+
+        /** The index in 'keys' where each shard's flags start (with one extra entry for the end of the last shard). Clean shards are empty. */
+        public int[] shardStarts;
+
+        public SavableMapFlagTracker.FlagSnapshot shard(int index) {
+            SavableMapFlagTracker.FlagSnapshot snapshot = new SavableMapFlagTracker.FlagSnapshot();
+            snapshot.keys = Arrays.copyOfRange(keys, shardStarts[index], shardStarts[index + 1]);
+            snapshot.flags = Arrays.copyOfRange(flags, shardStarts[index], shardStarts[index + 1]);
+            return snapshot;
+        }
+    }
+
+    public final int shardCount;
+
+    public ShardedFlagStorage(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardOf(StringHolder key) {
+        return (key.low.hashCode() & Integer.MAX_VALUE) % shardCount;
+    }
+
+    public static String shardPath(String filePath, int shard) {
+        return new File(filePath + "_shards", shard + ".dat").getPath();
+    }
+
+    /**
+     * Returns the sorted indices of all shard files (including leftovers from interrupted saves) under the path, or null if there is no shard directory.
+     */
+    public static int[] listShards(String filePath) {
+        String[] names = new File(filePath + "_shards").list();
+        if (names == null) {
+            return null;
+        }
+        int[] shards = new int[names.length];
+        int count = 0;
+        for (String name : names) {
+            int dot = name.indexOf(".dat");
+            if (dot <= 0 || (name.length() != dot + ".dat".length() && name.charAt(dot + ".dat".length()) != '~')) {
+                continue;
+            }
+            try {
+                shards[count++] = Integer.parseInt(name.substring(0, dot));
+            }
+            catch (NumberFormatException ex) {
+                count--;
+            }
+        }
+        return Arrays.stream(shards, 0, count).distinct().sorted().toArray();
+    }
+
+    /**
+     * Deletes all shard files with an index of at least 'fromIndex', and the shard directory itself if nothing is left in it.
+     */
+    public static void deleteShards(String filePath, int fromIndex) {
+        int[] shards = listShards(filePath);
+        if (shards == null) {
+            return;
+        }
+        for (int shard : shards) {
+            if (shard >= fromIndex) {
+                CoreUtilities.journallingDelete(shardPath(filePath, shard));
+            }
+        }
+        new File(filePath + "_shards").delete();
+    }
+
+    /**
+     * Loads and merges all shards under the path in parallel, or returns null if there are none.
+     * If the shards found aren't exactly 0 to 'expectedCount' - 1, the tracker is marked to be saved in full, to redistribute them.
+     */
+    public static SavableMapFlagTracker loadShards(String filePath, int expectedCount) throws IOException {
+        int[] shards = listShards(filePath);
+        if (shards == null || shards.length == 0) {
+            return null;
+        }
+        SavableMapFlagTracker[] loaded = new SavableMapFlagTracker[shards.length];
+        try {
+            IntStream.range(0, shards.length).parallel().forEach(i -> {
+                try {
+                    loaded[i] = SavableMapFlagTracker.loadSnapshot(shardPath(filePath, shards[i]));
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        int total = 0;
+        for (SavableMapFlagTracker shard : loaded) {
+            total += shard == null ? 0 : shard.map.size();
+        }
+        SavableMapFlagTracker tracker = new SavableMapFlagTracker();
+        tracker.map = new HashMap<>((int) (total / 0.75f) + 1);
+        tracker.snapshotIsBinary = true;
+        for (SavableMapFlagTracker shard : loaded) {
+            if (shard != null) {
+                tracker.map.putAll(shard.map);
+                tracker.snapshotIsBinary &= shard.snapshotIsBinary;
+            }
+        }
+        tracker.rebuildExpirations();
+        tracker.needsFullSave = shards.length != expectedCount || shards[shards.length - 1] != expectedCount - 1;
+        return tracker;
+    }
+
+    @Override
+    public SavableMapFlagTracker loadSnapshot(String filePath) throws IOException {
+        return loadShards(filePath, shardCount);
+    }
+
+    @Override
+    public SavableMapFlagTracker.FlagSnapshot capture(SavableMapFlagTracker tracker, Set<StringHolder> dirtyKeys) {
+        ShardedSnapshot snapshot = new ShardedSnapshot();
+        snapshot.full = dirtyKeys == null;
+        snapshot.dirtyShards = new boolean[shardCount];
+        if (snapshot.full) {
+            Arrays.fill(snapshot.dirtyShards, true);
+        }
+        else {
+            for (StringHolder key : dirtyKeys) {
+                snapshot.dirtyShards[shardOf(key)] = true;
+            }
+        }
+        int[] starts = new int[shardCount + 1];
+        for (StringHolder key : tracker.map.keySet()) {
+            int shard = shardOf(key);
+            if (snapshot.dirtyShards[shard]) {
+                starts[shard + 1]++;
+            }
+        }
+        for (int i = 0; i < shardCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        snapshot.shardStarts = starts;
+        snapshot.keys = new StringHolder[starts[shardCount]];
+        snapshot.flags = new SavableMapFlagTracker.SaveOptimizedFlag[starts[shardCount]];
+        int[] next = Arrays.copyOf(starts, shardCount);
+        for (Map.Entry<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> entry : tracker.map.entrySet()) {
+            int shard = shardOf(entry.getKey());
+            if (snapshot.dirtyShards[shard]) {
+                int index = next[shard]++;
+                snapshot.keys[index] = entry.getKey();
+                snapshot.flags[index] = SavableMapFlagTracker.copyForSnapshot(entry.getValue());
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public boolean writeSnapshot(String filePath, SavableMapFlagTracker.FlagSnapshot snapshot, boolean binary) {
+        ShardedSnapshot sharded = (ShardedSnapshot) snapshot;
+        int failures = IntStream.range(0, shardCount).parallel().filter(i -> sharded.dirtyShards[i]).map(i -> {
+            SavableMapFlagTracker.FlagSnapshot shard = sharded.shard(i);
+            String path = shardPath(filePath, i);
+            boolean compress = CoreConfiguration.saveCompression;
+            return (binary ? CoreUtilities.tryJournallingBinarySave(path, compress, shard::writeBinary) : CoreUtilities.tryJournallingTextSave(path, compress, shard::writeText)) ? 0 : 1;
+        }).sum();
+        if (failures > 0) {
+            return false;
+        }
+        if (sharded.full) {
+            CoreUtilities.journallingDelete(filePath + ".dat");
+            deleteShards(filePath, shardCount);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+}
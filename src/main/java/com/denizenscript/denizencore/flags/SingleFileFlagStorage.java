@@ -0,0 +1,42 @@
+package com.denizenscript.denizencore.flags;
+
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Stores all flags in one '.dat' flag file (plus its journal, when journalling), rewritten in full on every non-journal save.
+ */
+public class SingleFileFlagStorage implements FlagStorageBackend {
+
+    public static final SingleFileFlagStorage instance = new SingleFileFlagStorage();
+
+    @Override
+    public SavableMapFlagTracker loadSnapshot(String filePath) throws IOException {
+        return SavableMapFlagTracker.loadSnapshot(filePath + ".dat");
+    }
+
+    @Override
+    public SavableMapFlagTracker.FlagSnapshot capture(SavableMapFlagTracker tracker, Set<StringHolder> dirtyKeys) {
+        return tracker.snapshot();
+    }
+
+    @Override
+    public boolean writeSnapshot(String filePath, SavableMapFlagTracker.FlagSnapshot snapshot, boolean binary) {
+        String path = filePath + ".dat";
+        boolean compress = CoreConfiguration.saveCompression;
+        boolean saved = binary ? CoreUtilities.tryJournallingBinarySave(path, compress, snapshot::writeBinary) : CoreUtilities.tryJournallingTextSave(path, compress, snapshot::writeText);
+        if (saved) {
+            ShardedFlagStorage.deleteShards(filePath, 0);
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return false;
+    }
+}
@@ -8,6 +8,7 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
+import com.denizenscript.denizencore.utilities.text.ObjectTextReader;
 
 import java.lang.invoke.CallSite;
 import java.lang.invoke.LambdaMetafactory;
@@ -15,6 +16,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ObjectFetcher {
 
@@ -95,7 +97,7 @@ public class ObjectFetcher {
         // Returns a duration object constructed from the input value.
         // Refer to <@link ObjectType DurationTag>.
         // -->
-        TYPE_DURATION = registerWithObjectFetcher(DurationTag.class, DurationTag.tagProcessor).setAsNOtherCode().setCanConvertStatic().generateBaseTag(); // d@
+        TYPE_DURATION = registerWithObjectFetcher(DurationTag.class, DurationTag.tagProcessor).setAsNOtherCode().setCanConvertStatic().setFastReject(DurationTag::fastReject).generateBaseTag(); // d@
 
         // <--[tag]
         // @attribute <element[<element>]>
@@ -123,7 +125,7 @@ public class ObjectFetcher {
         TYPE_LIST.typeConverter = ListTag::getListFor;
 
         // Tag generated externally as input is optional
-        TYPE_MAP = registerWithObjectFetcher(MapTag.class, MapTag.tagProcessor).setCanConvertStatic(); // map@
+        TYPE_MAP = registerWithObjectFetcher(MapTag.class, MapTag.tagProcessor).setCanConvertStatic().setFastReject(MapTag::fastReject); // map@
         TYPE_MAP.typeConverter = MapTag::getMapFor;
         TYPE_MAP.typeChecker = (inp) -> {
             if (inp == null) {
@@ -169,7 +171,7 @@ public class ObjectFetcher {
         // Returns a time object constructed from the input value.
         // Refer to <@link ObjectType TimeTag>.
         // -->
-        TYPE_TIME = registerWithObjectFetcher(TimeTag.class, TimeTag.tagProcessor).setAsNOtherCode().setCanConvertStatic().generateBaseTag(); // time@
+        TYPE_TIME = registerWithObjectFetcher(TimeTag.class, TimeTag.tagProcessor).setAsNOtherCode().setCanConvertStatic().setFastReject(TimeTag::fastReject).generateBaseTag(); // time@
     }
 
     public static ObjectType.MatchesInterface getMatchesFor(Class clazz) {
@@ -240,6 +242,7 @@ public class ObjectFetcher {
             if (valueOfMethod.isAnnotationPresent(Fetchable.class)) {
                 String identifier = valueOfMethod.getAnnotation(Fetchable.class).value();
                 objectsByPrefix.put(CoreUtilities.toLowerCase(identifier.trim()), newType);
+                prefixTrie = null;
                 objectsByName.put(CoreUtilities.toLowerCase(longName), newType);
                 if (shortName != null) {
                     objectsByName.put(CoreUtilities.toLowerCase(shortName), newType);
@@ -349,37 +352,7 @@ public class ObjectFetcher {
         if (description.indexOf('&') == -1) {
             return description;
         }
-        int openBracket = description.indexOf('[');
-        if (openBracket == -1) {
-            return partialUnescape(description);
-        }
-        int length = description.length();
-        StringBuilder result = new StringBuilder(length);
-        int start = 0;
-        int brackets = 0;
-        for (int i = openBracket; i < length; i++) {
-            char c = description.charAt(i);
-            if (c == '[') {
-                brackets++;
-                if (brackets == 1) {
-                    result.append(partialUnescape(description.substring(start, i)));
-                    start = i;
-                }
-            }
-            else if (c == ']') {
-                brackets--;
-                if (brackets == 0) {
-                    result.append(description, start, i);
-                    start = i;
-                    i = description.indexOf('[', start) - 1;
-                    if (i < 0) {
-                        break;
-                    }
-                }
-            }
-        }
-        result.append(partialUnescape(description.substring(start)));
-        return result.toString();
+        return new ObjectTextReader(description).unescapeProperty(0, description.length());
     }
 
     public static void applyPropertySet(Adjustable object, TagContext context, List<String> properties) {
@@ -395,6 +368,9 @@ public class ObjectFetcher {
     }
 
     public static <T extends ObjectTag> T getObjectFrom(ObjectType<T> type, String value, TagContext context) {
+        if (type.fastReject != null && value != null && type.fastReject.matches(value)) {
+            return null;
+        }
         try {
             return type.valueOf.valueOf(value, context);
         }
@@ -409,7 +385,11 @@ public class ObjectFetcher {
         try {
             List<String> matches = separateProperties(value);
             boolean matched = matches != null && type.isAdjustable;
-            T gotten = type.valueOf.valueOf(matched ? matches.get(0) : value, context);
+            String baseValue = matched ? matches.get(0) : value;
+            if (type.fastReject != null && baseValue != null && type.fastReject.matches(baseValue)) {
+                return null;
+            }
+            T gotten = type.valueOf.valueOf(baseValue, context);
             if (gotten != null && matched) {
                 applyPropertySet((Adjustable) gotten, context, matches);
                 gotten = (T) gotten.fixAfterProperties();
@@ -423,18 +403,125 @@ public class ObjectFetcher {
         return null;
     }
 
+    /**
+     * A node of the prefix trie built over 'objectsByPrefix'. Children are stored in an array covering the range of child characters from 'low'.
+     */
+    public static class PrefixNode {
+
+        public ObjectType<? extends ObjectTag> type;
+
+        public char low;
+
+        public PrefixNode[] next;
+
+        public final PrefixNode child(char c) {
+            if (next == null) {
+                return null;
+            }
+            int index = c - low;
+            return index >= 0 && index < next.length ? next[index] : null;
+        }
+    }
+
+    public static PrefixNode prefixTrie;
+
+    public static int prefixTrieSize;
+
+    private static PrefixNode buildPrefixNode(List<Map.Entry<String, ObjectType<? extends ObjectTag>>> entries, int depth) {
+        PrefixNode node = new PrefixNode();
+        TreeMap<Character, List<Map.Entry<String, ObjectType<? extends ObjectTag>>>> children = new TreeMap<>();
+        for (Map.Entry<String, ObjectType<? extends ObjectTag>> entry : entries) {
+            String key = entry.getKey();
+            if (key.length() == depth) {
+                node.type = entry.getValue();
+            }
+            else {
+                children.computeIfAbsent(key.charAt(depth), c -> new ArrayList<>()).add(entry);
+            }
+        }
+        if (!children.isEmpty()) {
+            node.low = children.firstKey();
+            node.next = new PrefixNode[children.lastKey() - node.low + 1];
+            for (Map.Entry<Character, List<Map.Entry<String, ObjectType<? extends ObjectTag>>>> child : children.entrySet()) {
+                node.next[child.getKey() - node.low] = buildPrefixNode(child.getValue(), depth + 1);
+            }
+        }
+        return node;
+    }
+
+    public static synchronized PrefixNode rebuildPrefixTrie() {
+        PrefixNode root = buildPrefixNode(new ArrayList<>(objectsByPrefix.entrySet()), 0);
+        prefixTrieSize = objectsByPrefix.size();
+        prefixTrie = root;
+        storedElementCache.clear();
+        return root;
+    }
+
+    /**
+     * Returns the registered object type whose prefix is the text before the first '@' in the value (case-sensitive, like a direct 'objectsByPrefix' lookup), or null if none.
+     * Reads the value in a single scan that stops as soon as no known prefix can match.
+     */
+    public static ObjectType<? extends ObjectTag> getTypeForPrefixOf(String value) {
+        PrefixNode node = prefixTrie;
+        if (node == null || prefixTrieSize != objectsByPrefix.size()) {
+            node = rebuildPrefixTrie();
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '@') {
+                return node.type;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /** The maximum length of a value kept in 'storedElementCache'. */
+    public static int storedElementMaxLength = 24;
+
+    /** The maximum number of values kept in 'storedElementCache'. When exceeded, the cache is emptied and starts refilling. */
+    public static int storedElementMaxSize = 4096;
+
+    /** Short values known to be plain elements (not prefixed objects), each mapped to itself, so that equal values share one String instance. */
+    public static final ConcurrentHashMap<String, String> storedElementCache = new ConcurrentHashMap<>();
+
+    /**
+     * Equivalent to 'pickObjectFor', but short values that are plain elements (like "true", "0", or a material name) are recognized through a bounded cache,
+     * skipping the prefix check, and share their String with every other stored copy of the same value.
+     * Only for values that go into stored data (map and list contents, flags), where the same short values repeat a lot.
+     * Only the immutable String is shared: every call returns a new ElementTag, which the caller is free to change.
+     */
+    public static ObjectTag pickStoredObjectFor(String value, TagContext context) {
+        if (value == null || value.length() > storedElementMaxLength) {
+            return pickObjectFor(value, context);
+        }
+        String cached = storedElementCache.get(value);
+        if (cached != null) {
+            return new ElementTag(cached);
+        }
+        if (getTypeForPrefixOf(value) != null) {
+            return pickObjectFor(value, context);
+        }
+        if (storedElementCache.size() >= storedElementMaxSize) {
+            storedElementCache.clear();
+        }
+        storedElementCache.put(value, value);
+        return new ElementTag(value);
+    }
+
     public static ObjectTag pickObjectFor(String value, TagContext context) {
         if (value == null) {
             return null;
         }
-        if (CoreUtilities.contains(value, '@')) {
-            String type = value.split("@", 2)[0];
-            ObjectType<? extends ObjectTag> toFetch = objectsByPrefix.get(type);
-            if (toFetch != null && (toFetch.canConvertStatic || !TagManager.isStaticParsing)) {
-                ObjectTag fetched = getObjectFrom(toFetch, value, context);
-                if (fetched != null) {
-                    return fetched;
-                }
+        ObjectType<? extends ObjectTag> toFetch = getTypeForPrefixOf(value);
+        if (toFetch != null && (toFetch.canConvertStatic || !TagManager.isStaticParsing)) {
+            ObjectTag fetched = getObjectFrom(toFetch, value, context);
+            if (fetched != null) {
+                return fetched;
             }
         }
         return new ElementTag(value);
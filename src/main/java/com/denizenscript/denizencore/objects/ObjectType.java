@@ -51,6 +51,12 @@ public class ObjectType<T extends ObjectTag> {
 
     public boolean canConvertStatic;
 
+    /**
+     * Optional quick check that returns true if 'valueOf' would certainly return null for the given text, so the full parse can be skipped.
+     * Must never return true for text that 'valueOf' would accept.
+     */
+    public MatchesInterface fastReject;
+
     public ObjectType<T> setAsNOtherCode() {
         typeChecker = (inp) -> {
             if (inp == null) {
@@ -83,6 +89,11 @@ public class ObjectType<T extends ObjectTag> {
         return this;
     }
 
+    public ObjectType<T> setFastReject(MatchesInterface fastReject) {
+        this.fastReject = fastReject;
+        return this;
+    }
+
     public ObjectType<T> generateBaseTag() {
         TagManager.internalRegisterTagHandler(clazz, clazz, CoreUtilities.toLowerCase(shortName), (attribute, param) -> param, canConvertStatic);
         return this;
@@ -44,6 +44,23 @@ public class DurationTag implements ObjectTag {
     //
     // -->
 
+    /**
+     * Returns true if 'valueOf' would certainly return null for the text (no digits and not 'instant' or 'infinite'), checked without parsing.
+     */
+    public static boolean fastReject(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return false;
+            }
+        }
+        string = CoreUtilities.toLowerCase(string);
+        if (string.startsWith("d@")) {
+            string = string.substring("d@".length());
+        }
+        return !string.equals("instant") && !string.equals("infinite");
+    }
+
     @Fetchable("d")
     public static DurationTag valueOf(String string, TagContext context) {
         if (string == null) {
@@ -113,6 +113,16 @@ public class ElementTag implements ObjectTag {
         return string != null;
     }
 
+    /**
+     * Returns the Pattern used by 'ElementTag.split' for the given split input: either a 'regex:' prefixed regex, or plain text matched case-insensitively.
+     */
+    public static Pattern splitPattern(String splitText) {
+        if (CoreUtilities.toLowerCase(splitText).startsWith("regex:")) {
+            return RegexCache.get(splitText.substring("regex:".length()));
+        }
+        return RegexCache.get(Pattern.quote(splitText), Pattern.CASE_INSENSITIVE);
+    }
+
     /**
      * Handle null ObjectTags appropriately for potentionally null tags.
      * Will show a dB error message and return Element.NULL for null objects.
@@ -893,10 +903,13 @@ public class ElementTag implements ObjectTag {
         tagProcessor.registerStaticTag(ElementTag.class, ElementTag.class, "contains_text", (attribute, object, contains) -> {
             String contLow = contains.asLowerString();
             if (contLow.startsWith("regex:")) {
-                return new ElementTag(Pattern.compile(contains.asString().substring("regex:".length()), Pattern.CASE_INSENSITIVE).matcher(object.asString()).find());
+                return new ElementTag(RegexCache.get(contains.asString().substring("regex:".length()), Pattern.CASE_INSENSITIVE).matcher(object.asString()).find());
             }
             return new ElementTag(object.asLowerString().contains(contLow));
         });
+        tagProcessor.registerRegexParam("contains_text", (param) -> {
+            return CoreUtilities.toLowerCase(param).startsWith("regex:") ? RegexCache.get(param.substring("regex:".length()), Pattern.CASE_INSENSITIVE) : null;
+        });
         tagProcessor.registerFutureTagDeprecation("contains_text", "contains");
 
         // <--[tag]
@@ -966,8 +979,10 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element matches a regex input.
         // -->
         tagProcessor.registerStaticTag(ElementTag.class, ElementTag.class, "regex_matches", (attribute, object, regex) -> {
-            return new ElementTag(object.element.matches(regex.asString()));
-        }, "matches");
+            return new ElementTag(RegexCache.get(regex.asString()).matcher(object.element).matches());
+        });
+        tagProcessor.registerRegexParam("regex_matches", RegexCache::get);
+        tagProcessor.registerFutureTagDeprecation("regex_matches", "matches");
 
         // <--[tag]
         // @attribute <ElementTag.regex[<regex>].group[<group>]>
@@ -983,7 +998,7 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String regex = attribute.getParam();
-            Matcher m = Pattern.compile(regex).matcher(object.element);
+            Matcher m = RegexCache.get(regex).matcher(object.element);
             if (!m.matches()) {
                 return null;
             }
@@ -997,6 +1012,7 @@ public class ElementTag implements ObjectTag {
             attribute.fulfill(1);
             return new ElementTag(m.group(group));
         });
+        tagProcessor.registerRegexParam("regex", RegexCache::get);
 
         // <--[tag]
         // @attribute <ElementTag.is_in[<list>]>
@@ -1258,15 +1274,24 @@ public class ElementTag implements ObjectTag {
                 }
             }
             if (replace.startsWith("regex:")) {
-                return new ElementTag(object.element.replaceAll(replace.substring("regex:".length()), replacement));
+                return new ElementTag(RegexCache.get(replace.substring("regex:".length())).matcher(object.element).replaceAll(replacement));
             }
             if (replace.startsWith("firstregex:")) {
-                return new ElementTag(object.element.replaceFirst(replace.substring("firstregex:".length()), replacement));
+                return new ElementTag(RegexCache.get(replace.substring("firstregex:".length())).matcher(object.element).replaceFirst(replacement));
             }
             else {
-                return new ElementTag(object.element.replaceAll("(?i)" + Pattern.quote(replace), Matcher.quoteReplacement(replacement)));
+                return new ElementTag(RegexCache.get(Pattern.quote(replace), Pattern.CASE_INSENSITIVE).matcher(object.element).replaceAll(Matcher.quoteReplacement(replacement)));
             }
         });
+        tagProcessor.registerRegexParam("replace_text", (param) -> {
+            if (param.startsWith("regex:")) {
+                return RegexCache.get(param.substring("regex:".length()));
+            }
+            if (param.startsWith("firstregex:")) {
+                return RegexCache.get(param.substring("firstregex:".length()));
+            }
+            return RegexCache.get(Pattern.quote(param), Pattern.CASE_INSENSITIVE);
+        });
         tagProcessor.registerFutureTagDeprecation("replace_text", "replace");
 
         // <--[tag]
@@ -1548,15 +1573,10 @@ public class ElementTag implements ObjectTag {
         // -->
         tagProcessor.registerTag(ListTag.class, "split", (attribute, object) -> { // non-static due to hacked sub-tag
             String split_string = (attribute.hasParam() ? attribute.getParam() : " ");
-            if (CoreUtilities.toLowerCase(split_string).startsWith("regex:")) {
-                split_string = split_string.split(":", 2)[1];
-            }
-            else {
-                split_string = "(?i)" + Pattern.quote(split_string);
-            }
-            if (split_string.isEmpty()) {
+            if (CoreUtilities.toLowerCase(split_string).equals("regex:")) {
                 attribute.echoError("Cannot split over empty value. Did you mean to use 'to_list'?");
             }
+            Pattern splitPattern = splitPattern(split_string);
             String[] split;
 
             // <--[tag]
@@ -1571,13 +1591,14 @@ public class ElementTag implements ObjectTag {
             if (attribute.startsWith("limit", 2)) {
                 int limit = (attribute.hasContext(2) ? attribute.getIntContext(2) : 1);
                 attribute.fulfill(1);
-                split = object.element.split(split_string, limit);
+                split = splitPattern.split(object.element, limit);
             }
             else {
-                split = object.element.split(split_string);
+                split = splitPattern.split(object.element);
             }
             return new ListTag(Arrays.asList(split));
         });
+        tagProcessor.registerRegexParam("split", ElementTag::splitPattern);
 
         // <--[tag]
         // @attribute <ElementTag.pad_left[<#>]>
@@ -17,12 +17,18 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.tags.core.EscapeTagBase;
+import com.denizenscript.denizencore.utilities.text.ObjectTextReader;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class ListTag implements List<String>, ObjectTag {
@@ -239,6 +245,10 @@ public class ListTag implements List<String>, ObjectTag {
 
     @Override
     public int indexOf(Object obj) {
+        NumberRangeList range = getLazyRange();
+        if (range != null) {
+            return range.indexOfText(obj instanceof String ? (String) obj : obj instanceof ElementTag ? ((ElementTag) obj).asString() : null);
+        }
         int size = size();
         if (obj == null) {
             for (int i = 0; i < size; i++) {
@@ -266,6 +276,10 @@ public class ListTag implements List<String>, ObjectTag {
 
     @Override
     public int lastIndexOf(Object obj) {
+        NumberRangeList range = getLazyRange();
+        if (range != null) {
+            return indexOf(obj);
+        }
         int size = size() - 1;
         if (obj == null) {
             for (int i = size; i >= 0; i--) {
@@ -327,9 +341,23 @@ public class ListTag implements List<String>, ObjectTag {
 
     @Override
     public String get(int index) {
+        NumberRangeList range = getLazyRange();
+        if (range != null) {
+            return String.valueOf(range.numberAt(index));
+        }
         return String.valueOf(objectForms.get(index));
     }
 
+    /**
+     * Returns the backing range if this list is an unmodified lazy number range (see 'util.list_numbers'), or null if it's a normal list.
+     */
+    public NumberRangeList getLazyRange() {
+        if (objectForms instanceof NumberRangeList && !((NumberRangeList) objectForms).materialized) {
+            return (NumberRangeList) objectForms;
+        }
+        return null;
+    }
+
     @Override
     public String set(int index, String value) {
         return String.valueOf(setObject(index, new ElementTag(value)));
@@ -402,6 +430,13 @@ public class ListTag implements List<String>, ObjectTag {
 
     @Override
     public ListTag duplicate() {
+        NumberRangeList range = getLazyRange();
+        if (range != null) {
+            return new ListTag(range.duplicateRange());
+        }
+        if (objectForms instanceof PersistentObjectList) {
+            return new ListTag(((PersistentObjectList) objectForms).duplicate());
+        }
         ListTag outList = new ListTag(size());
         for (ObjectTag obj : objectForms) {
             outList.addObject(obj == null ? null : obj.duplicate());
@@ -414,7 +449,7 @@ public class ListTag implements List<String>, ObjectTag {
     //////////
 
     public ListTag(Collection<? extends ObjectTag> objectTagList) {
-        objectForms = new ArrayList<>(objectTagList);
+        objectForms = new PersistentObjectList(objectTagList);
     }
 
     public ListTag(ObjectTag... objects) {
@@ -422,11 +457,25 @@ public class ListTag implements List<String>, ObjectTag {
     }
 
     public ListTag(int capacity) {
-        objectForms = new ArrayList<>(capacity);
+        objectForms = new PersistentObjectList(capacity);
+    }
+
+    /**
+     * Constructs a list backed directly by a lazy number range, which is only materialized if the list is modified.
+     */
+    public ListTag(NumberRangeList range) {
+        objectForms = range;
+    }
+
+    /**
+     * Constructs a list backed directly by the given persistent list (not a copy of it).
+     */
+    public ListTag(PersistentObjectList list) {
+        objectForms = list;
     }
 
     public ListTag() {
-        objectForms = new ArrayList<>();
+        objectForms = new PersistentObjectList();
     }
 
     public ListTag(String items) {
@@ -436,17 +485,18 @@ public class ListTag implements List<String>, ObjectTag {
     public boolean wasLegacy = false;
 
     public ListTag(String items, TagContext context) {
-        objectForms = new ArrayList<>();
+        objectForms = new PersistentObjectList();
         if (items != null && items.length() > 0) {
             if (!items.contains("|")) {
                 addObject(ObjectFetcher.pickObjectFor(items, context));
             }
             else if (items.endsWith("|")) {
+                ObjectTextReader reader = new ObjectTextReader(items);
                 int pipe = items.indexOf('|');
                 int lastPipe = 0;
                 while (pipe != -1) {
-                    String value = unescapeEntry(items.substring(lastPipe, pipe));
-                    ObjectTag object = ObjectFetcher.pickObjectFor(value, context);
+                    String value = reader.unescapeListEntry(lastPipe, pipe);
+                    ObjectTag object = ObjectFetcher.pickStoredObjectFor(value, context);
                     addObject(object);
                     lastPipe = pipe + 1;
                     pipe = items.indexOf('|', lastPipe);
@@ -485,18 +535,23 @@ public class ListTag implements List<String>, ObjectTag {
     }
 
     public ListTag(ListTag input) {
-        objectForms = new ArrayList<>(input.objectForms);
+        if (input.objectForms instanceof PersistentObjectList) {
+            objectForms = (PersistentObjectList) input.objectForms.clone();
+        }
+        else {
+            objectForms = new PersistentObjectList(input.objectForms);
+        }
     }
 
     public ListTag(List<String> items, boolean isPlainText) {
-        objectForms = new ArrayList<>(items.size());
+        objectForms = new PersistentObjectList();
         for (String str : items) {
             objectForms.add(new ElementTag(str, isPlainText));
         }
     }
 
     public ListTag(List<String> items) {
-        objectForms = new ArrayList<>(items.size());
+        objectForms = new PersistentObjectList();
         for (String str : items) {
             objectForms.add(new ElementTag(str));
         }
@@ -504,7 +559,7 @@ public class ListTag implements List<String>, ObjectTag {
 
     // A Set<Object> of items
     public ListTag(Set<?> items) {
-        objectForms = new ArrayList<>(items.size());
+        objectForms = new PersistentObjectList();
         for (Object o : items) {
             if (o instanceof ObjectTag) {
                 objectForms.add((ObjectTag) o);
@@ -516,7 +571,7 @@ public class ListTag implements List<String>, ObjectTag {
     }
 
     public ListTag(Stream<String> items) {
-        objectForms = new ArrayList<>();
+        objectForms = new PersistentObjectList();
         items.forEach(s -> objectForms.add(new ElementTag(s)));
     }
 
@@ -1439,7 +1494,7 @@ public class ListTag implements List<String>, ObjectTag {
 
             if (replace.startsWith("regex:")) {
                 String regex = replace.substring("regex:".length());
-                Pattern tempPat = Pattern.compile(regex);
+                Pattern tempPat = RegexCache.get(regex);
                 for (int i = 0; i < object.size(); i++) {
                     if (tempPat.matcher(object.get(i)).matches()) {
                         if (replacement != null) {
@@ -1466,6 +1521,9 @@ public class ListTag implements List<String>, ObjectTag {
 
             return list;
         });
+        tagProcessor.registerRegexParam("replace", (param) -> {
+            return param.startsWith("regex:") ? RegexCache.get(param.substring("regex:".length())) : null;
+        });
 
         // <--[tag]
         // @attribute <ListTag.reverse>
@@ -1899,6 +1957,7 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("Tag processing failed: " + ex.getMessage());
                 return null;
             }
+            Attribute readAttribute = null;
 
             // <--[tag]
             // @attribute <ListTag.lowest[(<tag>)].count[<#>]>
@@ -1926,7 +1985,8 @@ public class ListTag implements List<String>, ObjectTag {
                 for (int i = 0; i < object.size(); i++) {
                     ObjectTag obj = object.getObject(i);
                     if (tag != null) {
-                        obj = CoreUtilities.autoAttribTyped(obj, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
+                        readAttribute = Attribute.copyInto(readAttribute, subAttribute, attribute.getScriptEntry(), attribute.context);
+                        obj = CoreUtilities.autoAttribTyped(obj, readAttribute);
                     }
                     String str = obj.toString();
                     if (ArgumentHelper.matchesDouble(str)) {
@@ -1957,7 +2017,8 @@ public class ListTag implements List<String>, ObjectTag {
             for (ObjectTag obj : object.objectForms) {
                 ObjectTag actualObj = obj;
                 if (tag != null) {
-                    obj = CoreUtilities.autoAttribTyped(obj, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
+                    readAttribute = Attribute.copyInto(readAttribute, subAttribute, attribute.getScriptEntry(), attribute.context);
+                    obj = CoreUtilities.autoAttribTyped(obj, readAttribute);
                 }
                 if (obj == null) {
                     continue;
@@ -2000,6 +2061,7 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("Tag processing failed: " + ex.getMessage());
                 return null;
             }
+            Attribute readAttribute = null;
 
             // <--[tag]
             // @attribute <ListTag.highest[(<tag>)].count[<#>]>
@@ -2027,7 +2089,8 @@ public class ListTag implements List<String>, ObjectTag {
                 for (int i = 0; i < object.size(); i++) {
                     ObjectTag obj = object.getObject(i);
                     if (tag != null) {
-                        obj = CoreUtilities.autoAttribTyped(obj, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
+                        readAttribute = Attribute.copyInto(readAttribute, subAttribute, attribute.getScriptEntry(), attribute.context);
+                        obj = CoreUtilities.autoAttribTyped(obj, readAttribute);
                     }
                     String str = obj.toString();
                     if (ArgumentHelper.matchesDouble(str)) {
@@ -2058,7 +2121,8 @@ public class ListTag implements List<String>, ObjectTag {
             for (ObjectTag obj : object.objectForms) {
                 ObjectTag actualObj = obj;
                 if (tag != null) {
-                    obj = CoreUtilities.autoAttribTyped(obj, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
+                    readAttribute = Attribute.copyInto(readAttribute, subAttribute, attribute.getScriptEntry(), attribute.context);
+                    obj = CoreUtilities.autoAttribTyped(obj, readAttribute);
                 }
                 String str = obj.toString();
                 if (ArgumentHelper.matchesDouble(str)) {
@@ -2140,8 +2204,6 @@ public class ListTag implements List<String>, ObjectTag {
             if (!attribute.hasParam()) {
                 return null;
             }
-            ListTag newlist = new ListTag(object);
-            final NaturalOrderComparator comparator = new NaturalOrderComparator();
             final String tag = attribute.getRawParam();
             Attribute subAttribute;
             try {
@@ -2151,18 +2213,13 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("Tag processing failed: " + ex.getMessage());
                 return null;
             }
-            try {
-                newlist.objectForms.sort((o1, o2) -> {
-                    ObjectTag or1 = CoreUtilities.autoAttribTyped(o1, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
-                    ObjectTag or2 = CoreUtilities.autoAttribTyped(o2, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
-                    return comparator.compare(or1, or2);
-                });
-                return new ListTag(newlist.objectForms);
-            }
-            catch (Exception ex) {
-                Debug.echoError(ex);
+            ObjectTag[] keys = readSubTagForAll(object.objectForms, subAttribute, attribute);
+            SortEntry[] entries = new SortEntry[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                entries[i] = new SortEntry(object.objectForms.get(i), keys[i] == null ? null : keys[i].toString(), 0);
             }
-            return newlist;
+            final NaturalOrderComparator comparator = new NaturalOrderComparator();
+            return sortEntries(object, entries, (e1, e2) -> comparator.compare(e1.key, e2.key), attribute);
         });
 
         // <--[tag]
@@ -2178,7 +2235,6 @@ public class ListTag implements List<String>, ObjectTag {
             if (!attribute.hasParam()) {
                 return null;
             }
-            ListTag newlist = new ListTag(object);
             final String tag = attribute.getRawParam();
             Attribute subAttribute;
             try {
@@ -2188,35 +2244,19 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("Tag processing failed: " + ex.getMessage());
                 return null;
             }
-            try {
-                newlist.objectForms.sort((o1, o2) -> {
-                    ObjectTag or1 = CoreUtilities.autoAttribTyped(o1, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
-                    ObjectTag or2 = CoreUtilities.autoAttribTyped(o2, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
-                    try {
-                        double r1 = Double.parseDouble(or1.toString());
-                        double r2 = Double.parseDouble(or2.toString());
-                        double value = r1 - r2;
-                        if (value == 0) {
-                            return 0;
-                        }
-                        else if (value > 0) {
-                            return 1;
-                        }
-                        else {
-                            return -1;
-                        }
-                    }
-                    catch (NumberFormatException ex) {
-                        attribute.echoError("Invalid non-numerical input to sort_by_number tag: " + or1 + ", " + or2.toString());
-                        return 0;
-                    }
-                });
-                return new ListTag(newlist.objectForms);
-            }
-            catch (Exception ex) {
-                Debug.echoError(ex);
+            ObjectTag[] keys = readSubTagForAll(object.objectForms, subAttribute, attribute);
+            SortEntry[] entries = new SortEntry[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                double number = Double.NaN;
+                try {
+                    number = Double.parseDouble(String.valueOf(keys[i]));
+                }
+                catch (NumberFormatException ex) {
+                    attribute.echoError("Invalid non-numerical input to sort_by_number tag: " + keys[i]);
+                }
+                entries[i] = new SortEntry(object.objectForms.get(i), null, number);
             }
-            return newlist;
+            return sortEntries(object, entries, (e1, e2) -> e1.number == e2.number ? 0 : Double.compare(e1.number, e2.number), attribute);
         });
 
         // <--[tag]
@@ -2319,8 +2359,9 @@ public class ListTag implements List<String>, ObjectTag {
             }
             ListTag newlist = new ListTag();
             try {
+                Attribute tempAttrib = null;
                 for (ObjectTag obj : object.objectForms) {
-                    Attribute tempAttrib = new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context);
+                    tempAttrib = Attribute.copyInto(tempAttrib, subAttribute, attribute.getScriptEntry(), attribute.context);
                     tempAttrib.setHadAlternative(true);
                     ObjectTag objs = CoreUtilities.autoAttribTyped(obj, tempAttrib);
                     if ((objs == null) ? defaultValue : CoreUtilities.equalsIgnoreCase(objs.toString(), "true")) {
@@ -2377,8 +2418,9 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             try {
+                Attribute tempAttrib = null;
                 for (ObjectTag obj : object.objectForms) {
-                    Attribute tempAttrib = new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context);
+                    tempAttrib = Attribute.copyInto(tempAttrib, subAttribute, attribute.getScriptEntry(), attribute.context);
                     tempAttrib.setHadAlternative(attribute.hasAlternative() || fallback);
                     ObjectTag objs = CoreUtilities.autoAttribTyped(obj, tempAttrib);
                     if (objs == null) {
@@ -2411,12 +2453,11 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag newlist = new ListTag();
-            Attribute.OverridingDefinitionProvider provider = new Attribute.OverridingDefinitionProvider(attribute.context.definitionProvider);
             try {
-                for (ObjectTag obj : object.objectForms) {
-                    provider.altDefs.putObject("filter_value", obj);
-                    if (CoreUtilities.equalsIgnoreCase(attribute.parseDynamicParam(provider).toString(), "true")) {
-                        newlist.addObject(obj);
+                ObjectTag[] results = attribute.parseDynamicParamForAll(object.objectForms, "filter_value");
+                for (int i = 0; i < results.length; i++) {
+                    if (CoreUtilities.equalsIgnoreCase(String.valueOf(results[i]), "true")) {
+                        newlist.addObject(object.objectForms.get(i));
                     }
                 }
             }
@@ -2444,12 +2485,8 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag newlist = new ListTag();
-            Attribute.OverridingDefinitionProvider provider = new Attribute.OverridingDefinitionProvider(attribute.context.definitionProvider);
             try {
-                for (ObjectTag obj : object.objectForms) {
-                    provider.altDefs.putObject("parse_value", obj);
-                    newlist.addObject(attribute.parseDynamicParam(provider));
-                }
+                newlist.objectForms.addAll(Arrays.asList(attribute.parseDynamicParamForAll(object.objectForms, "parse_value")));
             }
             catch (Exception ex) {
                 Debug.echoError(ex);
@@ -2576,6 +2613,9 @@ public class ListTag implements List<String>, ObjectTag {
         // Returns whether the list contains a given element, case-sensitive.
         // -->
         tagProcessor.registerStaticTag(ElementTag.class, ElementTag.class, "contains_case_sensitive", (attribute, object, input) -> {
+            if (object.getLazyRange() != null) {
+                return new ElementTag(object.indexOf(input.asString()) != -1);
+            }
             boolean state = false;
             for (String element : object) {
                 if (element.equals(input.asString())) {
@@ -2593,6 +2633,9 @@ public class ListTag implements List<String>, ObjectTag {
         // Returns whether the list contains the given element.
         // -->
         tagProcessor.registerStaticTag(ElementTag.class, ElementTag.class, "contains_single", (attribute, object, needed) -> {
+            if (object.getLazyRange() != null) {
+                return new ElementTag(object.indexOf(needed.asString()) != -1);
+            }
             String compare = needed.asLowerString();
             for (String element : object) {
                 if (compare.equals(CoreUtilities.toLowerCase(element))) {
@@ -2610,6 +2653,14 @@ public class ListTag implements List<String>, ObjectTag {
         // See also <@link tag ListTag.contains_single> for safer single-value checks.
         // -->
         tagProcessor.registerStaticTag(ElementTag.class, ListTag.class, "contains", (attribute, object, needed) -> {
+            if (object.getLazyRange() != null) {
+                for (String check : needed) {
+                    if (object.indexOf(check) == -1) {
+                        return new ElementTag(false);
+                    }
+                }
+                return new ElementTag(!needed.isEmpty());
+            }
             int gotten = 0;
             for (String check : needed) {
                 for (String element : object) {
@@ -2682,6 +2733,107 @@ public class ListTag implements List<String>, ObjectTag {
         });
     }
 
+    /**
+     * A list entry decorated with its precomputed sort key, for sort tags that sort by a sub-tag.
+     */
+    public static class SortEntry {
+
+        public final ObjectTag value;
+
+        public final String key;
+
+        public final double number;
+
+        public SortEntry(ObjectTag value, String key, double number) {
+            this.value = value;
+            this.key = key;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Stable-sorts the decorated entries and returns a new list of the original values in sorted order.
+     * If the sort fails (eg the comparator isn't consistent for mixed input), the error is reported and an unsorted copy of 'original' is returned.
+     */
+    public static ListTag sortEntries(ListTag original, SortEntry[] entries, Comparator<SortEntry> comparator, Attribute attribute) {
+        try {
+            if (entries.length >= CoreConfiguration.parallelTagProcessingMinimum && CoreConfiguration.parallelTagProcessing) {
+                Arrays.parallelSort(entries, comparator);
+            }
+            else {
+                Arrays.sort(entries, comparator);
+            }
+        }
+        catch (Exception ex) {
+            attribute.echoError(ex);
+            return new ListTag(original);
+        }
+        ListTag result = new ListTag(entries.length);
+        for (SortEntry entry : entries) {
+            result.objectForms.add(entry.value);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the sub-tag 'subAttribute' from every object in the list exactly once, returning the results in list order (null for any failed read).
+     * When parallel tag processing is enabled, the list is large enough, and the sub-tag is a chain of static tags for every entry's type, the reads happen in parallel.
+     * As with 'Attribute.parseDynamicParamForAll', workers never write global debug state: 'Debug.currentContext' is held at this context for the duration,
+     * and errors are queued on the worker context and shown afterward on the calling thread.
+     */
+    public static ObjectTag[] readSubTagForAll(List<ObjectTag> objects, Attribute subAttribute, Attribute attribute) {
+        int size = objects.size();
+        ObjectTag[] inputs = new ObjectTag[size];
+        boolean parallel = CoreConfiguration.parallelTagProcessing && size >= CoreConfiguration.parallelTagProcessingMinimum && !attribute.context.debug && !CoreConfiguration.debugOverride
+                && !CoreConfiguration.tagTimeoutUnsafe && !ForkJoinTask.inForkJoinPool();
+        Class<?> lastType = null;
+        for (int i = 0; i < size; i++) {
+            ObjectTag input = objects.get(i);
+            if (input == null) {
+                continue;
+            }
+            input = CoreUtilities.fixType(input, attribute.context);
+            inputs[i] = input;
+            if (parallel && input != null && input.getClass() != lastType) {
+                lastType = input.getClass();
+                parallel = ObjectTagProcessor.isStaticChain(input, subAttribute.attributes, 0);
+            }
+        }
+        ObjectTag[] results = new ObjectTag[size];
+        ScriptEntry entry = attribute.getScriptEntry();
+        if (parallel) {
+            ConcurrentLinkedQueue<Runnable> errors = new ConcurrentLinkedQueue<>();
+            TagContext workerContext = attribute.context.clone();
+            workerContext.deferredErrors = errors;
+            IntConsumer reader = (i) -> {
+                if (inputs[i] != null) {
+                    results[i] = CoreUtilities.autoAttrib(inputs[i], new Attribute(subAttribute, entry, workerContext));
+                }
+            };
+            TagContext lastContext = Debug.currentContext;
+            Debug.currentContext = attribute.context;
+            try {
+                TagManager.getParallelPool().submit(() -> IntStream.range(0, size).parallel().forEach(reader)).join();
+            }
+            finally {
+                Debug.currentContext = lastContext;
+            }
+            for (Runnable error : errors) {
+                error.run();
+            }
+        }
+        else {
+            Attribute readAttribute = null;
+            for (int i = 0; i < size; i++) {
+                if (inputs[i] != null) {
+                    readAttribute = Attribute.copyInto(readAttribute, subAttribute, entry, attribute.context);
+                    results[i] = CoreUtilities.autoAttrib(inputs[i], readAttribute);
+                }
+            }
+        }
+        return results;
+    }
+
     public boolean containsCaseInsensitive(String val) {
         val = CoreUtilities.toLowerCase(val);
         for (String str : this) {
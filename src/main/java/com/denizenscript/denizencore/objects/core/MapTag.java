@@ -9,6 +9,7 @@ import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.tags.TagRunnable;
 import com.denizenscript.denizencore.utilities.*;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.ObjectTextReader;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 import org.json.JSONObject;
 
@@ -57,12 +58,34 @@ public class MapTag implements ObjectTag {
         return value;
     }
 
+    /**
+     * Returns true if 'valueOf' would certainly return null for the text (not empty, legacy, bracketed, or key=value format), checked without parsing.
+     */
+    public static boolean fastReject(String string) {
+        int start = string.startsWith("map@") ? "map@".length() : 0;
+        if (string.length() == start || string.endsWith("|")) {
+            return false;
+        }
+        if (string.charAt(start) == '[' && string.endsWith("]")) {
+            return false;
+        }
+        return string.indexOf('=', start) == -1;
+    }
+
     @Fetchable("map")
     public static MapTag valueOf(String string, TagContext context) {
         return valueOf(string, context, true);
     }
 
     public static MapTag valueOf(String string, TagContext context, boolean processValues) {
+        return valueOf(string, context, processValues, false);
+    }
+
+    /**
+     * Parses a MapTag from text. If 'processValues' is false, all values are kept as plain ElementTags.
+     * If 'lazyNested' is true, values that are themselves maps ("map@[...]") become MapTags whose content is only parsed when each is first used.
+     */
+    public static MapTag valueOf(String string, TagContext context, boolean processValues, boolean lazyNested) {
         if (string == null) {
             return null;
         }
@@ -74,6 +97,7 @@ public class MapTag implements ObjectTag {
             return result;
         }
         if (string.endsWith("|")) {
+            ObjectTextReader reader = new ObjectTextReader(string);
             int pipe = string.indexOf('|');
             int lastPipe = 0;
             while (pipe != -1) {
@@ -81,9 +105,8 @@ public class MapTag implements ObjectTag {
                 if (slash == -1 || slash > pipe) {
                     return null;
                 }
-                String key = string.substring(lastPipe, slash);
-                String value = string.substring(slash + 1, pipe);
-                result.putObject(unescapeLegacyEntry(key), ObjectFetcher.pickObjectFor(unescapeLegacyEntry(value), context));
+                String key = reader.unescapeLegacyEntry(lastPipe, slash);
+                result.putObject(key, ObjectFetcher.pickStoredObjectFor(reader.unescapeLegacyEntry(slash + 1, pipe), context));
                 lastPipe = pipe + 1;
                 pipe = string.indexOf('|', lastPipe);
             }
@@ -95,27 +118,72 @@ public class MapTag implements ObjectTag {
             hasBrackets = true;
         }
         if (hasBrackets) {
-            if (string.equals("[]")) {
-                return result;
-            }
-            List<String> properties = ObjectFetcher.separateProperties(string);
-            for (int i = 1; i < properties.size(); i++) {
-                List<String> data = CoreUtilities.split(properties.get(i), '=', 2);
-                if (data.size() != 2) {
-                    if (context == null || context.showErrors()) {
-                        Debug.echoError("Invalid map key=value pair string '" + properties.get(i) + "' for map input '" + string + "'!");
-                    }
-                    return null;
-                }
-                String rawVal = ObjectFetcher.unescapeProperty(data.get(1));
-                ObjectTag val = processValues ? ObjectFetcher.pickObjectFor(rawVal, context) : new ElementTag(rawVal);
-                result.putObject(ObjectFetcher.unescapeProperty(data.get(0)), val);
+            PersistentObjectMap content = new PersistentObjectMap();
+            if (!parseProperties(string, 1, context, processValues, lazyNested, content)) {
+                return null;
             }
-            return result;
+            return new MapTag(content);
         }
         return null;
     }
 
+    /**
+     * Parses the "key=value;...]" content of a map's text, starting at index 'start' (just after the opening bracket), into the output map.
+     * Returns false (after showing an error, if the context allows) if the input is invalid.
+     */
+    public static boolean parseProperties(String string, int start, TagContext context, boolean processValues, boolean lazyNested, PersistentObjectMap output) {
+        if (start == string.length() - 1) {
+            return true;
+        }
+        ObjectTextReader reader = new ObjectTextReader(string, start, string.length());
+        while (reader.nextProperty()) {
+            if (reader.separator == -1) {
+                if (context == null || context.showErrors()) {
+                    Debug.echoError("Invalid map key=value pair string '" + reader.slice(reader.sectionStart, reader.sectionEnd) + "' for map input '" + string + "'!");
+                }
+                return false;
+            }
+            String rawVal = reader.unescapeProperty(reader.separator + 1, reader.sectionEnd);
+            ObjectTag val;
+            if (!processValues) {
+                val = new ElementTag(rawVal);
+            }
+            else if (lazyNested && rawVal.startsWith("map@[") && rawVal.endsWith("]") && isValidPropertyBlock(rawVal, "map@[".length())) {
+                val = lazyMapFor(rawVal, context);
+            }
+            else {
+                val = ObjectFetcher.pickStoredObjectFor(rawVal, context);
+            }
+            output.put(reader.unescapeProperty(reader.sectionStart, reader.separator), val);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if 'parseProperties' would succeed for the text, without parsing anything.
+     */
+    public static boolean isValidPropertyBlock(String string, int start) {
+        if (start == string.length() - 1) {
+            return true;
+        }
+        ObjectTextReader reader = new ObjectTextReader(string, start, string.length());
+        while (reader.nextProperty()) {
+            if (reader.separator == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a MapTag for valid "map@[...]" text whose content is only parsed when the map is first used.
+     */
+    public static MapTag lazyMapFor(String text, TagContext context) {
+        PersistentObjectMap content = new PersistentObjectMap();
+        content.pendingFill = (output) -> parseProperties(text, "map@[".length(), context, true, true, output);
+        return new MapTag(content);
+    }
+
     public static MapTag getMapFor(ObjectTag inp, TagContext context) {
         return inp instanceof MapTag ? (MapTag) inp : valueOf(inp.toString(), context);
     }
@@ -128,18 +196,31 @@ public class MapTag implements ObjectTag {
         return valueOf(string, CoreUtilities.noDebugContext) != null;
     }
 
+    /**
+     * The backing map, normally a PersistentObjectMap. Don't use its Java 21 'reversed' or 'sequenced...' views (see RedirectedLinkedHashMap).
+     */
     public LinkedHashMap<StringHolder, ObjectTag> map;
 
     public MapTag() {
-        this.map = new LinkedHashMap<>();
+        this.map = new PersistentObjectMap();
     }
 
     public MapTag(Map<StringHolder, ObjectTag> map) {
-        this.map = new LinkedHashMap<>(map);
+        this.map = new PersistentObjectMap(map);
+    }
+
+    /**
+     * Constructs a map backed directly by the given persistent map (not a copy of it).
+     */
+    public MapTag(PersistentObjectMap map) {
+        this.map = map;
     }
 
     @Override
     public MapTag duplicate() {
+        if (map instanceof PersistentObjectMap) {
+            return new MapTag(((PersistentObjectMap) map).duplicate());
+        }
         MapTag newMap = new MapTag();
         for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
             newMap.map.put(entry.getKey(), entry.getValue().duplicate());
@@ -276,7 +357,7 @@ public class MapTag implements ObjectTag {
     }
 
     public ObjectTag getObject(String key) {
-        return map.get(new StringHolder(key));
+        return map.get(PersistentObjectMap.lookupKey(map, key));
     }
 
     public void putDeepObject(String key, ObjectTag value) {
@@ -302,7 +383,10 @@ public class MapTag implements ObjectTag {
 
     public void putObject(String key, ObjectTag value) {
         if (value == null) {
-            map.remove(new StringHolder(key));
+            map.remove(PersistentObjectMap.lookupKey(map, key));
+        }
+        else if (map instanceof PersistentObjectMap) {
+            ((PersistentObjectMap) map).put(key, value);
         }
         else {
             map.put(new StringHolder(key), value);
@@ -401,15 +485,19 @@ public class MapTag implements ObjectTag {
                 return null;
             }
             try {
-                entryList.sort((e1, e2) -> {
-                    ObjectTag o1 = e1.getValue();
-                    ObjectTag o2 = e2.getValue();
-                    if (tag != null) {
-                        o1 = CoreUtilities.autoAttribTyped(o1, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
-                        o2 = CoreUtilities.autoAttribTyped(o2, new Attribute(subAttribute, attribute.getScriptEntry(), attribute.context));
+                if (tag == null) {
+                    entryList.sort((e1, e2) -> comparator.compare(e1.getValue(), e2.getValue()));
+                }
+                else {
+                    // Read the sort key of each value once, rather than twice per comparison.
+                    IdentityHashMap<Map.Entry<StringHolder, ObjectTag>, ObjectTag> sortKeys = new IdentityHashMap<>(entryList.size());
+                    Attribute readAttribute = null;
+                    for (Map.Entry<StringHolder, ObjectTag> entry : entryList) {
+                        readAttribute = Attribute.copyInto(readAttribute, subAttribute, attribute.getScriptEntry(), attribute.context);
+                        sortKeys.put(entry, CoreUtilities.autoAttribTyped(entry.getValue(), readAttribute));
                     }
-                    return comparator.compare(o1, o2);
-                });
+                    entryList.sort((e1, e2) -> comparator.compare(sortKeys.get(e1), sortKeys.get(e2)));
+                }
             }
             catch (Exception ex) {
                 Debug.echoError(ex);
@@ -602,10 +690,9 @@ public class MapTag implements ObjectTag {
         tagProcessor.registerStaticTag(MapTag.class, ListTag.class, "get_subset", (attribute, object, keys) -> {
             MapTag output = new MapTag();
             for (String key : keys) {
-                StringHolder keyHolder = new StringHolder(key);
-                ObjectTag value = object.map.get(keyHolder);
+                ObjectTag value = object.getObject(key);
                 if (value != null) {
-                    output.map.put(keyHolder, value);
+                    output.putObject(key, value);
                 }
             }
             return output;
@@ -640,7 +727,7 @@ public class MapTag implements ObjectTag {
                 attribute.echoError("The tag 'MapTag.default.as' must have an input value for 'as'.");
                 return null;
             }
-            if (object.map.containsKey(new StringHolder(key))) {
+            if (object.map.containsKey(PersistentObjectMap.lookupKey(object.map, key))) {
                 return object;
             }
             ObjectTag value = attribute.getParamObject();
@@ -731,7 +818,7 @@ public class MapTag implements ObjectTag {
         tagProcessor.registerStaticTag(MapTag.class, "invert", (attribute, object) -> {
             MapTag result = new MapTag();
             for (Map.Entry<StringHolder, ObjectTag> entry : object.map.entrySet()) {
-                result.map.put(new StringHolder(entry.getValue().identify()), new ElementTag(entry.getKey().str));
+                result.putObject(entry.getValue().identify(), new ElementTag(entry.getKey().str));
             }
             return result;
         });
@@ -791,7 +878,7 @@ public class MapTag implements ObjectTag {
         tagProcessor.registerStaticTag(MapTag.class, ListTag.class, "exclude", (attribute, object, list) -> {
             MapTag result = object.duplicate();
             for (String key : list) {
-                result.map.remove(new StringHolder(key));
+                result.putObject(key, null);
             }
             return result;
         });
@@ -9,11 +9,11 @@ import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.ObjectTagProcessor;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.DateTimeFormatCache;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
@@ -51,6 +51,13 @@ public class TimeTag implements ObjectTag, Adjustable, FlaggableObject {
         return new TimeTag(DenizenCore.currentTimeMillis, ZoneId.systemDefault());
     }
 
+    /**
+     * Returns true if 'valueOf' would certainly return null for the text (there is no date part), checked without parsing.
+     */
+    public static boolean fastReject(String string) {
+        return string.indexOf('/') == -1;
+    }
+
     @Fetchable("time")
     public static TimeTag valueOf(String string, TagContext context) {
         if (string == null) {
@@ -416,7 +423,7 @@ public class TimeTag implements ObjectTag, Adjustable, FlaggableObject {
         // -->
         tagProcessor.registerStaticTag(TimeTag.class, ElementTag.class, "to_zone", (attribute, object, zone) -> {
             try {
-                return new TimeTag(object.instant.withZoneSameInstant(ZoneId.of(zone.asString())));
+                return new TimeTag(object.instant.withZoneSameInstant(DateTimeFormatCache.getZone(zone.asString())));
             }
             catch (DateTimeException ex) {
                 attribute.echoError("Timezone '" + zone + "' is invalid or doesn't exist.");
@@ -727,8 +734,7 @@ public class TimeTag implements ObjectTag, Adjustable, FlaggableObject {
         if (formatText == null) {
             formatText = "yyyy/MM/dd HH:mm:ss";
         }
-        DateTimeFormatter format = DateTimeFormatter.ofPattern(formatText);
-        return instant.format(format);
+        return DateTimeFormatCache.format(instant, formatText);
     }
 
     public long millis() {
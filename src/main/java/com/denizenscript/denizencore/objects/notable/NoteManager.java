@@ -175,7 +175,7 @@ public class NoteManager {
             }
         }
         else {
-            CoreUtilities.journallingFileSave(saveFilePath, saveConfig.saveToString(false));
+            CoreUtilities.tryJournallingTextSave(saveFilePath, CoreConfiguration.saveCompression, writer -> saveConfig.saveToWriter(writer, false));
         }
     }
 
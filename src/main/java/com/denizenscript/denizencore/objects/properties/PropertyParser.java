@@ -24,8 +24,25 @@ public class PropertyParser {
         Property get(ObjectTag obj);
     }
 
+    public static class TagPropertyGetter {
+
+        public final PropertyGetter getter;
+
+        public final String propertyName;
+
+        public TagPropertyGetter(PropertyGetter getter, String propertyName) {
+            this.getter = getter;
+            this.propertyName = propertyName;
+        }
+    }
+
     public static class ClassPropertiesInfo {
 
+        public static final PropertyGetter[] NO_GETTERS = new PropertyGetter[0];
+
+        /** Shared empty info for classes with no registered properties. Never modified. */
+        public static final ClassPropertiesInfo NONE = new ClassPropertiesInfo();
+
         public List<PropertyGetter> allProperties = new ArrayList<>();
 
         public List<PropertyGetter> propertiesWithMechs = new ArrayList<>();
@@ -35,6 +52,32 @@ public class PropertyParser {
         public Map<String, PropertyGetter> propertiesByMechanism = new HashMap<>();
 
         public Map<String, String> propertyNamesByTag = new HashMap<>();
+
+        /** Tag name to getter and property name, for direct dispatch of auto-property tags. */
+        public Map<String, TagPropertyGetter> tagGetters = new HashMap<>();
+
+        /** Array snapshots of 'allProperties' and 'propertiesWithMechs', refreshed on each registration, for allocation-free iteration. */
+        public PropertyGetter[] allPropertiesArray = NO_GETTERS, propertiesWithMechsArray = NO_GETTERS;
+
+        public void refreshArrays() {
+            allPropertiesArray = allProperties.toArray(NO_GETTERS);
+            propertiesWithMechsArray = propertiesWithMechs.toArray(NO_GETTERS);
+        }
+    }
+
+    /**
+     * Per-class cache of property info, so lookups by an object's class skip the registration map. Resolves to 'ClassPropertiesInfo.NONE' for classes without properties.
+     */
+    public static final ClassValue<ClassPropertiesInfo> propertiesForClass = new ClassValue<ClassPropertiesInfo>() {
+        @Override
+        protected ClassPropertiesInfo computeValue(Class<?> type) {
+            ClassPropertiesInfo info = propertiesByClass.get(type);
+            return info == null ? ClassPropertiesInfo.NONE : info;
+        }
+    };
+
+    public static ClassPropertiesInfo getPropertiesInfo(ObjectTag object) {
+        return propertiesForClass.get(object.getClass());
     }
 
     public static Set<String> allMechanismsEver = new HashSet<>();
@@ -144,7 +187,9 @@ public class PropertyParser {
         if (propInfo == null) {
             propInfo = new ClassPropertiesInfo();
             propertiesByClass.put(object, propInfo);
+            propertiesForClass.remove(object);
         }
+        ObjectTagProcessor.tagRegistrationVersion++;
         propInfo.allProperties.add(getter);
         // TODO: warn/remove legacy name-based tag/mechanism registrations
         if (tags != null) {
@@ -152,6 +197,7 @@ public class PropertyParser {
             for (String tag : tags) {
                 propInfo.propertiesByTag.put(tag, getter);
                 propInfo.propertyNamesByTag.put(tag, propName);
+                propInfo.tagGetters.put(tag, new TagPropertyGetter(getter, propName));
             }
         }
         if (mechs != null) {
@@ -161,6 +207,7 @@ public class PropertyParser {
             }
         }
         propInfo.propertiesWithMechs.add(getter);
+        propInfo.refreshArrays();
     }
 
     public static String[] getStringField(Class property, String fieldName) {
@@ -247,12 +294,12 @@ public class PropertyParser {
     }
 
     public static String getPropertiesDebuggable(ObjectTag object) {
-        ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-        if (properties == null) {
+        PropertyGetter[] getters = getPropertiesInfo(object).propertiesWithMechsArray;
+        if (getters.length == 0) {
             return "";
         }
-        StringBuilder prop_string = new StringBuilder(properties.propertiesWithMechs.size() * 10);
-        for (PropertyGetter getter : properties.propertiesWithMechs) {
+        StringBuilder prop_string = new StringBuilder(getters.length * 10);
+        for (PropertyGetter getter : getters) {
             Property property = getter.get(object);
             if (property != null) {
                 String description = property.getPropertyString();
@@ -270,12 +317,12 @@ public class PropertyParser {
     }
 
     public static String getPropertiesString(ObjectTag object) {
-        ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-        if (properties == null) {
+        PropertyGetter[] getters = getPropertiesInfo(object).propertiesWithMechsArray;
+        if (getters.length == 0) {
             return "";
         }
-        StringBuilder prop_string = new StringBuilder(properties.propertiesWithMechs.size() * 10);
-        for (PropertyGetter getter : properties.propertiesWithMechs) {
+        StringBuilder prop_string = new StringBuilder(getters.length * 10);
+        for (PropertyGetter getter : getters) {
             Property property = getter.get(object);
             if (property != null) {
                 String description = property.getPropertyString();
@@ -294,11 +341,7 @@ public class PropertyParser {
 
     public static MapTag getPropertiesMap(ObjectTag object) {
         MapTag map = new MapTag();
-        ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-        if (properties == null) {
-            return map;
-        }
-        for (PropertyGetter getter : properties.propertiesWithMechs) {
+        for (PropertyGetter getter : getPropertiesInfo(object).propertiesWithMechsArray) {
             Property property = getter.get(object);
             if (property != null) {
                 String description = property.getPropertyString();
@@ -313,17 +356,17 @@ public class PropertyParser {
     public static List<Property> empty = new ArrayList<>();
 
     public static List<Property> getProperties(ObjectTag object, String attribLow) {
-        ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-        if (properties == null) {
+        ClassPropertiesInfo properties = getPropertiesInfo(object);
+        if (properties == ClassPropertiesInfo.NONE) {
             return empty;
         }
-        PropertyGetter getter = properties.propertiesByTag.get(attribLow);
-        if (getter != null) {
-            Property prop = getter.get(object);
+        TagPropertyGetter tagGetter = properties.tagGetters.get(attribLow);
+        if (tagGetter != null) {
+            Property prop = tagGetter.getter.get(object);
             if (prop == null) {
                 return empty;
             }
-            return Collections.singletonList(getter.get(object));
+            return Collections.singletonList(prop);
         }
         else {
             return getProperties(object);
@@ -331,12 +374,12 @@ public class PropertyParser {
     }
 
     public static List<Property> getProperties(ObjectTag object) {
-        ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-        if (properties == null) {
+        PropertyGetter[] getters = getPropertiesInfo(object).allPropertiesArray;
+        if (getters.length == 0) {
             return empty;
         }
-        List<Property> props = new ArrayList<>(properties.allProperties.size());
-        for (PropertyGetter getter : properties.allProperties) {
+        List<Property> props = new ArrayList<>(getters.length);
+        for (PropertyGetter getter : getters) {
             Property prop = getter.get(object);
             if (prop != null) {
                 props.add(prop);
@@ -445,11 +488,7 @@ public class PropertyParser {
                 return null;
             }
             String propertyName = attribute.getParam();
-            ClassPropertiesInfo properties = propertiesByClass.get(object.getClass());
-            if (properties == null) {
-                return new ElementTag(false);
-            }
-            PropertyGetter getter = properties.propertiesByMechanism.get(CoreUtilities.toLowerCase(propertyName));
+            PropertyGetter getter = getPropertiesInfo(object).propertiesByMechanism.get(CoreUtilities.toLowerCase(propertyName));
             if (getter == null) {
                 return new ElementTag(false);
             }
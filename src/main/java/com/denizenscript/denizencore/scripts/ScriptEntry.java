@@ -66,6 +66,9 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
 
         public List<Argument> preprocArgs = null;
 
+        /** The 'preprocArgs' classified at build time, in order, or null if there are none. */
+        public MetaArgument[] metaArgs = null;
+
         public Object specialProcessedData = null;
 
         public String originalLine = null;
@@ -89,6 +92,41 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         public int defObjects = 8;
     }
 
+    /**
+     * A meta-argument handled by the CommandExecutor before the command itself runs: a global 'if:' or 'save:' with its pre-parsed value, or an implementation-specific argument.
+     */
+    public static class MetaArgument {
+
+        public static final int TYPE_CUSTOM = 0, TYPE_IF = 1, TYPE_SAVE = 2;
+
+        public final int type;
+
+        public final Argument argument;
+
+        /** For 'if:' and 'save:', the pre-parsed value. */
+        public final ParseableTag value;
+
+        /** For an 'if:' with a static value, the result. */
+        public final Boolean staticIf;
+
+        public MetaArgument(int type, Argument argument, ParseableTag value) {
+            this.type = type;
+            this.argument = argument;
+            this.value = value;
+            if (type == TYPE_IF && value.rawObject != null) {
+                staticIf = isIfTrue(value.rawObject.toString());
+            }
+            else {
+                staticIf = null;
+            }
+        }
+
+        public static boolean isIfTrue(String value) {
+            String lowered = CoreUtilities.toLowerCase(value);
+            return lowered.equals("true") || lowered.equals("!false");
+        }
+    }
+
     public static class BooleanArg {
 
         public static BooleanArg TRUE = new BooleanArg(true, 0);
@@ -332,6 +370,20 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
         }
     }
 
+    /**
+     * Resets the per-run state of a copy that has already finished executing, so it can run again as if freshly cloned.
+     */
+    public void resetForReuse(ScriptEntryData data) {
+        objects.clear();
+        this.data = null;
+        owner = null;
+        queue = null;
+        forceInstant = false;
+        entryData = data.clone();
+        entryData.scriptEntry = this;
+        updateContext();
+    }
+
     public List<Object> getInsideList() {
         if (internal.yamlSubcontent instanceof List) {
             return (List<Object>) internal.yamlSubcontent;
@@ -462,6 +514,19 @@ public class ScriptEntry implements Cloneable, Debuggable, Iterable<Argument> {
             }
             nested_depth = 0;
             TagContext refContext = DenizenCore.implementation.getTagContext(this);
+            if (!internal.preprocArgs.isEmpty()) {
+                internal.metaArgs = new MetaArgument[internal.preprocArgs.size()];
+                for (int i = 0; i < internal.metaArgs.length; i++) {
+                    Argument argObj = internal.preprocArgs.get(i);
+                    if (DenizenCore.implementation.needsHandleArgPrefix(argObj.prefix)) {
+                        internal.metaArgs[i] = new MetaArgument(MetaArgument.TYPE_CUSTOM, argObj, null);
+                    }
+                    else {
+                        int type = argObj.matchesPrefix("if") ? MetaArgument.TYPE_IF : MetaArgument.TYPE_SAVE;
+                        internal.metaArgs[i] = new MetaArgument(type, argObj, TagManager.parseTextToTag(argObj.getValue(), refContext));
+                    }
+                }
+            }
             ArrayList<InternalArgument> allArgs = new ArrayList<>(internal.pre_tagged_args.size());
             for (int i = 0; i < internal.pre_tagged_args.size(); i++) {
                 String arg = internal.pre_tagged_args.get(i);
@@ -3,8 +3,8 @@ package com.denizenscript.denizencore.scripts.commands;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsRuntimeException;
 import com.denizenscript.denizencore.objects.Argument;
+import com.denizenscript.denizencore.tags.ParseableTag;
 import com.denizenscript.denizencore.tags.TagContext;
-import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
@@ -84,26 +84,44 @@ public class CommandExecutor {
         try {
             TagContext context = scriptEntry.getContext();
             Debug.currentContext = context;
-            for (Argument arg : scriptEntry.internal.preprocArgs) {
-                if (DenizenCore.implementation.handleCustomArgs(scriptEntry, arg)) {
-                    // Do nothing
-                }
-                else if (arg.matchesPrefix("if")) {
-                    String tagged = CoreUtilities.toLowerCase(TagManager.tag(arg.getValue(), context));
-                    boolean shouldRun = tagged.equals("true") || tagged.equals("!false");
-                    if (scriptEntry.dbCallShouldDebug()) {
-                        Debug.echoDebug(scriptEntry, shouldRun ? "'if:' arg passed, command will run." : "'if:' arg returned false, command won't run.");
+            ScriptEntry.MetaArgument[] metaArgs = scriptEntry.internal.metaArgs;
+            if (metaArgs != null) {
+                for (ScriptEntry.MetaArgument metaArg : metaArgs) {
+                    int type = metaArg.type;
+                    ParseableTag value = metaArg.value;
+                    if (type == ScriptEntry.MetaArgument.TYPE_CUSTOM) {
+                        Argument arg = metaArg.argument;
+                        if (DenizenCore.implementation.handleCustomArgs(scriptEntry, arg)) {
+                            continue;
+                        }
+                        // Not handled by the implementation after all, so treat as a normal meta-argument if it is one
+                        if (arg.matchesPrefix("if")) {
+                            type = ScriptEntry.MetaArgument.TYPE_IF;
+                        }
+                        else if (arg.matchesPrefix("save")) {
+                            type = ScriptEntry.MetaArgument.TYPE_SAVE;
+                        }
+                        else {
+                            continue;
+                        }
+                        value = TagManager.parseTextToTag(arg.getValue(), context);
                     }
-                    if (!shouldRun) {
-                        scriptEntry.setFinished(true);
-                        currentQueue = null;
-                        return true;
+                    if (type == ScriptEntry.MetaArgument.TYPE_IF) {
+                        boolean shouldRun = metaArg.staticIf != null ? metaArg.staticIf : ScriptEntry.MetaArgument.isIfTrue(value.parse(context).toString());
+                        if (scriptEntry.dbCallShouldDebug()) {
+                            Debug.echoDebug(scriptEntry, shouldRun ? "'if:' arg passed, command will run." : "'if:' arg returned false, command won't run.");
+                        }
+                        if (!shouldRun) {
+                            scriptEntry.setFinished(true);
+                            currentQueue = null;
+                            return true;
+                        }
                     }
-                }
-                else if (arg.matchesPrefix("save")) {
-                    saveName = TagManager.tag(arg.getValue(), context);
-                    if (scriptEntry.dbCallShouldDebug()) {
-                        Debug.echoDebug(scriptEntry, "...remembering this script entry as '" + saveName + "'!");
+                    else {
+                        saveName = value.parse(context).toString();
+                        if (scriptEntry.dbCallShouldDebug()) {
+                            Debug.echoDebug(scriptEntry, "...remembering this script entry as '" + saveName + "'!");
+                        }
                     }
                 }
             }
@@ -72,21 +72,28 @@ public class Comparable {
         }
     }
 
+    /**
+     * Returns the outcome of a numeric operator, given the result of a 'compareTo' between the two numbers.
+     */
+    public static boolean compareNumbers(int compared, Operator operator) {
+        switch (operator) {
+            case LESS:
+                return compared < 0;
+            case MORE:
+                return compared > 0;
+            case OR_LESS:
+                return compared <= 0;
+            case OR_MORE:
+                return compared >= 0;
+        }
+        return false;
+    }
+
     private static boolean compareDecimal(ObjectTag objA, ObjectTag objB, Operator operator, TagContext context) {
         try {
             BigDecimal bigDecA = objA.asElement().asBigDecimal();
             BigDecimal bigDecB = objB.asElement().asBigDecimal();
-            int compared = bigDecA.compareTo(bigDecB);
-            switch (operator) {
-                case LESS:
-                    return compared < 0;
-                case MORE:
-                    return compared > 0;
-                case OR_LESS:
-                    return compared <= 0;
-                case OR_MORE:
-                    return compared >= 0;
-            }
+            return compareNumbers(bigDecA.compareTo(bigDecB), operator);
         }
         catch (NumberFormatException ex) {
             if (context.showErrors()) {
@@ -191,7 +191,7 @@ public class IfCommand extends BracedCommand {
         if (CoreConfiguration.debugVerbose) {
             Debug.log("comparisons=" + comparisons + ", sc:" + subcommand + ", ec:" + elsecommand);
         }
-        boolean first_set = new ArgComparer().compare(comparisons, scriptEntry);
+        boolean first_set = IfCondition.getFor(scriptEntry, comparisons).check(scriptEntry);
         if (first_set && subcommand != null && subcommand.size() > 0) {
             executeCommandList(subcommand, scriptEntry);
             return;
@@ -234,7 +234,10 @@ public class IfCommand extends BracedCommand {
                             Debug.echoError("Else command has argument '" + key.get(1) + "' which is unknown.");
                             continue;
                         }
-                        if (!new ArgComparer().compare(key.subList(2, key.size()), braceSet.entry)) {
+                        List<String> elseComparisons = key.subList(2, key.size());
+                        // Old-style braces all share the 'if' entry, so can't store a condition on it
+                        IfCondition condition = braceSet.entry.internal == scriptEntry.internal ? IfCondition.compile(elseComparisons, braceSet.entry.context) : IfCondition.getFor(braceSet.entry, elseComparisons);
+                        if (!condition.check(braceSet.entry)) {
                             continue;
                         }
                         Debug.echoDebug(scriptEntry, "<Y>If/else-if chain entry #" + (z + 1) + " passed, running block.");
@@ -271,6 +274,9 @@ public class IfCommand extends BracedCommand {
         }
     }
 
+    /**
+     * The original per-execution comparison parser. Commands now use the pre-compiled 'IfCondition' instead.
+     */
     public static class ArgComparer {
 
         List argstemp = null;
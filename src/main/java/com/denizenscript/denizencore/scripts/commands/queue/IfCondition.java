@@ -0,0 +1,468 @@
+package com.denizenscript.denizencore.scripts.commands.queue;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.Comparable;
+import com.denizenscript.denizencore.tags.ParseableTag;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable boolean expression tree for the comparisons of 'if', 'else if', 'while', and 'waituntil'.
+ * Compiled once per script entry from the raw argument tokens, following the same grouping and '&&'/'||' rules as 'IfCommand.ArgComparer'.
+ * Operators are resolved at compile time, values are pre-parsed, and fully static values are folded where that can't change the outcome.
+ */
+public abstract class IfCondition {
+
+    /**
+     * Returns the compiled condition for the entry's comparison arguments, compiling and storing it on the entry's shared internal data the first time.
+     */
+    public static IfCondition getFor(ScriptEntry entry, List<?> args) {
+        Object data = entry.internal.specialProcessedData;
+        if (data instanceof IfCondition) {
+            return (IfCondition) data;
+        }
+        IfCondition condition = compile(args, entry.context);
+        entry.internal.specialProcessedData = condition;
+        return condition;
+    }
+
+    /**
+     * Compiles a condition from argument tokens, given as Strings or ScriptEntry.InternalArguments.
+     */
+    public static IfCondition compile(List<?> args, TagContext context) {
+        List<Object> items = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            items.add(arg instanceof ScriptEntry.InternalArgument ? ((ScriptEntry.InternalArgument) arg).fullOriginalRawValue : arg.toString());
+        }
+        return compileItems(items, context);
+    }
+
+    public static final IfCondition TRUE = new Constant(true), FALSE = new Constant(false);
+
+    /**
+     * Evaluates the condition, using the entry for error output and tag context.
+     */
+    public final boolean check(ScriptEntry entry) {
+        return test(entry, isConstant() ? null : DenizenCore.implementation.getTagContext(entry));
+    }
+
+    public abstract boolean test(ScriptEntry entry, TagContext context);
+
+    public boolean isConstant() {
+        return false;
+    }
+
+    public static class Constant extends IfCondition {
+
+        public final boolean value;
+
+        public Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return value;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+    }
+
+    /**
+     * A syntax error that can only be reported when the condition runs.
+     */
+    public static class Invalid extends IfCondition {
+
+        public final String message;
+
+        public Invalid(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            Debug.echoError(entry, message);
+            return false;
+        }
+    }
+
+    public static class Not extends IfCondition {
+
+        public final IfCondition condition;
+
+        public Not(IfCondition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return !condition.test(entry, context);
+        }
+    }
+
+    public static class And extends IfCondition {
+
+        public final IfCondition left, right;
+
+        public And(IfCondition left, IfCondition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return left.test(entry, context) && right.test(entry, context);
+        }
+    }
+
+    public static class Or extends IfCondition {
+
+        public final IfCondition left, right;
+
+        public Or(IfCondition left, IfCondition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            return left.test(entry, context) || right.test(entry, context);
+        }
+    }
+
+    /**
+     * A single value that must be 'true' or 'false'.
+     */
+    public static class BooleanValue extends IfCondition {
+
+        public final ParseableTag value;
+
+        public final boolean negative;
+
+        public BooleanValue(ParseableTag value, boolean negative) {
+            this.value = value;
+            this.negative = negative;
+        }
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            String rawValue = value.parse(context).toString();
+            if (CoreUtilities.equalsIgnoreCase(rawValue, "true")) {
+                return !negative;
+            }
+            else if (CoreUtilities.equalsIgnoreCase(rawValue, "false")) {
+                return negative;
+            }
+            Debug.echoError(entry, "Invalid if comparison boolean '" + rawValue + "' - defaulting to false.");
+            return false;
+        }
+    }
+
+    /**
+     * One side of an operator comparison: either a pre-parsed value, or a parenthesized group that becomes 'true' or 'false'.
+     */
+    public static class Operand {
+
+        public final ParseableTag value;
+
+        public final IfCondition group;
+
+        public Operand(ParseableTag value, IfCondition group) {
+            this.value = value;
+            this.group = group;
+        }
+
+        public final ObjectTag get(ScriptEntry entry, TagContext context) {
+            if (group != null) {
+                return new ElementTag(group.test(entry, context));
+            }
+            return value.parse(context);
+        }
+
+        public final ObjectTag getStatic() {
+            return group == null ? value.rawObject : null;
+        }
+    }
+
+    public abstract static class Comparison extends IfCondition {
+
+        public final Operand first, second;
+
+        public final Comparable.Operator operator;
+
+        public final boolean negative;
+
+        public Comparison(Operand first, Operand second, Comparable.Operator operator, boolean negative) {
+            this.first = first;
+            this.second = second;
+            this.operator = operator;
+            this.negative = negative;
+        }
+
+        public abstract boolean compare(ObjectTag first, ObjectTag second, TagContext context);
+
+        @Override
+        public boolean test(ScriptEntry entry, TagContext context) {
+            try {
+                ObjectTag firstValue = first.get(entry, context);
+                ObjectTag secondValue = second.get(entry, context);
+                boolean outcome = compare(firstValue, secondValue, context);
+                if (entry.dbCallShouldDebug()) {
+                    Debug.echoDebug(entry, "Comparing if " + firstValue + (negative ? " not " : " ") + operator.name() + " " + secondValue + " ... " + outcome);
+                }
+                return outcome;
+            }
+            catch (Throwable ex) {
+                Debug.echoError(entry, "If command syntax invalid - possibly wrong number of arguments (check for stray spaces)? exception: " + ex.getClass().getName() + ": " + ex.getMessage());
+                if (CoreConfiguration.debugVerbose) {
+                    Debug.echoError(ex);
+                }
+                return false;
+            }
+        }
+    }
+
+    public static class EqualsComparison extends Comparison {
+
+        public EqualsComparison(Operand first, Operand second, boolean negative) {
+            super(first, second, Comparable.Operator.EQUALS, negative);
+        }
+
+        @Override
+        public boolean compare(ObjectTag first, ObjectTag second, TagContext context) {
+            return CoreUtilities.equalsIgnoreCase(first.toString(), second.toString()) != negative;
+        }
+    }
+
+    /**
+     * A numeric comparison ('<', '>=', ...), with a static right-hand number pre-parsed.
+     * Same as 'Comparable.compare', the 'not' flag does not apply to numeric operators.
+     */
+    public static class NumberComparison extends Comparison {
+
+        public final BigDecimal staticSecond;
+
+        public NumberComparison(Operand first, Operand second, Comparable.Operator operator, boolean negative, BigDecimal staticSecond) {
+            super(first, second, operator, negative);
+            this.staticSecond = staticSecond;
+        }
+
+        @Override
+        public boolean compare(ObjectTag first, ObjectTag second, TagContext context) {
+            try {
+                BigDecimal firstNumber = first.asElement().asBigDecimal();
+                BigDecimal secondNumber = staticSecond != null ? staticSecond : second.asElement().asBigDecimal();
+                return Comparable.compareNumbers(firstNumber.compareTo(secondNumber), operator);
+            }
+            catch (NumberFormatException ex) {
+                if (context.showErrors()) {
+                    Debug.echoError("Cannot compare as numbers '" + first + "' vs '" + second + "' - one or both values are not numerical. Returning false.");
+                }
+            }
+            return false;
+        }
+    }
+
+    public static class GeneralComparison extends Comparison {
+
+        public GeneralComparison(Operand first, Operand second, Comparable.Operator operator, boolean negative) {
+            super(first, second, operator, negative);
+        }
+
+        @Override
+        public boolean compare(ObjectTag first, ObjectTag second, TagContext context) {
+            return Comparable.compare(first, second, operator, negative, context);
+        }
+    }
+
+    /**
+     * A comparison of two static values, with the outcome decided at compile time. Still shows the usual debug line when ran.
+     */
+    public static class StaticComparison extends Comparison {
+
+        public final boolean outcome;
+
+        public StaticComparison(Comparison comparison, boolean outcome) {
+            super(comparison.first, comparison.second, comparison.operator, comparison.negative);
+            this.outcome = outcome;
+        }
+
+        @Override
+        public boolean compare(ObjectTag first, ObjectTag second, TagContext context) {
+            return outcome;
+        }
+    }
+
+    private static String textOf(Object item) {
+        return item instanceof String ? (String) item : "<UnTaggedComparison>";
+    }
+
+    private static IfCondition compileItems(List<Object> items, TagContext context) {
+        if (items.isEmpty()) {
+            return FALSE;
+        }
+        if (items.size() == 1) {
+            return compileBoolean(items.get(0), context);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            String text = textOf(items.get(i));
+            if (text.equals("(") || text.equals("!(")) {
+                List<Object> groupItems = new ArrayList<>(items.size());
+                int depth = 0;
+                int end = -1;
+                for (int x = i + 1; x < items.size(); x++) {
+                    String xText = textOf(items.get(x));
+                    if (xText.equals("(") || xText.equals("!(")) {
+                        depth++;
+                    }
+                    else if (xText.equals(")")) {
+                        if (depth-- == 0) {
+                            end = x;
+                            break;
+                        }
+                    }
+                    groupItems.add(items.get(x));
+                }
+                if (end == -1) {
+                    return FALSE;
+                }
+                IfCondition group = compileItems(groupItems, context);
+                if (text.startsWith("!")) {
+                    group = group.isConstant() ? (((Constant) group).value ? FALSE : TRUE) : new Not(group);
+                }
+                items.subList(i, end + 1).clear();
+                items.add(i, group);
+            }
+            else if (text.equals(")")) {
+                return FALSE;
+            }
+        }
+        if (items.size() == 1) {
+            return compileBoolean(items.get(0), context);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            String text = CoreUtilities.toLowerCase(textOf(items.get(i)));
+            boolean isOr = text.equals("||") || text.equals("or");
+            if (isOr || text.equals("&&") || text.equals("and")) {
+                IfCondition left = compileItems(new ArrayList<>(items.subList(0, i)), context);
+                IfCondition right = compileItems(new ArrayList<>(items.subList(i + 1, items.size())), context);
+                if (left.isConstant()) {
+                    return ((Constant) left).value == isOr ? left : right;
+                }
+                return isOr ? new Or(left, right) : new And(left, right);
+            }
+        }
+        if (items.size() == 2) {
+            if (CoreUtilities.toLowerCase(textOf(items.get(0))).equals("not")) {
+                IfCondition inner = compileBoolean(items.get(1), context);
+                return inner.isConstant() ? (((Constant) inner).value ? FALSE : TRUE) : new Not(inner);
+            }
+            return FALSE;
+        }
+        String operatorText;
+        boolean negative = false;
+        if (items.size() == 4 && CoreUtilities.toLowerCase(textOf(items.get(1))).equals("not")) {
+            operatorText = textOf(items.get(2));
+            negative = true;
+        }
+        else if (items.size() == 3) {
+            operatorText = textOf(items.get(1));
+            if (operatorText.startsWith("!")) {
+                operatorText = operatorText.substring(1);
+                negative = true;
+            }
+        }
+        else {
+            List<String> texts = new ArrayList<>(items.size());
+            for (Object item : items) {
+                texts.add(textOf(item));
+            }
+            return new Invalid("If command syntax invalid - too many arguments? Found " + items.size() + " args: " + texts);
+        }
+        Comparable.Operator operator = Comparable.getOperatorFor(operatorText);
+        if (operator == null) {
+            return new Invalid("If command syntax invalid - invalid operator '" + operatorText + "'");
+        }
+        Operand first = compileOperand(items.get(0), context);
+        Operand second = compileOperand(items.get(items.size() - 1), context);
+        ObjectTag staticFirst = first.getStatic(), staticSecond = second.getStatic();
+        Comparison comparison;
+        switch (operator) {
+            case EQUALS:
+                comparison = new EqualsComparison(first, second, negative);
+                break;
+            case OR_MORE:
+            case OR_LESS:
+            case MORE:
+            case LESS:
+                BigDecimal secondNumber = staticNumber(staticSecond);
+                comparison = new NumberComparison(first, second, operator, negative, secondNumber);
+                if (secondNumber == null || staticNumber(staticFirst) == null) {
+                    return comparison;
+                }
+                break;
+            default:
+                // List and matcher inputs may show errors, so are never folded
+                return new GeneralComparison(first, second, operator, negative);
+        }
+        if (staticFirst != null && staticSecond != null) {
+            return new StaticComparison(comparison, comparison.compare(staticFirst, staticSecond, context));
+        }
+        return comparison;
+    }
+
+    private static BigDecimal staticNumber(ObjectTag value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.asElement().asBigDecimal();
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static ParseableTag parseValue(String text, TagContext context) {
+        return TagManager.parseTextToTag(text.startsWith("!") ? text.substring(1) : text, context);
+    }
+
+    private static Operand compileOperand(Object item, TagContext context) {
+        if (item instanceof IfCondition) {
+            return new Operand(null, (IfCondition) item);
+        }
+        return new Operand(parseValue((String) item, context), null);
+    }
+
+    private static IfCondition compileBoolean(Object item, TagContext context) {
+        if (item instanceof IfCondition) {
+            return (IfCondition) item;
+        }
+        String text = (String) item;
+        boolean negative = text.startsWith("!");
+        ParseableTag value = parseValue(text, context);
+        if (value.rawObject != null) {
+            String rawValue = value.rawObject.toString();
+            if (CoreUtilities.equalsIgnoreCase(rawValue, "true")) {
+                return negative ? FALSE : TRUE;
+            }
+            else if (CoreUtilities.equalsIgnoreCase(rawValue, "false")) {
+                return negative ? TRUE : FALSE;
+            }
+        }
+        return new BooleanValue(value, negative);
+    }
+}
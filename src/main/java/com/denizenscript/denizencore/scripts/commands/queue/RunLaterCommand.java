@@ -2,6 +2,7 @@ package com.denizenscript.denizencore.scripts.commands.queue;
 
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
 import com.denizenscript.denizencore.objects.Argument;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.*;
@@ -10,6 +11,7 @@ import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.scripts.containers.core.TaskScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ScriptUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
@@ -17,10 +19,11 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 
 public class RunLaterCommand extends AbstractCommand {
@@ -196,6 +199,12 @@ public class RunLaterCommand extends AbstractCommand {
 
         public boolean cancelled = false;
 
+        /** The order this run was scheduled in, which also identifies it in the save file and journal. */
+        public long sequence;
+
+        /** True while this run is in 'pendingAdds' waiting to be saved. */
+        public boolean pendingAdd;
+
         public void load(YamlConfiguration config) {
             scriptName = config.getString("script_name");
             path = config.getString("path", null);
@@ -237,7 +246,7 @@ public class RunLaterCommand extends AbstractCommand {
                     load(savedData);
                     savedData = null;
                 }
-                if (id != null) {
+                if (id != null && trackedById.get(id) == this) {
                     trackedById.remove(id);
                 }
                 ScriptTag script = ScriptTag.valueOf(scriptName, entryData.getTagContext());
@@ -269,92 +278,290 @@ public class RunLaterCommand extends AbstractCommand {
         }
     }
 
+    /**
+     * Schedules a new future run, and records it to be saved.
+     */
     public static void addNewRunnable(FutureRunData runData) {
-        hasChanged = true;
-        long timeNow = System.currentTimeMillis();
-        if (runData.executeAt < timeNow + MS_PER_MINUTE * 2) {
-            nextMinuteFutureRuns.add(runData);
-        }
-        else if (runData.executeAt < timeNow + MS_PER_HOUR * 2) {
-            nextHourFutureRuns.add(runData);
-        }
-        else {
-            farFutureRuns.add(runData);
-        }
+        runData.sequence = nextSequence++;
+        schedule(runData);
+        recordAdded(runData);
+    }
+
+    /**
+     * Adds the run to the schedule (and to 'trackedById' if it has an ID). The run's 'sequence' must already be set.
+     */
+    public static void schedule(FutureRunData runData) {
+        futureRuns.add(runData);
         if (runData.id != null) {
             trackedById.put(runData.id, runData);
         }
     }
 
-    public static List<FutureRunData> nextMinuteFutureRuns = new ArrayList<>();
-
-    public static List<FutureRunData> nextHourFutureRuns = new ArrayList<>();
+    /**
+     * Cancels the future run with the given ID (lowercase). Returns false if there is no run with that ID.
+     */
+    public static boolean cancel(String id) {
+        FutureRunData runData = trackedById.remove(id);
+        if (runData == null) {
+            return false;
+        }
+        runData.cancelled = true;
+        futureRuns.remove(runData);
+        recordRemoved(runData);
+        return true;
+    }
 
-    public static List<FutureRunData> farFutureRuns = new ArrayList<>();
+    /**
+     * All scheduled runs, ordered by time (then by the order they were scheduled in).
+     */
+    public static TreeSet<FutureRunData> futureRuns = new TreeSet<>((a, b) -> {
+        int result = Long.compare(a.executeAt, b.executeAt);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    });
 
     public static HashMap<String, FutureRunData> trackedById = new HashMap<>();
 
-    public static long timeMinuteReorg = 0, timeHourReorg = 0, timeLastSave = 0;
+    /** The 'sequence' to give the next scheduled run. */
+    public static long nextSequence = 0;
+
+    public static long timeLastSave = 0;
 
     public static final long MS_PER_MINUTE = 60 * 1000, MS_PER_HOUR = 60 * MS_PER_MINUTE;
 
     public static boolean hasAny() {
-        return !nextMinuteFutureRuns.isEmpty() || !nextHourFutureRuns.isEmpty() || !farFutureRuns.isEmpty();
+        return !futureRuns.isEmpty();
     }
 
     public static String persistFilePath;
 
-    public static boolean isSaving = false;
+    /** Whether the background writer is busy. */
+    public static volatile boolean isSaving = false;
 
     public static boolean hasChanged = false;
 
+    /**
+     * Runs added since the last save, in order. Runs removed again before the save stay in the list, but have 'pendingAdd' cleared and are skipped.
+     * A save appends these (and 'pendingRemovals') to the journal file next to the main file, and the main file is only rewritten once the journal grows too large.
+     * The journal holds lines of '+' followed by the escaped YAML of a batch of added runs (keyed by 'run_' + sequence, like the main file), and '-' followed by the sequence of a removed run.
+     */
+    public static ArrayList<FutureRunData> pendingAdds = new ArrayList<>();
+
+    /** The number of runs in 'pendingAdds' that still have 'pendingAdd' set. */
+    public static int pendingAddCount = 0;
+
+    /** Journal lines of runs removed since the last save. */
+    public static StringBuilder pendingRemovals = new StringBuilder();
+
+    /** Set when the main file must be rewritten by the next save (after a failed write, or after loading a file without run sequences). */
+    public static volatile boolean needsFullSave = false;
+
+    /** The number of runs in the main file, and of add and remove records in the journal after it, used to decide when to rewrite the main file. */
+    public static long snapshotRecords, journalRecords;
+
+    /** The journal will never be merged into the main file while it has fewer than this many records, regardless of the ratio. */
+    public static long minimumCompactRecords = 1000;
+
+    /** The main file is rewritten once the journal has more records than this ratio of the number of runs in the main file. */
+    public static double journalCompactRatio = 0.5;
+
+    public static void recordAdded(FutureRunData runData) {
+        hasChanged = true;
+        runData.pendingAdd = true;
+        pendingAdds.add(runData);
+        pendingAddCount++;
+    }
+
+    public static void recordRemoved(FutureRunData runData) {
+        hasChanged = true;
+        if (runData.pendingAdd) {
+            runData.pendingAdd = false;
+            pendingAddCount--;
+        }
+        else {
+            pendingRemovals.append('-').append(runData.sequence).append('\n');
+            journalRecords++;
+        }
+    }
+
+    public static void clearPendingAdds() {
+        for (FutureRunData runData : pendingAdds) {
+            runData.pendingAdd = false;
+        }
+        pendingAdds.clear();
+        pendingAddCount = 0;
+    }
+
     public static void init(String path) {
-        nextMinuteFutureRuns.clear();
-        nextHourFutureRuns.clear();
-        farFutureRuns.clear();
+        waitForSaves();
+        futureRuns.clear();
         trackedById.clear();
+        clearPendingAdds();
+        pendingRemovals.setLength(0);
+        nextSequence = 0;
+        needsFullSave = false;
+        journalRecords = 0;
         persistFilePath = path;
         String stored = CoreUtilities.journallingLoadFile(path);
         if (stored != null) {
             load(YamlConfiguration.load(stored));
         }
+        snapshotRecords = futureRuns.size();
+        if (new File(path + ".journal").exists()) {
+            String records = CoreUtilities.journallingLoadFile(path + ".journal");
+            if (records != null) {
+                applyJournal(records);
+            }
+        }
+        hasChanged = false;
         timeLastSave = System.currentTimeMillis();
     }
 
+    public static class PendingWrite {
+
+        /** The full set of runs to write to the main file, or null if this write doesn't replace the main file. */
+        public YamlConfiguration snapshot;
+
+        /** If true, there are no runs left, so the main file and journal are deleted. */
+        public boolean delete;
+
+        /** Batches of added runs to append to the journal, if this is neither a snapshot nor a delete. */
+        public ArrayList<YamlConfiguration> added;
+
+        /** Journal lines of removed runs to append, after 'added'. */
+        public StringBuilder removed;
+    }
+
+    /** Writes waiting for the background writer, in order. Also used as the lock for 'isSaving'. */
+    public static final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    /**
+     * Saves changes since the last save. Normally only appends the changes to the journal, but rewrites the main file instead once the journal grows too large.
+     * The write is done by a background writer. If 'async' is false, waits until all saves are written.
+     */
     public static void saveToFile(boolean async) {
-        if (!hasChanged) {
-            return;
+        if (hasChanged || needsFullSave) {
+            hasChanged = false;
+            PendingWrite write = new PendingWrite();
+            if (!hasAny()) {
+                write.delete = true;
+            }
+            else if (needsFullSave || journalRecords + pendingAddCount > Math.max(minimumCompactRecords, (long) (snapshotRecords * journalCompactRatio))) {
+                needsFullSave = false;
+                write.snapshot = saveAll();
+            }
+            else {
+                write.added = new ArrayList<>();
+                if (pendingAddCount > 0) {
+                    YamlConfiguration batch = new YamlConfiguration();
+                    for (FutureRunData runData : pendingAdds) {
+                        if (runData.pendingAdd) {
+                            batch.set("run_" + runData.sequence, runData.save());
+                        }
+                    }
+                    write.added.add(batch);
+                }
+                write.removed = pendingRemovals;
+                journalRecords += pendingAddCount;
+            }
+            if (write.added == null) {
+                snapshotRecords = futureRuns.size();
+                journalRecords = 0;
+            }
+            clearPendingAdds();
+            pendingRemovals = new StringBuilder();
+            queueWrite(write);
         }
-        hasChanged = false;
-        final YamlConfiguration toSave = saveAll();
-        isSaving = true;
-        Runnable doSave = () -> {
+        if (!async) {
+            waitForSaves();
+        }
+    }
+
+    public static void queueWrite(PendingWrite write) {
+        synchronized (pendingWrites) {
+            if (write.added == null) {
+                pendingWrites.clear();
+            }
+            else {
+                // Note: each sequence is added at most once and removed after being added, so adds can safely be moved ahead of earlier removals.
+                PendingWrite last = pendingWrites.peekLast();
+                if (last != null && last.added != null) {
+                    last.added.addAll(write.added);
+                    last.removed.append(write.removed);
+                    return;
+                }
+            }
+            pendingWrites.add(write);
+            if (!isSaving) {
+                isSaving = true;
+                DenizenCore.runAsync(RunLaterCommand::runWriter);
+            }
+        }
+    }
+
+    /**
+     * Blocks until every save queued so far has been written.
+     */
+    public static void waitForSaves() {
+        synchronized (pendingWrites) {
+            while (isSaving) {
+                try {
+                    pendingWrites.wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public static void runWriter() {
+        while (true) {
+            PendingWrite write;
+            synchronized (pendingWrites) {
+                write = pendingWrites.poll();
+                if (write == null) {
+                    isSaving = false;
+                    pendingWrites.notifyAll();
+                    return;
+                }
+            }
             try {
-                if (toSave == null) {
-                    File fileObj = new File(persistFilePath);
-                    if (fileObj.exists()) {
-                        fileObj.delete();
+                String journalPath = persistFilePath + ".journal";
+                if (write.delete) {
+                    // The journal goes first, so that an interrupted delete leaves the main file on its own (an earlier consistent state), never a journal with no main file to apply to
+                    File journal = new File(journalPath);
+                    if (!journal.delete() && journal.exists()) {
+                        Debug.echoError("Failed to delete RunLater journal file '" + journalPath + "', keeping the main file.");
+                        needsFullSave = true;
+                        continue;
                     }
-                    fileObj = new File(persistFilePath + "~2");
-                    if (fileObj.exists()) {
-                        fileObj.delete();
+                    CoreUtilities.journallingDelete(persistFilePath);
+                }
+                else if (write.snapshot != null) {
+                    YamlConfiguration snapshot = write.snapshot;
+                    if (CoreUtilities.tryJournallingTextSave(persistFilePath, CoreConfiguration.saveCompression, writer -> snapshot.saveToWriter(writer, false))) {
+                        new File(journalPath).delete();
+                    }
+                    else {
+                        needsFullSave = true;
+                    }
+                }
+                else {
+                    StringBuilder records = new StringBuilder();
+                    for (YamlConfiguration batch : write.added) {
+                        records.append('+').append(SavableMapFlagTracker.escapeValue(batch.saveToString(false))).append('\n');
+                    }
+                    records.append(write.removed);
+                    if (records.length() > 0 && !CoreUtilities.appendToFile(journalPath, records.toString())) {
+                        needsFullSave = true;
                     }
-                    return;
                 }
-                CoreUtilities.journallingFileSave(persistFilePath, toSave.saveToString(false));
             }
             catch (Throwable ex) {
                 Debug.echoError(ex);
+                needsFullSave = true;
             }
-            finally {
-                isSaving = false;
-            }
-        };
-        if (async) {
-            DenizenCore.runAsync(doSave);
-        }
-        else {
-            doSave.run();
         }
     }
 
@@ -366,37 +573,14 @@ public class RunLaterCommand extends AbstractCommand {
             return;
         }
         long timeNow = System.currentTimeMillis();
-        for (int i = 0; i < nextMinuteFutureRuns.size(); i++) {
-            FutureRunData data = nextMinuteFutureRuns.get(i);
-            if (data.executeAt < timeNow) {
-                nextMinuteFutureRuns.remove(i--);
-                hasChanged = true;
-                data.run();
-            }
-        }
-        if (timeNow > timeMinuteReorg + MS_PER_MINUTE) {
-            timeMinuteReorg = timeNow;
-            if (timeNow > timeHourReorg + MS_PER_HOUR) {
-                timeHourReorg = timeNow;
-                for (int i = 0; i < farFutureRuns.size(); i++) {
-                    FutureRunData data = farFutureRuns.get(i);
-                    if (data.executeAt < timeNow + (2 * MS_PER_HOUR)) {
-                        nextHourFutureRuns.add(data);
-                        farFutureRuns.remove(i--);
-                    }
-                }
-            }
-            for (int i = 0; i < nextHourFutureRuns.size(); i++) {
-                FutureRunData data = nextHourFutureRuns.get(i);
-                if (data.executeAt < timeNow + (2 * MS_PER_MINUTE)) {
-                    nextMinuteFutureRuns.add(data);
-                    nextHourFutureRuns.remove(i--);
-                }
-            }
-            if (timeNow > timeLastSave + (30 * MS_PER_MINUTE)) {
-                timeLastSave = timeNow;
-                saveToFile(true);
-            }
+        while (!futureRuns.isEmpty() && futureRuns.first().executeAt < timeNow) {
+            FutureRunData data = futureRuns.pollFirst();
+            recordRemoved(data);
+            data.run();
+        }
+        if (timeNow > timeLastSave + MS_PER_MINUTE) {
+            timeLastSave = timeNow;
+            saveToFile(true);
         }
     }
 
@@ -405,25 +589,24 @@ public class RunLaterCommand extends AbstractCommand {
             return null;
         }
         YamlConfiguration out = new YamlConfiguration();
-        int id = 0;
-        for (FutureRunData runData : nextMinuteFutureRuns) {
-            if (!runData.cancelled) {
-                out.set("minute_" + (id++), runData.save());
-            }
-        }
-        for (FutureRunData runData : nextHourFutureRuns) {
+        for (FutureRunData runData : futureRuns) {
             if (!runData.cancelled) {
-                out.set("hour_" + (id++), runData.save());
-            }
-        }
-        for (FutureRunData runData : farFutureRuns) {
-            if (!runData.cancelled) {
-                out.set("future_" + (id++), runData.save());
+                out.set("run_" + runData.sequence, runData.save());
             }
         }
         return out;
     }
 
+    public static FutureRunData loadRun(YamlConfiguration config, long sequence) {
+        FutureRunData runData = new FutureRunData();
+        runData.savedData = config;
+        runData.executeAt = Long.parseLong(config.getString("execute_at"));
+        runData.id = config.getString("id");
+        runData.sequence = sequence;
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        return runData;
+    }
+
     public static void load(YamlConfiguration config) {
         if (config == null) {
             Debug.echoError("RunLater load failed due to an invalid YAML file!");
@@ -431,11 +614,61 @@ public class RunLaterCommand extends AbstractCommand {
         }
         for (StringHolder key : config.getKeys(false)) {
             YamlConfiguration subConfig = config.getConfigurationSection(key.str);
-            FutureRunData runData = new FutureRunData();
-            runData.savedData = subConfig;
-            runData.executeAt = Long.parseLong(subConfig.getString("execute_at"));
-            runData.id = subConfig.getString("id");
-            addNewRunnable(runData);
+            long sequence;
+            if (key.str.startsWith("run_")) {
+                sequence = Long.parseLong(key.str.substring("run_".length()));
+            }
+            else {
+                // Note: older files don't store sequences, and need to be rewritten with them before journal records can refer to their runs.
+                sequence = nextSequence;
+                needsFullSave = true;
+            }
+            schedule(loadRun(subConfig, sequence));
+        }
+    }
+
+    /**
+     * Replays journal records (see 'pendingAdds') on top of the loaded runs.
+     * Add records hold the full run, so records that were already merged into the main file (if a rewrite was interrupted before the journal was deleted) just replace the loaded run.
+     */
+    public static void applyJournal(String records) {
+        HashMap<Long, FutureRunData> bySequence = new HashMap<>(futureRuns.size());
+        for (FutureRunData runData : futureRuns) {
+            bySequence.put(runData.sequence, runData);
+        }
+        for (String line : CoreUtilities.split(records, '\n')) {
+            if (line.length() < 2) {
+                continue;
+            }
+            try {
+                if (line.charAt(0) == '+') {
+                    YamlConfiguration batch = YamlConfiguration.load(SavableMapFlagTracker.unescapeValue(line.substring(1)));
+                    for (StringHolder key : batch.getKeys(false)) {
+                        long sequence = Long.parseLong(key.str.substring("run_".length()));
+                        FutureRunData runData = loadRun(batch.getConfigurationSection(key.str), sequence);
+                        removeLoaded(bySequence.put(sequence, runData));
+                        schedule(runData);
+                        journalRecords++;
+                    }
+                }
+                else if (line.charAt(0) == '-') {
+                    removeLoaded(bySequence.remove(Long.parseLong(line.substring(1))));
+                    journalRecords++;
+                }
+            }
+            catch (Throwable ex) {
+                Debug.echoError("RunLater journal has an invalid record, skipping it");
+                Debug.echoError(ex);
+            }
+        }
+    }
+
+    private static void removeLoaded(FutureRunData runData) {
+        if (runData != null) {
+            futureRuns.remove(runData);
+            if (runData.id != null && trackedById.get(runData.id) == runData) {
+                trackedById.remove(runData.id);
+            }
         }
     }
 }
@@ -12,7 +12,6 @@ import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.scripts.commands.Holdable;
 import com.denizenscript.denizencore.scripts.queues.core.TimedQueue;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class WaitUntilCommand extends AbstractCommand implements Holdable {
@@ -59,7 +58,8 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
                                    @ArgUnparsed @ArgNoDebug @ArgRaw @ArgLinear @ArgName("if_comparisons") List<ScriptEntry.InternalArgument> comparisons,
                                    @ArgPrefixed @ArgName("rate") @ArgDefaultNull DurationTag rate,
                                    @ArgPrefixed @ArgName("max") @ArgDefaultNull DurationTag max) {
-        boolean run = new IfCommand.ArgComparer().compare(new ArrayList<>(comparisons), scriptEntry);
+        IfCondition condition = IfCondition.getFor(scriptEntry, comparisons);
+        boolean run = condition.check(scriptEntry);
         if (run) {
             Debug.echoDebug(scriptEntry, "WaitUntil first check already <A>true<W>, not waiting.");
             scriptEntry.setFinished(true);
@@ -90,7 +90,7 @@ public class WaitUntilCommand extends AbstractCommand implements Holdable {
                     scriptEntry.setFinished(true);
                     schedulable.cancel();
                 }
-                if (new IfCommand.ArgComparer().compare(new ArrayList<>(comparisons), scriptEntry)) {
+                if (condition.check(scriptEntry)) {
                     Debug.echoDebug(scriptEntry, "WaitUntil completed after <A>" + counter + "<W> re-checks.");
                     scriptEntry.setFinished(true);
                     schedulable.cancel();
@@ -168,7 +168,7 @@ public class WhileCommand extends BracedCommand {
                     data.instaTicks = 0;
                 }
                 data.LastChecked = CoreUtilities.monotonicMillis();
-                boolean run = new IfCommand.ArgComparer().compare(new ArrayList(data.value), scriptEntry);
+                boolean run = IfCondition.getFor(scriptEntry.getOwner(), data.value).check(scriptEntry);
                 if (run) {
                     if (scriptEntry.dbCallShouldDebug()) {
                         Debug.echoDebug(scriptEntry, Debug.DebugElement.Header, "While loop " + data.index);
@@ -197,7 +197,7 @@ public class WhileCommand extends BracedCommand {
         }
         else {
             List<String> comparisons = (List<String>) scriptEntry.getObject("comparisons");
-            boolean run = new IfCommand.ArgComparer().compare(comparisons, scriptEntry);
+            boolean run = IfCondition.getFor(scriptEntry, comparisons).check(scriptEntry);
             if (scriptEntry.dbCallShouldDebug()) {
                 Debug.report(scriptEntry, getName(), db("run_first_loop", run));
             }
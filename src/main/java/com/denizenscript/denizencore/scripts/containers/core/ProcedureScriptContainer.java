@@ -1,8 +1,20 @@
 package com.denizenscript.denizencore.scripts.containers.core;
 
 import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.ScriptEntrySet;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.scripts.queues.core.ProcedureQueue;
+import com.denizenscript.denizencore.tags.Attribute;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.util.*;
 
 public class ProcedureScriptContainer extends ScriptContainer {
 
@@ -43,6 +55,9 @@ public class ProcedureScriptContainer extends ScriptContainer {
     //     # Optionally specify definition names to use with the 'context' input of the proc tag.
     //     definitions: def|names|here
     //
+    //     # Optionally set to 'true' (or a maximum number of results to keep) to remember results per set of input values.
+    //     memoize: true
+    //
     //     script:
     //
     //     # Put any logic, then determine the result.
@@ -50,10 +65,152 @@ public class ProcedureScriptContainer extends ScriptContainer {
     //
     // </code>
     //
+    // The 'memoize' key is for procedures that are pure: that is, the determined value depends only on the context input.
+    // When enabled, a call with the same path and context values (compared by their identity text) as a recent call
+    // will return (a copy of) the remembered result without running the script again, so none of its debug output will show.
+    // Do not use it for procedures that read anything else, like the linked player, flags, or the current time.
+    // Results are forgotten when scripts are reloaded.
+    //
+    // Procedures always run instantly, in a queue named after the script. A 'speed' key on a procedure script is ignored.
+    //
     // -->
 
+    /**
+     * The maximum number of entry sets kept idle per path for reuse by 'runProcedure'.
+     */
+    public static int maxIdleEntrySets = 4;
+
+    /**
+     * The number of results to memoize, if the 'memoize' key is set.
+     */
+    public static int defaultMemoizeSize = 256;
+
+    public int memoizeSize = 0;
+
+    public Map<List<String>, ObjectTag> memoizedResults;
+
+    public List<String> definitionNames;
+
+    /**
+     * Per path, copies of the script entries that have finished a run and can be reset for another.
+     */
+    public final HashMap<String, ArrayDeque<ScriptEntrySet>> idleEntrySets = new HashMap<>();
+
     public ProcedureScriptContainer(YamlConfiguration configurationSection, String scriptContainerName) {
         super(configurationSection, scriptContainerName);
+        if (contains("definitions", String.class)) {
+            definitionNames = CoreUtilities.split(getString("definitions"), '|');
+            for (int i = 0; i < definitionNames.size(); i++) {
+                definitionNames.set(i, definitionNames.get(i).trim());
+            }
+        }
+        if (contains("memoize", String.class)) {
+            String memoize = getString("memoize");
+            if (CoreUtilities.equalsIgnoreCase(memoize, "true")) {
+                memoizeSize = defaultMemoizeSize;
+            }
+            else if (new ElementTag(memoize).isInt()) {
+                memoizeSize = Math.max(0, new ElementTag(memoize).asInt());
+            }
+            else if (!CoreUtilities.equalsIgnoreCase(memoize, "false")) {
+                Debug.echoError("Procedure script '" + getName() + "' has invalid 'memoize' value '" + memoize + "': must be 'true', 'false', or a number.");
+            }
+        }
+        if (memoizeSize > 0) {
+            int maxSize = memoizeSize;
+            memoizedResults = Collections.synchronizedMap(new LinkedHashMap<List<String>, ObjectTag>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, ObjectTag> eldest) {
+                    return size() > maxSize;
+                }
+            });
+        }
+    }
+
+    public ScriptEntrySet acquireEntrySet(String path) {
+        synchronized (idleEntrySets) {
+            ArrayDeque<ScriptEntrySet> idle = idleEntrySets.get(path);
+            if (idle != null && !idle.isEmpty()) {
+                return idle.pop();
+            }
+        }
+        ScriptEntrySet set = getSetFor(path);
+        return set == null ? null : set.duplicate();
+    }
+
+    public void releaseEntrySet(String path, ScriptEntrySet set) {
+        synchronized (idleEntrySets) {
+            ArrayDeque<ScriptEntrySet> idle = idleEntrySets.computeIfAbsent(path, k -> new ArrayDeque<>());
+            if (idle.size() < maxIdleEntrySets) {
+                idle.push(set);
+            }
+        }
+    }
+
+    /**
+     * Runs the procedure and returns the first determined value, or null if it did not determine anything.
+     * Runs in a lightweight ProcedureQueue on a reused copy of the script entries rather than a full new queue, and uses the memoized result when available.
+     * @param path the path within the container to run (or null for default).
+     * @param data the player/npc/other data to attach (or null for empty).
+     * @param definitions context values to add as definitions (or null for none).
+     * @param attribute the attribute to report errors to.
+     */
+    public ObjectTag runProcedure(String path, ScriptEntryData data, ListTag definitions, Attribute attribute) {
+        if (path == null) {
+            path = "script";
+        }
+        List<String> memoKey = null;
+        if (memoizedResults != null) {
+            memoKey = new ArrayList<>(definitions == null ? 1 : definitions.size() + 1);
+            memoKey.add(CoreUtilities.toLowerCase(path));
+            if (definitions != null) {
+                for (ObjectTag definition : definitions.objectForms) {
+                    memoKey.add(definition == null ? null : definition.identify());
+                }
+            }
+            ObjectTag result = memoizedResults.get(memoKey);
+            if (result != null) {
+                return result.duplicate();
+            }
+        }
+        ScriptEntrySet set = acquireEntrySet(path);
+        if (set == null) {
+            attribute.echoError("Procedure queue start failed.");
+            return null;
+        }
+        if (data == null) {
+            data = DenizenCore.implementation.getEmptyScriptEntryData();
+        }
+        for (ScriptEntry entry : set.entries) {
+            entry.resetForReuse(data);
+        }
+        ProcedureQueue queue = new ProcedureQueue(getName());
+        queue.addEntries(set.entries);
+        if (definitions != null) {
+            boolean debug = shouldDebug();
+            int x = 1;
+            for (ObjectTag definition : definitions.objectForms) {
+                String name = definitionNames != null && definitionNames.size() >= x ? definitionNames.get(x - 1) : String.valueOf(x);
+                queue.addDefinition(name, definition);
+                if (debug) {
+                    Debug.echoDebug(this, "Adding definition '" + name + "' as " + definition);
+                }
+                x++;
+            }
+            queue.addDefinition("raw_context", definitions);
+        }
+        queue.start(true);
+        if (queue.isStopped && queue.replacementQueue == null) {
+            releaseEntrySet(path, set);
+        }
+        if (queue.determinations == null || queue.determinations.size() == 0) {
+            return null;
+        }
+        ObjectTag result = queue.determinations.getObject(0);
+        if (memoKey != null && result != null) {
+            memoizedResults.put(memoKey, result.duplicate());
+        }
+        return result;
     }
 
     @Override
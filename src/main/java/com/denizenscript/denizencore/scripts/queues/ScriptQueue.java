@@ -135,6 +135,15 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         generateId(id, numericId, 0);
     }
 
+    /**
+     * Creates a queue with a simple "prefix_number" ID, without generating a unique word ID.
+     */
+    protected ScriptQueue(String prefix, boolean simpleId) {
+        numericId = total_queues++;
+        id = prefix + "_" + numericId;
+        debugId = id;
+    }
+
     public final ScriptEntry getHeldScriptEntry(String id) {
         if (held_entries == null) {
             return null;
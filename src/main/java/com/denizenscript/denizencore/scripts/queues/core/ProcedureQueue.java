@@ -0,0 +1,32 @@
+package com.denizenscript.denizencore.scripts.queues.core;
+
+import com.denizenscript.denizencore.scripts.queues.ScriptEngine;
+import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+
+/**
+ * A lightweight instant queue for procedure calls.
+ * Always procedural, and uses a simple numeric ID rather than a generated word ID.
+ */
+public class ProcedureQueue extends ScriptQueue {
+
+    public ProcedureQueue(String id) {
+        super(id, true);
+        procedural = true;
+    }
+
+    @Override
+    public void onStart() {
+        while (is_started) {
+            if (script_entries.isEmpty()) {
+                stop();
+                return;
+            }
+            ScriptEngine.revolve(this);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "ProcedureQueue";
+    }
+}
@@ -11,6 +11,10 @@ import com.denizenscript.denizencore.utilities.DefinitionProvider;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 
 public class Attribute {
 
@@ -26,6 +30,17 @@ public class Attribute {
 
         public ObjectTagProcessor.TagData<? extends ObjectTag, ? extends ObjectTag> data;
 
+        /**
+         * Inline cache of how this component resolved for receivers whose type wasn't known at parse time (when 'data' is null).
+         * See 'ObjectTagProcessor.getObjectAttribute'. Replaced as a whole on update, never modified in place.
+         */
+        public volatile ObjectTagProcessor.ResolvedTag[] inlineCache;
+
+        /**
+         * What the tag's 'constantParamHandler' compiled this component's parameter into at script load, or null if the parameter isn't constant or the tag has no handler.
+         */
+        public Object compiledParam;
+
         public AttributeComponent(String inp) {
             if (inp.endsWith("]") && CoreUtilities.contains(inp, '[')) {
                 int ind = inp.indexOf('[');
@@ -116,6 +131,11 @@ public class Attribute {
     }
 
     public AttributeComponent[] attributes;
+
+    /**
+     * Parsed parameter values by attribute index. Allocated on first parameter read, and kept (but cleared) when the attribute is reset for reuse.
+     * May be null, or longer than 'attributes'.
+     */
     public ObjectTag[] contexts;
 
     /**
@@ -130,7 +150,11 @@ public class Attribute {
 
     String origin;
 
-    public ArrayList<String> seemingSuccesses = new ArrayList<>(2);
+    /**
+     * Tag parts that seemed to match before the tag failed, for error messages.
+     * Starts with no capacity (the shared empty ArrayList storage), as most reads never track any.
+     */
+    public ArrayList<String> seemingSuccesses = new ArrayList<>(0);
 
     /* Referenced by TagCodeGenerator */
     public boolean hadManualFulfill = false;
@@ -154,6 +178,20 @@ public class Attribute {
         hasContextFailed = false;
     }
 
+    public final void addSeemingSuccess(String success) {
+        seemingSuccesses.add(success);
+    }
+
+    /**
+     * Returns the most recent seeming success (see 'seemingSuccesses'), or null if none.
+     */
+    public final String getLastSeemingSuccess() {
+        if (seemingSuccesses.isEmpty()) {
+            return null;
+        }
+        return seemingSuccesses.get(seemingSuccesses.size() - 1);
+    }
+
     public ScriptEntry getScriptEntry() {
         return scriptEntry;
     }
@@ -167,28 +205,91 @@ public class Attribute {
         this(ref, scriptEntry, context, 0);
     }
 
+    private final TagContext.ShowErrorsMethod showErrorsMethod = () -> !hasAlternative();
+
+    /**
+     * The context this attribute's own context was cloned from, and that clone, kept so that 'reset' with the same source context can reuse the clone (through 'TagContext.refreshFrom').
+     */
+    private TagContext contextSource, contextClone;
+
     private void setContext(TagContext context) {
         if (context == null) {
             context = CoreUtilities.basicContext;
         }
-        this.context = context.clone();
-        this.context.showErrors = () -> !hasAlternative();
+        if (contextClone == null || contextSource != context || !context.canRefreshClones()) {
+            contextClone = context.clone();
+            contextSource = context;
+        }
+        else {
+            contextClone.refreshFrom(context);
+        }
+        contextClone.showErrors = showErrorsMethod;
+        this.context = contextClone;
     }
 
     public Attribute(Attribute ref, ScriptEntry scriptEntry, TagContext context, int skippable) {
+        reset(ref, scriptEntry, context, skippable);
+    }
+
+    /**
+     * Re-initializes this attribute as a fresh copy of 'ref', exactly as the equivalent constructor would, but reusing this instance's storage.
+     * For callers that read the same tag chain repeatedly (eg for each entry of a list), so that each read doesn't allocate a new Attribute.
+     * The attribute must not still be in use by an earlier read.
+     */
+    public final Attribute reset(Attribute ref, ScriptEntry scriptEntry, TagContext context, int skippable) {
         origin = ref.origin;
         this.scriptEntry = scriptEntry;
         setContext(context);
         attributes = ref.attributes;
-        contexts = new ObjectTag[attributes.length];
+        if (contexts != null) {
+            Arrays.fill(contexts, null);
+        }
+        if (!seemingSuccesses.isEmpty()) {
+            seemingSuccesses.clear();
+        }
+        hadManualFulfill = false;
+        lastValid = null;
+        hasContextFailed = false;
         setHadAlternative(ref.hadAlternative);
         if (this.context.debug) {
-            filled = new int[attributes.length];
+            if (filled == null || filled.length < attributes.length) {
+                filled = new int[attributes.length];
+            }
+            else {
+                Arrays.fill(filled, 0);
+            }
             for (int i = 0; i < skippable; i++) {
                 filled[i] = 3;
             }
         }
+        else {
+            filled = null;
+        }
         fulfilled = skippable;
+        return this;
+    }
+
+    /**
+     * Returns 'reusable' reset as a copy of 'ref' (see 'reset'), or a new copy if 'reusable' is null.
+     * For loops that read the same sub-tag once per entry, where each read completes before the next.
+     */
+    public static Attribute copyInto(Attribute reusable, Attribute ref, ScriptEntry scriptEntry, TagContext context) {
+        if (reusable == null) {
+            return new Attribute(ref, scriptEntry, context);
+        }
+        return reusable.reset(ref, scriptEntry, context, 0);
+    }
+
+    /**
+     * Clears references to objects from the last read, for an attribute kept around for reuse.
+     */
+    public final void clearForReuse() {
+        if (contexts != null) {
+            Arrays.fill(contexts, null);
+        }
+        lastValid = null;
+        scriptEntry = null;
+        context = null;
     }
 
     public Attribute(String attributes, ScriptEntry scriptEntry, TagContext context) throws TagProcessingException {
@@ -196,7 +297,6 @@ public class Attribute {
         this.scriptEntry = scriptEntry;
         setContext(context);
         this.attributes = separate_attributes(attributes);
-        contexts = new ObjectTag[this.attributes.length];
         if (this.context.debug) {
             filled = new int[this.attributes.length];
         }
@@ -229,14 +329,14 @@ public class Attribute {
             if (CoreConfiguration.debugVerbose) {
                 Debug.log("Chain-Tag found!");
             }
-            seemingSuccesses.add(string);
+            addSeemingSuccess(string);
             return true;
         }
         if (attributes[fulfilled].key.equals(string)) {
             if (CoreConfiguration.debugVerbose) {
                 Debug.log("Sub-tag found!");
             }
-            seemingSuccesses.add(string);
+            addSeemingSuccess(string);
             return true;
         }
         return false;
@@ -277,7 +377,7 @@ public class Attribute {
     /* Referenced by TagCodeGenerator */
     public final void trackLastTagFailure() {
         if (fulfilled < attributes.length) {
-            seemingSuccesses.add(attributes[fulfilled].key);
+            addSeemingSuccess(attributes[fulfilled].key);
             if (filled != null) {
                 filled[fulfilled] = 2;
             }
@@ -387,6 +487,173 @@ public class Attribute {
         }
     }
 
+    /**
+     * Parses the raw param once for each input object, with that object available as definition 'defName'.
+     * Results are returned in input order.
+     * When parallel tag processing is enabled, the input is large enough, and the param is safe to parse concurrently (see {@link #canParseInParallel}),
+     * the inputs are split into chunks that are parsed across the shared parallel tag pool, each chunk with its own definition overlay.
+     * Workers never write global debug state: 'Debug.currentContext' is held at this context for the duration,
+     * and errors and unfilled tags are queued by the workers (see 'TagContext.deferredErrors') then shown afterward on the calling thread.
+     */
+    public final ObjectTag[] parseDynamicParamForAll(List<ObjectTag> inputs, String defName) {
+        int size = inputs.size();
+        ObjectTag[] results = new ObjectTag[size];
+        String inp = getRawParam();
+        if (inp == null) {
+            return results;
+        }
+        if (CoreConfiguration.parallelTagProcessing && size >= CoreConfiguration.parallelTagProcessingMinimum && !context.debug && !CoreConfiguration.debugOverride
+                && !CoreConfiguration.tagTimeoutUnsafe && !ForkJoinTask.inForkJoinPool()) {
+            ObjectTag[] values = new ObjectTag[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = fixTypeForParallel(inputs.get(i));
+            }
+            ParseableTag parsed = TagManager.parseTextToTag(inp, context);
+            if (canParseInParallel(parsed, defName, values)) {
+                ConcurrentLinkedQueue<ReplaceableTagEvent> failures = new ConcurrentLinkedQueue<>();
+                ConcurrentLinkedQueue<Runnable> errors = new ConcurrentLinkedQueue<>();
+                TagContext workerContext = context.clone();
+                workerContext.deferredErrors = errors;
+                TagContext lastContext = Debug.currentContext;
+                Debug.currentContext = context;
+                try {
+                    TagManager.getParallelPool().invoke(new ParallelParseTask(parsed, workerContext, defName, values, results, failures, 0, size,
+                            Math.max(64, size / (TagManager.getParallelPool().getParallelism() * 4))));
+                }
+                finally {
+                    Debug.currentContext = lastContext;
+                }
+                for (Runnable error : errors) {
+                    error.run();
+                }
+                for (ReplaceableTagEvent failure : failures) {
+                    TagManager.reportUnfilledTag(context, failure);
+                }
+                return results;
+            }
+        }
+        OverridingDefinitionProvider provider = new OverridingDefinitionProvider(context.definitionProvider);
+        for (int i = 0; i < size; i++) {
+            provider.altDefs.putObject(defName, inputs.get(i));
+            results[i] = parseDynamicParam(provider);
+        }
+        return results;
+    }
+
+    /**
+     * Type-fixes a value ahead of time on the calling thread, so that worker threads never need to do object lookups.
+     */
+    private ObjectTag fixTypeForParallel(ObjectTag value) {
+        if (value == null) {
+            return null;
+        }
+        ObjectTag fixed = CoreUtilities.fixType(value, context);
+        if (fixed instanceof ElementTag && !((ElementTag) fixed).isPlainText) {
+            ElementTag plain = new ElementTag(fixed.toString(), true);
+            plain.isRawInput = ((ElementTag) fixed).isRawInput;
+            return plain;
+        }
+        return fixed;
+    }
+
+    /**
+     * Returns true if every tag in the parsed text is either a read of the overlay definition 'defName' followed by static sub-tags (for the type of every value),
+     * or a static tag base followed by static sub-tags, with no nested tags, fallbacks, or values anywhere.
+     */
+    public static boolean canParseInParallel(ParseableTag parsed, String defName, ObjectTag[] values) {
+        if (!parsed.hasTag) {
+            return true;
+        }
+        for (TagManager.ParseableTagPiece piece : parsed.pieces) {
+            if (piece.isError) {
+                return false;
+            }
+            if (!piece.isTag) {
+                continue;
+            }
+            ReplaceableTagEvent.ReferenceData ref = piece.tagData;
+            if (ref == null || ref.tagBase == null || ref.alternative != null || ref.value != null) {
+                return false;
+            }
+            AttributeComponent[] components = ref.attribs.attributes;
+            AttributeComponent base = components[0];
+            if (base.rawParam != null && base.rawParam.indexOf('<') != -1) {
+                return false;
+            }
+            if (base.key.isEmpty() || base.key.equals("def") || base.key.equals("definition")) {
+                if (base.rawParam == null || !CoreUtilities.equalsIgnoreCase(base.rawParam, defName)) {
+                    return false;
+                }
+                Class<?> lastType = null;
+                for (ObjectTag value : values) {
+                    if (value == null) {
+                        return false;
+                    }
+                    if (value.getClass() != lastType) {
+                        lastType = value.getClass();
+                        if (!ObjectTagProcessor.isStaticChain(value, components, 1)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            else if (!ref.tagBase.isStatic || !ObjectTagProcessor.isStaticChain(ref.tagBase.processor, components, 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fork/join task for {@link #parseDynamicParamForAll}, each leaf chunk using its own context clone and definition overlay.
+     * Tags are read with {@link ParseableTag#parseDetached}, so that workers don't race on global debug state.
+     */
+    public static class ParallelParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 5281937640183725496L;
+
+        public final ParseableTag parsed;
+
+        public final TagContext context;
+
+        public final String defName;
+
+        public final ObjectTag[] values, results;
+
+        public final Collection<ReplaceableTagEvent> failures;
+
+        public final int start, end, chunkSize;
+
+        public ParallelParseTask(ParseableTag parsed, TagContext context, String defName, ObjectTag[] values, ObjectTag[] results, Collection<ReplaceableTagEvent> failures, int start, int end, int chunkSize) {
+            this.parsed = parsed;
+            this.context = context;
+            this.defName = defName;
+            this.values = values;
+            this.results = results;
+            this.failures = failures;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > chunkSize) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ParallelParseTask(parsed, context, defName, values, results, failures, start, middle, chunkSize),
+                        new ParallelParseTask(parsed, context, defName, values, results, failures, middle, end, chunkSize));
+                return;
+            }
+            TagContext chunkContext = context.clone();
+            OverridingDefinitionProvider provider = new OverridingDefinitionProvider(context.definitionProvider);
+            chunkContext.definitionProvider = provider;
+            for (int i = start; i < end; i++) {
+                provider.altDefs.putObject(defName, values[i]);
+                results[i] = parsed.parseDetached(chunkContext, failures);
+            }
+        }
+    }
+
     public final MapTag inputParameterMap() {
         ObjectTag contextObj = getParamObject();
         if (contextObj == null) {
@@ -420,6 +687,40 @@ public class Attribute {
         return contextObj.asType(dClass, context);
     }
 
+    /**
+     * Returns what the current attribute's parameter was compiled into at script load (see 'ObjectTagProcessor.registerConstantParamHandler'),
+     * or null if it wasn't compiled or was compiled into something other than the given type.
+     */
+    public final <T> T getCompiledParam(Class<T> type) {
+        if (fulfilled >= attributes.length) {
+            return null;
+        }
+        Object compiled = attributes[fulfilled].compiledParam;
+        return type.isInstance(compiled) ? type.cast(compiled) : null;
+    }
+
+    /**
+     * Same as 'getCompiledParam', but if the parameter wasn't compiled at script load (eg because the tag's object type wasn't known yet), and is constant,
+     * compiles it now with the given compiler and keeps the result for later runs. Returns null if the parameter isn't constant.
+     */
+    public final <T> T getCompiledParam(Class<T> type, Function<String, T> compiler) {
+        T compiled = getCompiledParam(type);
+        if (compiled != null || fulfilled >= attributes.length) {
+            return compiled;
+        }
+        AttributeComponent component = attributes[fulfilled];
+        if (component.rawParam == null) {
+            return null;
+        }
+        String param = getParam();
+        if (component.paramParsed == null || component.paramParsed.hasTag) {
+            return null;
+        }
+        compiled = compiler.apply(param);
+        component.compiledParam = compiled;
+        return compiled;
+    }
+
     public final ObjectTag getParamObject() {
         return getContextObject(1); // TODO
     }
@@ -429,7 +730,7 @@ public class Attribute {
         if (attribute < 0 || attribute >= attributes.length) {
             return null;
         }
-        ObjectTag tagged = contexts[attribute];
+        ObjectTag tagged = getParsedContext(attribute);
         if (tagged != null) {
             return tagged;
         }
@@ -445,10 +746,20 @@ public class Attribute {
             return null;
         }
         tagged = component.paramParsed.parse(context);
+        if (contexts == null || contexts.length < attributes.length) {
+            contexts = new ObjectTag[attributes.length];
+        }
         contexts[attribute] = tagged;
         return tagged;
     }
 
+    /**
+     * Returns the already parsed parameter value for the attribute index, or null if it hasn't been parsed.
+     */
+    public final ObjectTag getParsedContext(int index) {
+        return contexts == null || index >= contexts.length ? null : contexts[index];
+    }
+
     public final String getParam() {
         return CoreUtilities.stringifyNullPass(getParamObject());
     }
@@ -620,7 +931,12 @@ public class Attribute {
 
     public void echoError(Throwable ex) {
         if (!hasAlternative()) {
-            Debug.echoError(ex);
+            if (context.deferredErrors != null) {
+                context.deferredErrors.add(() -> Debug.echoError(ex));
+            }
+            else {
+                Debug.echoError(ex);
+            }
         }
     }
 
@@ -649,8 +965,9 @@ public class Attribute {
     public String filledString() {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < fulfilled; i++) {
-            if (contexts[i] != null) {
-                sb.append(attributes[i].key).append("[").append(contexts[i]).append("].");
+            ObjectTag parsed = getParsedContext(i);
+            if (parsed != null) {
+                sb.append(attributes[i].key).append("[").append(parsed).append("].");
             }
             else {
                 sb.append(attributes[i].toString()).append(".");
@@ -665,8 +982,9 @@ public class Attribute {
     public String unfilledString() {
         StringBuilder sb = new StringBuilder();
         for (int i = fulfilled; i < attributes.length; i++) {
-            if (contexts[i] != null) {
-                sb.append(attributes[i].key).append("[").append(contexts[i]).append("].");
+            ObjectTag parsed = getParsedContext(i);
+            if (parsed != null) {
+                sb.append(attributes[i].key).append("[").append(parsed).append("].");
             }
             else {
                 sb.append(attributes[i].toString()).append(".");
@@ -702,8 +1020,9 @@ public class Attribute {
                 sb.append(i < fulfilled ? "<GR>" : (i == fulfilled ? "<LR>" : "<Y>"));
             }
             sb.append(attributes[i].key);
-            if (contexts[i] != null) {
-                sb.append("<LG>[<A>").append(contexts[i]).append("<LG>].");
+            ObjectTag parsed = getParsedContext(i);
+            if (parsed != null) {
+                sb.append("<LG>[<A>").append(parsed).append("<LG>].");
             }
             else if (attributes[i].rawParam != null) {
                 sb.append("<LG>[").append(filled == null || filled[i] != 3 ? "<Y>" : "").append(attributes[i].rawParam).append("<LG>].");
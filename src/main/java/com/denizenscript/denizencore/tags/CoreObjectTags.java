@@ -10,11 +10,9 @@ import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
 import com.denizenscript.denizencore.scripts.commands.Comparable;
 import com.denizenscript.denizencore.scripts.containers.core.ProcedureScriptContainer;
-import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ReflectionRefuse;
-import com.denizenscript.denizencore.utilities.ScriptUtilities;
 
 public class CoreObjectTags {
 
@@ -48,6 +46,7 @@ public class CoreObjectTags {
         // @returns ObjectTag
         // @description
         // Returns the 'determine' result of a procedure script, passing this object in as the context value.
+        // The procedure always runs instantly, ignoring any 'speed' key on the script.
         // -->
         tagProcessor.registerTag(ObjectTag.class, "proc", (attribute, object) -> {
             if (!attribute.hasParam()) {
@@ -79,22 +78,13 @@ public class CoreObjectTags {
             // @returns ObjectTag
             // @description
             // Returns the 'determine' result of a procedure script, passing this object in as the first context value, with a list of additional context values.
+            // The procedure always runs instantly, ignoring any 'speed' key on the script.
             // -->
             if (attribute.startsWith("context", 2) && attribute.hasContext(2)) {
                 definitions.objectForms.addAll(attribute.contextAsType(2, ListTag.class).objectForms);
                 attribute.fulfill(1);
             }
-            ScriptQueue queue = ScriptUtilities.createAndStartQueue(script.getContainer(), path, attribute.context.getScriptEntryData(), null, (q) -> {
-                q.procedural = true;
-            }, null, null, definitions, script.getContainer());
-            if (queue == null) {
-                attribute.echoError("Procedure queue start failed.");
-                return null;
-            }
-            if (queue.determinations != null && queue.determinations.size() > 0) {
-                return queue.determinations.getObject(0);
-            }
-            return null;
+            return ((ProcedureScriptContainer) script.getContainer()).runProcedure(path, attribute.context.getScriptEntryData(), definitions, attribute);
         });
 
         // <--[tag]
@@ -7,6 +7,7 @@ import com.denizenscript.denizencore.objects.ObjectType;
 import com.denizenscript.denizencore.objects.properties.PropertyParser;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.RegexCache;
 import com.denizenscript.denizencore.utilities.codegen.TagNamer;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
@@ -14,6 +15,7 @@ import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Function;
 
 public class ObjectTagProcessor<T extends ObjectTag> {
 
@@ -31,6 +33,15 @@ public class ObjectTagProcessor<T extends ObjectTag> {
 
         public boolean isStatic;
 
+        /** If non-null, the tag uses its parameter as a regex, and a constant parameter can be pre-compiled through this. */
+        public RegexCache.ParamPattern regexParam;
+
+        /**
+         * If non-null, called at script load with the tag's parameter when that parameter is constant, to pre-compile whatever the tag derives from it.
+         * The result is kept on the attribute component, for the tag to read back through 'Attribute.getCompiledParam'.
+         */
+        public Function<String, ?> constantParamHandler;
+
         public TagData(ObjectTagProcessor<T> source, String name, TagRunnable.ObjectInterface<T, R> runner, Class<R> returnType, boolean isStatic) {
             this.source = source;
             this.name = name;
@@ -44,6 +55,82 @@ public class ObjectTagProcessor<T extends ObjectTag> {
 
     public HashMap<String, TagData<T, ? extends ObjectTag>> registeredObjectTags = new HashMap<>();
 
+    /**
+     * How an attribute component resolved for a given processor and receiver class: a registered tag, a legacy auto-property getter, or neither.
+     * Immutable, so that it can be shared through 'AttributeComponent.inlineCache' between threads.
+     */
+    public static final class ResolvedTag {
+
+        public final ObjectTagProcessor<?> processor;
+
+        public final Class<?> receiverType;
+
+        public final TagData<? extends ObjectTag, ? extends ObjectTag> data;
+
+        public final PropertyParser.TagPropertyGetter propertyGetter;
+
+        public final int version;
+
+        public ResolvedTag(ObjectTagProcessor<?> processor, Class<?> receiverType, TagData<? extends ObjectTag, ? extends ObjectTag> data, PropertyParser.TagPropertyGetter propertyGetter, int version) {
+            this.processor = processor;
+            this.receiverType = receiverType;
+            this.data = data;
+            this.propertyGetter = propertyGetter;
+            this.version = version;
+        }
+    }
+
+    /** Incremented whenever tags or properties are registered, invalidating inline cache entries resolved before. */
+    public static int tagRegistrationVersion;
+
+    /** The maximum number of receiver types an attribute component's inline cache tracks before it is considered megamorphic and stops caching. */
+    public static int inlineCacheSize = 4;
+
+    public static final ResolvedTag[] MEGAMORPHIC = new ResolvedTag[0];
+
+    /**
+     * Returns how the attribute component resolves for this processor and the object's class, through the component's inline cache.
+     * Returns null if the component is megamorphic, in which case the caller should resolve directly.
+     */
+    public final ResolvedTag resolveThroughInlineCache(Attribute.AttributeComponent component, T object) {
+        ResolvedTag[] cache = component.inlineCache;
+        if (cache == MEGAMORPHIC) {
+            return null;
+        }
+        Class<?> receiverType = object.getClass();
+        int version = tagRegistrationVersion;
+        int valid = 0;
+        if (cache != null) {
+            for (ResolvedTag entry : cache) {
+                if (entry.version == version) {
+                    if (entry.processor == this && entry.receiverType == receiverType) {
+                        return entry;
+                    }
+                    valid++;
+                }
+            }
+        }
+        TagData<T, ? extends ObjectTag> data = registeredObjectTags.get(component.key);
+        PropertyParser.TagPropertyGetter propertyGetter = data != null ? null : PropertyParser.getPropertiesInfo(object).tagGetters.get(component.key);
+        ResolvedTag resolved = new ResolvedTag(this, receiverType, data, propertyGetter, version);
+        if (valid >= inlineCacheSize) {
+            component.inlineCache = MEGAMORPHIC;
+            return resolved;
+        }
+        ResolvedTag[] newCache = new ResolvedTag[valid + 1];
+        int index = 0;
+        if (cache != null) {
+            for (ResolvedTag entry : cache) {
+                if (entry.version == version) {
+                    newCache[index++] = entry;
+                }
+            }
+        }
+        newCache[index] = resolved;
+        component.inlineCache = newCache;
+        return resolved;
+    }
+
     public HashMap<String, MechanismData<T>> registeredMechanisms = new HashMap<>();
 
     @FunctionalInterface
@@ -77,16 +164,40 @@ public class ObjectTagProcessor<T extends ObjectTag> {
     public Class<T> type;
 
     public void registerFutureTagDeprecation(String name, String... deprecatedVariants) {
-        TagData properTag = registeredObjectTags.get(name);
+        TagData<T, ? extends ObjectTag> properTag = registeredObjectTags.get(name);
         for (String variant : deprecatedVariants) {
-            TagRunnable.ObjectInterface<T, ?> newRunnable = (attribute, object) -> {
-                if (CoreConfiguration.futureWarningsEnabled) {
-                    Debug.echoError(attribute.context,  "Using deprecated form of tag '" + name + "': '" + variant + "'.");
-                }
-                return properTag.runner.run(attribute, object);
-            };
-            registeredObjectTags.put(variant, new TagData(this, variant, newRunnable, properTag.returnType, false));
+            registeredObjectTags.put(variant, deprecatedVariantOf(properTag, variant));
         }
+        tagRegistrationVersion++;
+    }
+
+    private <R extends ObjectTag> TagData<T, R> deprecatedVariantOf(TagData<T, R> properTag, String variant) {
+        TagRunnable.ObjectInterface<T, R> newRunnable = (attribute, object) -> {
+            if (CoreConfiguration.futureWarningsEnabled) {
+                Debug.echoError(attribute.context,  "Using deprecated form of tag '" + properTag.name + "': '" + variant + "'.");
+            }
+            return properTag.runner.run(attribute, object);
+        };
+        TagData<T, R> variantTag = new TagData<>(this, variant, newRunnable, properTag.returnType, false);
+        variantTag.regexParam = properTag.regexParam;
+        variantTag.constantParamHandler = properTag.constantParamHandler;
+        return variantTag;
+    }
+
+    /**
+     * Marks a registered tag as using its parameter as a regex (as described by the ParamPattern), so constant parameters get pre-compiled at script load.
+     * Must be called before any 'registerFutureTagDeprecation' for the same tag.
+     */
+    public void registerRegexParam(String name, RegexCache.ParamPattern pattern) {
+        registeredObjectTags.get(name).regexParam = pattern;
+    }
+
+    /**
+     * Marks a registered tag as deriving something from its parameter that can be pre-compiled (for example, a flag path), so that constant parameters are handled at script load.
+     * Must be called before any 'registerFutureTagDeprecation' for the same tag.
+     */
+    public void registerConstantParamHandler(String name, Function<String, ?> handler) {
+        registeredObjectTags.get(name).constantParamHandler = handler;
     }
 
     public <R extends ObjectTag, P extends ObjectTag> void registerStaticTag(Class<R> returnType, Class<P> paramType, String name, TagRunnable.ObjectWithParamInterface<T, R, P> runnable, String... deprecatedVariants) {
@@ -136,6 +247,37 @@ public class ObjectTagProcessor<T extends ObjectTag> {
             registeredObjectTags.put(variant, new TagData<>(this, variant, newRunnable, returnType, false));
         }
         registeredObjectTags.put(name, new TagData<>(this, name, namedRunnable, returnType, isStatic));
+        tagRegistrationVersion++;
+    }
+
+    /**
+     * Returns true if every component of the attribute chain (starting at index 'start') resolves to a registered static tag when read from the given object,
+     * with no tags inside any component parameter. That is, the chain's result depends only on the object and the raw chain text.
+     */
+    public static boolean isStaticChain(ObjectTag object, Attribute.AttributeComponent[] components, int start) {
+        ObjectType<? extends ObjectTag> type = ObjectFetcher.getType(object.getClass());
+        return isStaticChain(type == null ? null : type.tagProcessor, components, start);
+    }
+
+    /**
+     * Returns true if every component of the attribute chain (starting at index 'start') resolves to a registered static tag when read through the given processor.
+     */
+    public static boolean isStaticChain(ObjectTagProcessor<? extends ObjectTag> processor, Attribute.AttributeComponent[] components, int start) {
+        for (int i = start; i < components.length; i++) {
+            if (processor == null) {
+                return false;
+            }
+            Attribute.AttributeComponent component = components[i];
+            if (component.rawParam != null && component.rawParam.indexOf('<') != -1) {
+                return false;
+            }
+            TagData<? extends ObjectTag, ? extends ObjectTag> data = processor.registeredObjectTags.get(component.key);
+            if (data == null || !data.isStatic) {
+                return false;
+            }
+            processor = data.processor;
+        }
+        return true;
     }
 
     public final ObjectTag getObjectAttribute(T object, Attribute attribute) {
@@ -155,8 +297,18 @@ public class ObjectTagProcessor<T extends ObjectTag> {
         Attribute.AttributeComponent nextComponent = attribute.attributes[attribute.fulfilled];
         ObjectTag returned;
         TagData data = nextComponent.data;
+        PropertyParser.TagPropertyGetter propertyGetter = null;
+        boolean propertyResolved = false;
         if (data == null) {
-            data = registeredObjectTags.get(nextComponent.key);
+            ResolvedTag resolved = resolveThroughInlineCache(nextComponent, object);
+            if (resolved != null) {
+                data = resolved.data;
+                propertyGetter = resolved.propertyGetter;
+                propertyResolved = true;
+            }
+            else {
+                data = registeredObjectTags.get(nextComponent.key);
+            }
         }
         if (data != null) {
             if (CoreConfiguration.debugVerbose) {
@@ -175,7 +327,7 @@ public class ObjectTagProcessor<T extends ObjectTag> {
             }
             return returned.getObjectAttribute(attribute.fulfill(1));
         }
-        returned = CoreUtilities.autoPropertyTagObject(object, attribute);
+        returned = propertyResolved ? CoreUtilities.autoPropertyTagObject(object, attribute, propertyGetter) : CoreUtilities.autoPropertyTagObject(object, attribute);
         if (returned == null) {
             returned = object.specialTagProcessing(attribute);
         }
@@ -4,6 +4,7 @@ package com.denizenscript.denizencore.tags;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 
+import java.util.Collection;
 import java.util.List;
 
 public class ParseableTag {
@@ -26,6 +27,20 @@ public class ParseableTag {
         return TagManager.parseChainObject(pieces, context);
     }
 
+    /**
+     * Parses without touching global tag/debug state, for use by parallel tag workers. Only valid if no piece is an error.
+     * Events of tags that can't be filled are added to 'failures', to be reported on the calling thread.
+     */
+    public final ObjectTag parseDetached(TagContext context, Collection<ReplaceableTagEvent> failures) {
+        if (rawObject != null) {
+            return rawObject;
+        }
+        else if (singleTag != null) {
+            return TagManager.readSingleTagObjectDetached(singleTag, context, failures);
+        }
+        return TagManager.parseChainObjectDetached(pieces, context, failures);
+    }
+
     public ParseableTag() {
     }
 
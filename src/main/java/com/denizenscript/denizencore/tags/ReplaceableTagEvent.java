@@ -8,6 +8,7 @@ import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 public class ReplaceableTagEvent {
@@ -21,7 +22,14 @@ public class ReplaceableTagEvent {
 
     public ObjectTag replaced_obj;
 
+    /** If non-null, 'replaced_obj' hasn't been set yet, and defaults to an ElementTag of this text (only created if actually read). */
+    private String placeholderTag;
+
     public ObjectTag getReplacedObj() {
+        if (placeholderTag != null) {
+            replaced_obj = new ElementTag(placeholderTag);
+            placeholderTag = null;
+        }
         return replaced_obj;
     }
 
@@ -54,7 +62,7 @@ public class ReplaceableTagEvent {
         // If tag is not replaced, return the tag
         // TODO: Possibly make this return "null" ... might break some
         // scripts using tags incorrectly, but makes more sense overall
-        this.replaced_obj = new ElementTag(tag);
+        this.placeholderTag = tag;
         if (ref != null) {
             mainRef = ref;
             core_attributes = new Attribute(ref.attribs, context.entry, context, ref.skippable);
@@ -62,6 +70,62 @@ public class ReplaceableTagEvent {
         }
     }
 
+    private ReplaceableTagEvent() {
+    }
+
+    /**
+     * Re-initializes a pooled event for a new read of a pre-parsed tag, equivalent to 'new ReplaceableTagEvent(ref, tag, context)' with a non-null ref.
+     */
+    private void reset(ReferenceData ref, String tag, TagContext context) {
+        wasReplaced = false;
+        value_tagged = null;
+        replaced_obj = null;
+        placeholderTag = tag;
+        alternateBase = null;
+        mainRef = ref;
+        raw_tag = ref.rawTag;
+        if (core_attributes == null) {
+            core_attributes = new Attribute(ref.attribs, context.entry, context, ref.skippable);
+        }
+        else {
+            core_attributes.reset(ref.attribs, context.entry, context, ref.skippable);
+        }
+    }
+
+    /**
+     * Per-thread stack of reusable events, for tag reads that are known to finish (and not keep the event) before returning.
+     * Tag reads nest (through parameters and fallbacks), so each nesting depth has its own event.
+     */
+    public static final class EventPool {
+
+        private ReplaceableTagEvent[] events = new ReplaceableTagEvent[8];
+
+        private int depth;
+
+        public ReplaceableTagEvent acquire(ReferenceData ref, String tag, TagContext context) {
+            if (depth == events.length) {
+                events = Arrays.copyOf(events, depth * 2);
+            }
+            ReplaceableTagEvent event = events[depth];
+            if (event == null) {
+                event = new ReplaceableTagEvent();
+                events[depth] = event;
+            }
+            depth++;
+            event.reset(ref, tag, context);
+            return event;
+        }
+
+        public void release(ReplaceableTagEvent event) {
+            depth--;
+            event.replaced_obj = null;
+            event.value_tagged = null;
+            event.core_attributes.clearForReuse();
+        }
+    }
+
+    public static final ThreadLocal<EventPool> eventPool = ThreadLocal.withInitial(EventPool::new);
+
     public ReplaceableTagEvent(String tag, TagContext context) throws TagProcessingException {
         this(refs.get(tag), tag, context);
         if (mainRef != null) {
@@ -222,6 +286,7 @@ public class ReplaceableTagEvent {
     }
 
     public void setReplacedObject(ObjectTag obj) {
+        placeholderTag = null;
         replaced_obj = obj;
         wasReplaced = obj != null;
     }
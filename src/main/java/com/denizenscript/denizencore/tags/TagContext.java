@@ -9,6 +9,10 @@ import com.denizenscript.denizencore.utilities.SimpleDefinitionProvider;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+
 public abstract class TagContext implements Debuggable, Cloneable {
 
     @FunctionalInterface
@@ -27,6 +31,12 @@ public abstract class TagContext implements Debuggable, Cloneable {
     public DefinitionProvider definitionProvider;
     public ContextSource contextSource;
 
+    /**
+     * If non-null, errors shown for this context are queued here instead, to be run later on the thread that started the read.
+     * Set on the worker contexts of parallel tag reads, so that worker threads never write global debug state.
+     */
+    public Collection<Runnable> deferredErrors;
+
     @Override
     public TagContext clone() {
         try {
@@ -38,6 +48,54 @@ public abstract class TagContext implements Debuggable, Cloneable {
         }
     }
 
+    /**
+     * Refreshes this context, which must be a clone of 'source', so that it matches 'source' again without making a new clone.
+     * Attribute uses this to reuse its context clone between tag reads, as the source context may have changed in the meantime.
+     * Subclasses that add fields MUST override this to copy their own fields too (and call super).
+     * A subclass that adds fields without overriding it is never refreshed, only re-cloned (see 'canRefreshClones').
+     */
+    public void refreshFrom(TagContext source) {
+        debug = source.debug;
+        showErrors = source.showErrors;
+        entry = source.entry;
+        script = source.script;
+        definitionProvider = source.definitionProvider;
+        contextSource = source.contextSource;
+        deferredErrors = source.deferredErrors;
+    }
+
+    private static final ClassValue<Boolean> refreshableTypes = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> current = type; current != TagContext.class; current = current.getSuperclass()) {
+                boolean hasFields = false;
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        hasFields = true;
+                        break;
+                    }
+                }
+                if (!hasFields) {
+                    continue;
+                }
+                try {
+                    current.getDeclaredMethod("refreshFrom", TagContext.class);
+                }
+                catch (NoSuchMethodException ex) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Returns true if clones of this context can be refreshed through 'refreshFrom', ie every class of it that adds fields also overrides 'refreshFrom'.
+     */
+    public final boolean canRefreshClones() {
+        return refreshableTypes.get(getClass());
+    }
+
     public boolean showErrors() {
         return debug || (showErrors != null && showErrors.showErrors());
     }
@@ -15,6 +15,7 @@ import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.*;
@@ -173,6 +174,18 @@ public class TagManager {
         }
     }
 
+    private static ForkJoinPool parallelPool;
+
+    /**
+     * Returns the bounded pool used for parallel tag processing (see CoreConfiguration.parallelTagProcessing), creating it if needed.
+     */
+    public static synchronized ForkJoinPool getParallelPool() {
+        if (parallelPool == null) {
+            parallelPool = new ForkJoinPool(Math.max(1, CoreConfiguration.parallelTagProcessingThreads));
+        }
+        return parallelPool;
+    }
+
     public static boolean isInTag = false;
 
     public static volatile Thread tagThread = null;
@@ -215,8 +228,19 @@ public class TagManager {
     }
 
     public static ObjectTag readSingleTagObject(ParseableTagPiece tag, TagContext context) {
-        ReplaceableTagEvent event = new ReplaceableTagEvent(tag.tagData, tag.content, context);
-        return readSingleTagObject(context, event);
+        if (tag.tagData == null || CoreConfiguration.tagTimeoutUnsafe) {
+            // Unsafe timeouts can read the tag on a separate thread that outlives this call, so the event can't be reused after.
+            ReplaceableTagEvent event = new ReplaceableTagEvent(tag.tagData, tag.content, context);
+            return readSingleTagObject(context, event);
+        }
+        ReplaceableTagEvent.EventPool pool = ReplaceableTagEvent.eventPool.get();
+        ReplaceableTagEvent event = pool.acquire(tag.tagData, tag.content, context);
+        try {
+            return readSingleTagObject(context, event);
+        }
+        finally {
+            pool.release(event);
+        }
     }
 
     public static boolean recentTagError = true;
@@ -251,36 +275,78 @@ public class TagManager {
             Debug.echoDebug(context, "<G>Filled tag <<W>" + event + "<G>> with '<W>" + event.getReplacedObj().debuggable() + "<G>'.");
         }
         if (!event.replaced()) {
-            String tagStr = "<LG><" + event + "<LG>><W>";
-            Debug.echoError(context, "Tag " + tagStr + " is invalid!");
-            recentTagError = true;
-            if (OBJECTTAG_CONFUSION_PATTERN.matcher(tagStr).matches()) {
-                Debug.echoError(context, "'ObjectTag' notation is for documentation purposes, and not to be used literally."
-                    + " An actual object must be inserted instead. If confused, join our Discord at https://discord.gg/Q6pZGSR to ask for help!");
-            }
-            if (!event.hasAlternative()) {
-                Attribute attribute = event.getAttributes();
-                if (attribute.fulfilled < attribute.attributes.length) {
-                    Debug.echoError(context, "Unfilled or unrecognized sub-tag(s) '<LR>" + attribute.unfilledString() + "<W>' for tag <LG><" + attribute.origin + "<LG>><W>!");
-                    if (attribute.lastValid != null) {
-                        Debug.echoError(context, "The returned value from initial tag fragment '<LG>" + attribute.filledString() + "<W>' was: '<LG>" + attribute.lastValid.debuggable() + "<W>'.");
+            reportUnfilledTag(context, event);
+            return new ElementTag(event.raw_tag);
+        }
+        return event.getReplacedObj();
+    }
+
+    /**
+     * Reports a tag that could not be filled (and sets 'recentTagError').
+     */
+    public static void reportUnfilledTag(TagContext context, ReplaceableTagEvent event) {
+        String tagStr = "<LG><" + event + "<LG>><W>";
+        Debug.echoError(context, "Tag " + tagStr + " is invalid!");
+        recentTagError = true;
+        if (OBJECTTAG_CONFUSION_PATTERN.matcher(tagStr).matches()) {
+            Debug.echoError(context, "'ObjectTag' notation is for documentation purposes, and not to be used literally."
+                + " An actual object must be inserted instead. If confused, join our Discord at https://discord.gg/Q6pZGSR to ask for help!");
+        }
+        if (!event.hasAlternative()) {
+            Attribute attribute = event.getAttributes();
+            if (attribute.fulfilled < attribute.attributes.length) {
+                Debug.echoError(context, "Unfilled or unrecognized sub-tag(s) '<LR>" + attribute.unfilledString() + "<W>' for tag <LG><" + attribute.origin + "<LG>><W>!");
+                if (attribute.lastValid != null) {
+                    Debug.echoError(context, "The returned value from initial tag fragment '<LG>" + attribute.filledString() + "<W>' was: '<LG>" + attribute.lastValid.debuggable() + "<W>'.");
+                }
+                String almost = attribute.getLastSeemingSuccess();
+                if (almost != null) {
+                    if (attribute.hasContextFailed) {
+                        Debug.echoError(context, "Almost matched but failed (missing [context] parameter?): " + almost);
                     }
-                    if (attribute.seemingSuccesses.size() > 0) {
-                        String almost = attribute.seemingSuccesses.get(attribute.seemingSuccesses.size() - 1);
-                        if (attribute.hasContextFailed) {
-                            Debug.echoError(context, "Almost matched but failed (missing [context] parameter?): " + almost);
-                        }
-                        else {
-                            Debug.echoError(context, "Almost matched but failed (possibly bad input?): " + almost);
-                        }
+                    else {
+                        Debug.echoError(context, "Almost matched but failed (possibly bad input?): " + almost);
                     }
                 }
             }
+        }
+    }
+
+    /**
+     * Reads a single tag without touching the global 'Debug.currentContext' or 'recentTagError', for use by parallel tag workers.
+     * If the tag can't be filled, its event is added to 'failures', to be reported with 'reportUnfilledTag' on the calling thread.
+     */
+    public static ObjectTag readSingleTagObjectDetached(ParseableTagPiece tag, TagContext context, Collection<ReplaceableTagEvent> failures) {
+        ReplaceableTagEvent event = new ReplaceableTagEvent(tag.tagData, tag.content, context);
+        fireEvent(event);
+        if (!event.replaced()) {
+            failures.add(event);
             return new ElementTag(event.raw_tag);
         }
         return event.getReplacedObj();
     }
 
+    /**
+     * Equivalent to 'parseChainObject' for chains with no error pieces, reading tags with 'readSingleTagObjectDetached'.
+     */
+    public static ObjectTag parseChainObjectDetached(List<ParseableTagPiece> pieces, TagContext context, Collection<ReplaceableTagEvent> failures) {
+        if (pieces.size() == 1 && pieces.get(0).isTag) {
+            return readSingleTagObjectDetached(pieces.get(0), context, failures);
+        }
+        StringBuilder helpy = new StringBuilder();
+        for (ParseableTagPiece p : pieces) {
+            if (p.isTag) {
+                helpy.append(readSingleTagObjectDetached(p, context, failures).toString());
+            }
+            else {
+                helpy.append(p.content);
+            }
+        }
+        ElementTag result = new ElementTag(helpy.toString(), true);
+        result.isRawInput = true;
+        return result;
+    }
+
     public static Pattern OBJECTTAG_CONFUSION_PATTERN = Pattern.compile("<\\w+tag[\\[.>].*", Pattern.CASE_INSENSITIVE);
 
     public static HashMap<String, ParseableTag> preCalced = new HashMap<>();
@@ -1,7 +1,6 @@
 package com.denizenscript.denizencore.tags.core;
 
-import com.denizenscript.denizencore.objects.core.DurationTag;
-import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.tags.TagRunnable;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.ScriptTag;
@@ -9,7 +8,6 @@ import com.denizenscript.denizencore.scripts.containers.core.ProcedureScriptCont
 import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.ReplaceableTagEvent;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
-import com.denizenscript.denizencore.utilities.ScriptUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.tags.TagManager;
 
@@ -31,6 +29,7 @@ public class ProcedureScriptTagBase {
         // @returns ObjectTag
         // @description
         // Returns the 'determine' result of a procedure script.
+        // The procedure always runs instantly, ignoring any 'speed' key on the script.
         // -->
         if (!event.matches("proc")) {
             return;
@@ -73,18 +72,12 @@ public class ProcedureScriptTagBase {
             definitions = attribute.contextAsType(2, ListTag.class);
             attribute.fulfill(1);
         }
-        ScriptQueue queue = ScriptUtilities.createAndStartQueue(script.getContainer(), path, attribute.context.getScriptEntryData(), null, (q) -> {
-            q.procedural = true;
-        }, new DurationTag(0), null, definitions, script.getContainer());
-        if (queue == null) {
-            attribute.echoError("Procedure queue start failed.");
-            return;
-        }
+        ObjectTag result = ((ProcedureScriptContainer) script.getContainer()).runProcedure(path, attribute.context.getScriptEntryData(), definitions, attribute);
         attribute.fulfill(1);
-        if (queue.determinations == null || queue.determinations.size() == 0) {
+        if (result == null) {
             attribute.echoError("Procedure call did not determine any value.");
             return;
         }
-        event.setReplacedObject(CoreUtilities.autoAttribTyped(queue.determinations.getObject(0), attribute));
+        event.setReplacedObject(CoreUtilities.autoAttribTyped(result, attribute));
     }
 }
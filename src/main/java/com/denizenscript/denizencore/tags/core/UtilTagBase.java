@@ -272,11 +272,16 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
             long to = toElement.asInt();
             long from = input.getElement("from", "1").asInt();
             long every = input.getElement("every", "1").asInt();
-            ListTag result = new ListTag();
-            for (long i = from; i <= to; i += every) {
-                result.addObject(new ElementTag(i));
+            if (every <= 0) {
+                attribute.echoError("Invalid 'every' input '" + every + "': must be a positive number.");
+                return null;
             }
-            return result;
+            long size = NumberRangeList.rangeSize(from, to, every);
+            if (size < 0) {
+                attribute.echoError("Number range from " + from + " to " + to + " is too large.");
+                return null;
+            }
+            return new ListTag(new NumberRangeList(from, every, (int) size));
         });
 
         // <--[tag]
@@ -290,11 +295,7 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
         // -->
         tagProcessor.registerStaticTag(ListTag.class, ElementTag.class, "list_numbers_to", (attribute, object, toElement) -> {
             int to = toElement.asInt();
-            ListTag result = new ListTag();
-            for (int i = 1; i <= to; i++) {
-                result.add(String.valueOf(i));
-            }
-            return result;
+            return new ListTag(new NumberRangeList(1, 1, Math.max(to, 0)));
         });
 
         // <--[tag]
@@ -1044,10 +1045,7 @@ public class UtilTagBase extends PseudoObjectTagBase<UtilTagBase> {
         // Use <@link tag util.runlater_ids> to check whether there is already a scheduled task with the given ID.
         // -->
         if (mechanism.matches("cancel_runlater") && mechanism.hasValue()) {
-            RunLaterCommand.FutureRunData runner = RunLaterCommand.trackedById.remove(CoreUtilities.toLowerCase(mechanism.getValue().asString()));
-            if (runner != null) {
-                runner.cancelled = true;
-            }
+            RunLaterCommand.cancel(CoreUtilities.toLowerCase(mechanism.getValue().asString()));
         }
 
         if (!mechanism.fulfilled()) {
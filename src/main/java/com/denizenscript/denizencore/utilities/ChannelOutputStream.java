@@ -0,0 +1,75 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An OutputStream that writes to a FileChannel through a large direct buffer.
+ * Closing the stream only flushes it: the channel stays open, so that the owner can 'force' it before closing it.
+ * Not thread-safe. Each thread reuses its own buffer, so a thread must only have one of these open at a time.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    /** The size in bytes of each thread's direct buffer. Only applies to threads that haven't saved anything yet. */
+    public static int bufferSize = 1024 * 1024;
+
+    public static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+
+    public final FileChannel channel;
+
+    public final ByteBuffer buffer;
+
+    public ChannelOutputStream(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = buffers.get();
+        ((Buffer) buffer).clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer.
+     */
+    public void write(ByteBuffer bytes) throws IOException {
+        flush();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
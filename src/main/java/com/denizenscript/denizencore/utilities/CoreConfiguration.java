@@ -34,6 +34,20 @@ public class CoreConfiguration {
 
     public static boolean skipAllFlagCleanings = false;
 
+    public static boolean flagJournal = false, flagBinaryFormat = false;
+
+    public static double flagJournalCompactRatio = 0.5;
+
+    public static int serverFlagShards = 0;
+
+    public static boolean saveCompression = false;
+
+    public static int saveCompressionLevel = 1;
+
+    public static boolean parallelTagProcessing = false;
+
+    public static int parallelTagProcessingMinimum = 4096, parallelTagProcessingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
     public static String webserverRoot = "webroot/", filePathLimit = "data/";
 
     public static boolean verifyThreadMatches;
@@ -4,7 +4,6 @@ import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.*;
 import com.denizenscript.denizencore.objects.core.*;
 import com.denizenscript.denizencore.scripts.ScriptBuilder;
-import com.denizenscript.denizencore.scripts.ScriptHelper;
 import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.properties.Property;
@@ -16,11 +15,16 @@ import com.denizenscript.denizencore.utilities.text.StringHolder;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.text.DecimalFormat;
@@ -259,11 +263,7 @@ public class CoreUtilities {
         if (mechanism.fulfilled()) {
             return;
         }
-        PropertyParser.ClassPropertiesInfo properties = PropertyParser.propertiesByClass.get(object.getClass());
-        if (properties == null) {
-            return;
-        }
-        PropertyParser.PropertyGetter specificGetter = properties.propertiesByMechanism.get(mechanism.getName());
+        PropertyParser.PropertyGetter specificGetter = PropertyParser.getPropertiesInfo(object).propertiesByMechanism.get(mechanism.getName());
         if (specificGetter != null) {
             Property prop = specificGetter.get(object);
             if (prop == null) {
@@ -279,22 +279,26 @@ public class CoreUtilities {
         if (attribute.isComplete()) {
             return null;
         }
-        PropertyParser.ClassPropertiesInfo properties = PropertyParser.propertiesByClass.get(object.getClass());
-        if (properties == null) {
+        PropertyParser.ClassPropertiesInfo properties = PropertyParser.getPropertiesInfo(object);
+        if (properties == PropertyParser.ClassPropertiesInfo.NONE) {
             return null;
         }
-        String tagName = attribute.getAttributeWithoutParam(1);
-        PropertyParser.PropertyGetter specificGetter = properties.propertiesByTag.get(tagName);
-        if (specificGetter != null) {
-            Property prop = specificGetter.get(object);
-            if (prop == null) {
-                String propName = properties.propertyNamesByTag.get(tagName);
-                attribute.seemingSuccesses.add(attribute.getAttributeWithoutParam(1) + " - property " + propName + " matched, but is not valid for the object.");
-                return null;
-            }
-            return prop.getObjectAttribute(attribute);
+        return autoPropertyTagObject(object, attribute, properties.tagGetters.get(attribute.getAttributeWithoutParam(1)));
+    }
+
+    /**
+     * Runs an auto-property tag through an already resolved getter (from 'ClassPropertiesInfo.tagGetters' for the object's class and the next attribute), if any.
+     */
+    public static ObjectTag autoPropertyTagObject(ObjectTag object, Attribute attribute, PropertyParser.TagPropertyGetter tagGetter) {
+        if (tagGetter == null) {
+            return null;
         }
-        return null;
+        Property prop = tagGetter.getter.get(object);
+        if (prop == null) {
+            attribute.addSeemingSuccess(attribute.getAttributeWithoutParam(1) + " - property " + tagGetter.propertyName + " matched, but is not valid for the object.");
+            return null;
+        }
+        return prop.getObjectAttribute(attribute);
     }
 
     public static ObjectTag autoAttribTyped(ObjectTag inp, Attribute attribute) {
@@ -706,58 +710,202 @@ public class CoreUtilities {
         return new String(output);
     }
 
+    /**
+     * Writes the text of a streamed save, see 'tryJournallingTextSave'.
+     */
+    @FunctionalInterface
+    public interface TextSaver {
+
+        void save(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes the bytes of a streamed save, see 'tryJournallingBinarySave'.
+     */
+    @FunctionalInterface
+    public interface BinarySaver {
+
+        void save(OutputStream output) throws IOException;
+    }
+
     public static void journallingFileSave(String filePath, String contents) {
+        tryJournallingFileSave(filePath, contents);
+    }
+
+    /**
+     * Same as 'journallingFileSave', but returns whether the save succeeded (errors are still reported).
+     */
+    public static boolean tryJournallingFileSave(String filePath, String contents) {
+        return tryJournallingFileSave(filePath, contents, false);
+    }
+
+    /**
+     * Same as 'tryJournallingFileSave', optionally gzip compressing the file (see 'SaveCompression'). 'journallingLoadFile' reads either form.
+     */
+    public static boolean tryJournallingFileSave(String filePath, String contents, boolean compress) {
+        return tryJournallingTextSave(filePath, compress, writer -> writer.write(contents));
+    }
+
+    /**
+     * Same as 'tryJournallingFileSave', but for raw binary contents.
+     */
+    public static boolean tryJournallingFileSave(String filePath, byte[] contents) {
+        return tryJournallingFileSave(filePath, contents, false);
+    }
+
+    /**
+     * Same as 'tryJournallingFileSave', optionally gzip compressing the file (see 'SaveCompression').
+     */
+    public static boolean tryJournallingFileSave(String filePath, byte[] contents, boolean compress) {
+        return tryJournallingBinarySave(filePath, compress, output -> output.write(contents));
+    }
+
+    /**
+     * Saves text written by the saver as it goes, without building the full contents first, in the same encoding as 'journallingFileSave'.
+     * Returns whether the save succeeded (errors are reported).
+     */
+    public static boolean tryJournallingTextSave(String filePath, boolean compress, TextSaver saver) {
+        Charset charset = CoreConfiguration.scriptEncoding == null ? Charset.defaultCharset() : CoreConfiguration.scriptEncoding.charset();
+        return tryJournallingBinarySave(filePath, compress, output -> {
+            Writer writer = new OutputStreamWriter(output, charset);
+            saver.save(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Saves bytes written by the saver as it goes, without building the full contents first. Returns whether the save succeeded (errors are reported).
+     * The data goes to a temporary file through a 'ChannelOutputStream', is forced to disk, then atomically moved over the real file, so the real file is always either the old or the new data.
+     */
+    public static boolean tryJournallingBinarySave(String filePath, boolean compress, BinarySaver saver) {
         File saveToFile = new File(filePath + "~1");
         try {
+            long start = monotonicMillis();
             saveToFile.getParentFile().mkdirs();
-            Charset charset = CoreConfiguration.scriptEncoding == null ? null : CoreConfiguration.scriptEncoding.charset();
-            FileOutputStream fiout = new FileOutputStream(saveToFile);
-            OutputStreamWriter writer;
-            if (charset == null) {
-                writer = new OutputStreamWriter(fiout);
+            long uncompressedBytes = 0, size;
+            try (FileChannel channel = FileChannel.open(saveToFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ChannelOutputStream channelOutput = new ChannelOutputStream(channel);
+                SaveCompression.GzipOutput gzip = compress ? new SaveCompression.GzipOutput(channelOutput) : null;
+                OutputStream output = compress ? gzip : channelOutput;
+                saver.save(output);
+                if (compress) {
+                    gzip.finish();
+                    uncompressedBytes = gzip.uncompressedBytes();
+                }
+                output.close();
+                channel.force(true);
+                size = channel.size();
             }
-            else {
-                writer = new OutputStreamWriter(fiout, charset);
+            if (compress) {
+                SaveCompression.reportSave(filePath, uncompressedBytes, size, monotonicMillis() - start);
             }
-            writer.write(contents);
-            writer.close();
-            File bakFile = new File(filePath + "~2");
-            File realFile = new File(filePath);
+            journallingReplace(saveToFile, filePath);
+            return true;
+        }
+        catch (Throwable ex) {
+            Debug.echoError("Failed to save data to path '" + filePath + "'");
+            Debug.echoError(ex);
+            return false;
+        }
+    }
+
+    private static void journallingReplace(File saveToFile, String filePath) throws IOException {
+        File bakFile = new File(filePath + "~2");
+        File realFile = new File(filePath);
+        try {
+            Files.move(saveToFile.toPath(), realFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException ex) {
             if (realFile.exists()) {
                 realFile.renameTo(bakFile);
             }
             saveToFile.renameTo(realFile);
-            if (bakFile.exists()) {
-                bakFile.delete();
+        }
+        if (bakFile.exists()) {
+            bakFile.delete();
+        }
+    }
+
+    /**
+     * Returns the file that 'journallingLoadFile' would read for the path (the file itself, or its backup from an interrupted save), or null if there is none.
+     */
+    public static File journallingFindFile(String filePath) {
+        File flagFile = new File(filePath);
+        if (flagFile.exists()) {
+            return flagFile;
+        }
+        File bakFile = new File(filePath + "~2");
+        if (bakFile.exists()) {
+            return bakFile;
+        }
+        // Note: ~1 are likely corrupted, so ignore them.
+        return null;
+    }
+
+    /**
+     * Deletes the file along with any leftover files from an interrupted 'journallingFileSave'.
+     */
+    public static void journallingDelete(String filePath) {
+        new File(filePath).delete();
+        new File(filePath + "~1").delete();
+        new File(filePath + "~2").delete();
+    }
+
+    /**
+     * Appends the contents to the end of the file (creating it if needed), using the same encoding as 'journallingFileSave'.
+     * Returns false if the write failed (the error is already reported).
+     */
+    public static boolean appendToFile(String filePath, String contents) {
+        try {
+            File file = new File(filePath);
+            file.getParentFile().mkdirs();
+            Charset charset = CoreConfiguration.scriptEncoding == null ? Charset.defaultCharset() : CoreConfiguration.scriptEncoding.charset();
+            ByteBuffer bytes = ByteBuffer.wrap(contents.getBytes(charset));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
             }
+            return true;
         }
         catch (Throwable ex) {
-            Debug.echoError("Failed to save data to path '" + filePath + "'");
+            Debug.echoError("Failed to append data to path '" + filePath + "'");
             Debug.echoError(ex);
+            return false;
         }
     }
 
+    /**
+     * Reads the file that 'journallingFindFile' finds for the path, decompressing it if it was saved compressed. Returns null if there is no file.
+     */
+    public static byte[] journallingLoadBytes(String filePath) throws IOException {
+        File realPath = journallingFindFile(filePath);
+        if (realPath == null) {
+            return null;
+        }
+        byte[] data = Files.readAllBytes(realPath.toPath());
+        if (SaveCompression.isCompressed(data)) {
+            long start = monotonicMillis();
+            byte[] decompressed = SaveCompression.decompress(data);
+            SaveCompression.reportLoad(realPath.getPath(), data.length, decompressed.length, monotonicMillis() - start);
+            return decompressed;
+        }
+        return data;
+    }
+
+    /**
+     * Decodes saved text in the same encoding that 'journallingFileSave' writes it with.
+     */
+    public static String decodeSavedText(byte[] data) {
+        Charset charset = CoreConfiguration.scriptEncoding == null ? Charset.defaultCharset() : CoreConfiguration.scriptEncoding.charset();
+        return new String(data, charset);
+    }
+
     public static String journallingLoadFile(String filePath) {
         try {
-            File realPath;
-            File flagFile = new File(filePath);
-            if (flagFile.exists()) {
-                realPath = flagFile;
-            }
-            else {
-                File bakFile = new File(filePath + "~2");
-                if (bakFile.exists()) {
-                    realPath = bakFile;
-                }
-                // Note: ~1 are likely corrupted, so ignore them.
-                else {
-                    return null;
-                }
-            }
-            FileInputStream fis = new FileInputStream(realPath);
-            String str = ScriptHelper.convertStreamToString(fis);
-            fis.close();
-            return str;
+            byte[] data = journallingLoadBytes(filePath);
+            return data == null ? null : decodeSavedText(data);
         }
         catch (Throwable ex) {
             Debug.echoError("Failed to load data for path '" + filePath + "'");
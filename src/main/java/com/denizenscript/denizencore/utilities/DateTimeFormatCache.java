@@ -0,0 +1,202 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, thread-safe cache of DateTimeFormatters (keyed by pattern, locale, and zone) and of ZoneIds (keyed by zone text).
+ * Simple all-numeric patterns (like "yyyy/MM/dd HH:mm:ss" or "yyyy-MM-dd'T'HH:mm:ss") additionally get a fast path that writes the digits directly.
+ */
+public class DateTimeFormatCache {
+
+    public static final class Key {
+
+        public final String pattern;
+
+        public final Locale locale;
+
+        public final ZoneId zone;
+
+        public final int hash;
+
+        public Key(String pattern, Locale locale, ZoneId zone) {
+            this.pattern = pattern;
+            this.locale = locale;
+            this.zone = zone;
+            this.hash = Objects.hash(pattern, locale, zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return pattern.equals(key.pattern) && locale.equals(key.locale) && Objects.equals(zone, key.zone);
+        }
+    }
+
+    public static final class CachedFormat {
+
+        public final DateTimeFormatter formatter;
+
+        /** If non-null, the pattern only uses 'yyyy', 'MM', 'dd', 'HH', 'mm', 'ss' and literal text, encoded as field codes (FIELD_YEAR, ...) and literal chars. */
+        public final char[] fastTemplate;
+
+        public CachedFormat(DateTimeFormatter formatter, char[] fastTemplate) {
+            this.formatter = formatter;
+            this.fastTemplate = fastTemplate;
+        }
+    }
+
+    public static final char FIELD_YEAR = 1, FIELD_MONTH = 2, FIELD_DAY = 3, FIELD_HOUR = 4, FIELD_MINUTE = 5, FIELD_SECOND = 6;
+
+    /** The maximum number of entries kept per cache. When exceeded, the cache is emptied and starts refilling. */
+    public static int maxSize = 256;
+
+    public static final ConcurrentHashMap<Key, CachedFormat> formats = new ConcurrentHashMap<>();
+
+    public static final ConcurrentHashMap<String, ZoneId> zones = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached format data for the pattern, locale, and zone (which may be null), creating it if needed.
+     * Throws IllegalArgumentException for an invalid pattern, same as DateTimeFormatter.ofPattern.
+     */
+    public static CachedFormat getFormat(String pattern, Locale locale, ZoneId zone) {
+        Key key = new Key(pattern, locale, zone);
+        CachedFormat format = formats.get(key);
+        if (format == null) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, locale);
+            if (zone != null) {
+                formatter = formatter.withZone(zone);
+            }
+            format = new CachedFormat(formatter, zone == null ? compileFastTemplate(pattern) : null);
+            if (formats.size() >= maxSize) {
+                formats.clear();
+            }
+            formats.put(key, format);
+        }
+        return format;
+    }
+
+    public static DateTimeFormatter getFormatter(String pattern, Locale locale, ZoneId zone) {
+        return getFormat(pattern, locale, zone).formatter;
+    }
+
+    /**
+     * Formats the time with the given pattern, in the default format locale. Equivalent to 'DateTimeFormatter.ofPattern(pattern).format(time)'.
+     */
+    public static String format(TemporalAccessor time, String pattern) {
+        CachedFormat format = getFormat(pattern, Locale.getDefault(Locale.Category.FORMAT), null);
+        if (format.fastTemplate != null && time.isSupported(ChronoField.YEAR)) {
+            int year = time.get(ChronoField.YEAR);
+            if (year > 0 && year <= 9999) {
+                return formatFast(format.fastTemplate, time, year);
+            }
+        }
+        return format.formatter.format(time);
+    }
+
+    /**
+     * Returns the ZoneId for the given zone text. Throws DateTimeException for invalid input, same as ZoneId.of.
+     */
+    public static ZoneId getZone(String zoneText) {
+        ZoneId zone = zones.get(zoneText);
+        if (zone == null) {
+            zone = ZoneId.of(zoneText);
+            if (zones.size() >= maxSize) {
+                zones.clear();
+            }
+            zones.put(zoneText, zone);
+        }
+        return zone;
+    }
+
+    /**
+     * Returns the fast-path template for a pattern, or null if the pattern uses anything other than 4-digit years, 2-digit month/day/hour/minute/second, and literal text.
+     */
+    public static char[] compileFastTemplate(String pattern) {
+        StringBuilder template = new StringBuilder(pattern.length());
+        int len = pattern.length();
+        for (int i = 0; i < len; i++) {
+            char c = pattern.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                int end = i + 1;
+                while (end < len && pattern.charAt(end) == c) {
+                    end++;
+                }
+                int count = end - i;
+                char field;
+                switch (c) {
+                    case 'y': field = count == 4 ? FIELD_YEAR : 0; break;
+                    case 'M': field = count == 2 ? FIELD_MONTH : 0; break;
+                    case 'd': field = count == 2 ? FIELD_DAY : 0; break;
+                    case 'H': field = count == 2 ? FIELD_HOUR : 0; break;
+                    case 'm': field = count == 2 ? FIELD_MINUTE : 0; break;
+                    case 's': field = count == 2 ? FIELD_SECOND : 0; break;
+                    default: field = 0; break;
+                }
+                if (field == 0) {
+                    return null;
+                }
+                template.append(field);
+                i = end - 1;
+            }
+            else if (c == '\'') {
+                int end = pattern.indexOf('\'', i + 1);
+                if (end == -1 || end == i + 1 || (end + 1 < len && pattern.charAt(end + 1) == '\'')) {
+                    return null;
+                }
+                for (int j = i + 1; j < end; j++) {
+                    if (pattern.charAt(j) < ' ') {
+                        return null;
+                    }
+                }
+                template.append(pattern, i + 1, end);
+                i = end;
+            }
+            else if (c == '[' || c == ']' || c == '{' || c == '}' || c == '#' || c < ' ') {
+                return null;
+            }
+            else {
+                template.append(c);
+            }
+        }
+        char[] result = new char[template.length()];
+        template.getChars(0, result.length, result, 0);
+        return result;
+    }
+
+    private static void appendTwoDigits(StringBuilder output, int value) {
+        output.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    public static String formatFast(char[] template, TemporalAccessor time, int year) {
+        StringBuilder output = new StringBuilder(template.length + 4);
+        for (char c : template) {
+            switch (c) {
+                case FIELD_YEAR:
+                    appendTwoDigits(output, year / 100);
+                    appendTwoDigits(output, year % 100);
+                    break;
+                case FIELD_MONTH: appendTwoDigits(output, time.get(ChronoField.MONTH_OF_YEAR)); break;
+                case FIELD_DAY: appendTwoDigits(output, time.get(ChronoField.DAY_OF_MONTH)); break;
+                case FIELD_HOUR: appendTwoDigits(output, time.get(ChronoField.HOUR_OF_DAY)); break;
+                case FIELD_MINUTE: appendTwoDigits(output, time.get(ChronoField.MINUTE_OF_HOUR)); break;
+                case FIELD_SECOND: appendTwoDigits(output, time.get(ChronoField.SECOND_OF_MINUTE)); break;
+                default: output.append(c); break;
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,372 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lazy view of an arithmetic range of integers (eg for 'util.list_numbers'), usable as the backing list of a ListTag.
+ * Entries are generated on read, so size/get/contains are O(1) and iteration does not build the full list.
+ * Any mutation will first materialize the full range into the underlying ArrayList, after which this behaves as a normal ArrayList.
+ */
+public class NumberRangeList extends RedirectedArrayList<ObjectTag> {
+
+    private static final long serialVersionUID = 4817620367160954581L;
+
+    public final long start;
+
+    public final long step;
+
+    public final int count;
+
+    /** True once the range has been converted into real list entries (after any mutation). */
+    public boolean materialized = false;
+
+    public NumberRangeList(long start, long step, int count) {
+        this.start = start;
+        this.step = step;
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of entries in the range from 'start' to 'end' (inclusive) stepping by 'step', or -1 if the range is too large to be a list.
+     */
+    public static long rangeSize(long start, long end, long step) {
+        if (start > end) {
+            return 0;
+        }
+        long size = (end - start) / step + 1;
+        return size > Integer.MAX_VALUE - 8 || size < 0 ? -1 : size;
+    }
+
+    public final long numberAt(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+        return start + index * step;
+    }
+
+    /**
+     * Returns the index of the given number text in the range, or -1 if not present.
+     * Only exact (canonical) number text can match, same as a string comparison against the real entries would.
+     */
+    public final int indexOfText(String text) {
+        if (text == null || text.isEmpty() || text.length() > 20) {
+            return -1;
+        }
+        long value;
+        try {
+            value = Long.parseLong(text);
+        }
+        catch (NumberFormatException ex) {
+            return -1;
+        }
+        if (!Long.toString(value).equals(text) || value < start || (value - start) % step != 0) {
+            return -1;
+        }
+        long index = (value - start) / step;
+        return index < count ? (int) index : -1;
+    }
+
+    public final void materialize() {
+        if (materialized) {
+            return;
+        }
+        materialized = true;
+        super.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            super.add(new ElementTag(start + i * step));
+        }
+    }
+
+    /** Returns a new lazy copy of this range, or null if it has already been materialized. */
+    public NumberRangeList duplicateRange() {
+        if (materialized) {
+            return null;
+        }
+        return new NumberRangeList(start, step, count);
+    }
+
+    private static String textOf(Object obj) {
+        if (obj instanceof ElementTag) {
+            return ((ElementTag) obj).asString();
+        }
+        return null;
+    }
+
+    public class RangeIterator implements ListIterator<ObjectTag> {
+
+        public int index;
+
+        public RangeIterator(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public ObjectTag next() {
+            if (index >= size()) {
+                throw new NoSuchElementException();
+            }
+            return get(index++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        public ObjectTag previous() {
+            if (index <= 0) {
+                throw new NoSuchElementException();
+            }
+            return get(--index);
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+        @Override
+        public void remove() {
+            NumberRangeList.this.remove(--index);
+        }
+
+        @Override
+        public void set(ObjectTag obj) {
+            NumberRangeList.this.set(index - 1, obj);
+        }
+
+        @Override
+        public void add(ObjectTag obj) {
+            NumberRangeList.this.add(index++, obj);
+        }
+    }
+
+    // Read operations: answered directly from the range until materialized
+
+    @Override
+    public int size() {
+        return materialized ? super.size() : count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public ObjectTag get(int index) {
+        return materialized ? super.get(index) : new ElementTag(numberAt(index));
+    }
+
+    @Override
+    public int indexOf(Object obj) {
+        return materialized ? super.indexOf(obj) : indexOfText(textOf(obj));
+    }
+
+    @Override
+    public int lastIndexOf(Object obj) {
+        return materialized ? super.lastIndexOf(obj) : indexOfText(textOf(obj));
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return indexOf(obj) != -1;
+    }
+
+    @Override
+    public Iterator<ObjectTag> iterator() {
+        return materialized ? super.iterator() : new RangeIterator(0);
+    }
+
+    @Override
+    public ListIterator<ObjectTag> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<ObjectTag> listIterator(int index) {
+        return materialized ? super.listIterator(index) : new RangeIterator(index);
+    }
+
+    @Override
+    public Spliterator<ObjectTag> spliterator() {
+        return materialized ? super.spliterator() : Spliterators.spliterator(iterator(), count, Spliterator.ORDERED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super ObjectTag> action) {
+        if (materialized) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            action.accept(new ElementTag(start + i * step));
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        if (materialized) {
+            return super.toArray();
+        }
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new ElementTag(start + i * step);
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        if (materialized) {
+            return super.toArray(a);
+        }
+        T[] result = a.length >= count ? a : Arrays.copyOf(a, count);
+        Object[] values = result;
+        for (int i = 0; i < count; i++) {
+            values[i] = new ElementTag(start + i * step);
+        }
+        if (result.length > count) {
+            result[count] = null;
+        }
+        return result;
+    }
+
+    @Override
+    public List<ObjectTag> subList(int fromIndex, int toIndex) {
+        if (materialized) {
+            return super.subList(fromIndex, toIndex);
+        }
+        if (fromIndex < 0 || toIndex > count || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + count);
+        }
+        return new NumberRangeList(start + fromIndex * step, step, toIndex - fromIndex);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        materialize();
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        materialize();
+        return super.hashCode();
+    }
+
+    @Override
+    public Object clone() {
+        materialize();
+        return super.clone();
+    }
+
+    // Write operations: materialize first, then act as a normal ArrayList
+
+    @Override
+    public boolean add(ObjectTag obj) {
+        materialize();
+        return super.add(obj);
+    }
+
+    @Override
+    public void add(int index, ObjectTag obj) {
+        materialize();
+        super.add(index, obj);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ObjectTag> objs) {
+        materialize();
+        return super.addAll(objs);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends ObjectTag> objs) {
+        materialize();
+        return super.addAll(index, objs);
+    }
+
+    @Override
+    public ObjectTag set(int index, ObjectTag obj) {
+        materialize();
+        return super.set(index, obj);
+    }
+
+    @Override
+    public ObjectTag remove(int index) {
+        materialize();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        materialize();
+        return super.remove(obj);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> objs) {
+        materialize();
+        return super.removeAll(objs);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> objs) {
+        materialize();
+        return super.retainAll(objs);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super ObjectTag> filter) {
+        materialize();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<ObjectTag> operator) {
+        materialize();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super ObjectTag> comparator) {
+        materialize();
+        super.sort(comparator);
+    }
+
+    @Override
+    public void clear() {
+        materialized = true;
+        super.clear();
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        materialize();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public void trimToSize() {
+        materialize();
+        super.trimToSize();
+    }
+}
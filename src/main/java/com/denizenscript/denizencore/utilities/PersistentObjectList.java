@@ -0,0 +1,661 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * The backing list of a ListTag. Larger lists are stored in a PersistentVector so that 'duplicate' can share structure with the original rather than copying it.
+ * Small lists (up to SMALL_LIST_SIZE entries) just use the normal ArrayList storage, as copying them is as cheap as sharing them, and they take less memory that way.
+ * The one fixed cost is this class's own two fields, which make every list 8 bytes larger than a plain ArrayList (ArrayList has no padding to fit them in).
+ * ListTag can't swap in a plain ArrayList for small lists instead, as 'objectForms' is final and other code adds to it directly, so a list could never be upgraded once it grows.
+ */
+public class PersistentObjectList extends RedirectedArrayList<ObjectTag> {
+
+    private static final long serialVersionUID = 7345016281764021953L;
+
+    /** The largest size a list can be while still using plain ArrayList storage. */
+    public static final int SMALL_LIST_SIZE = 32;
+
+    /**
+     * Returns true if the object can't be shared between two copies of a list or map, ie its 'duplicate()' may return a different object.
+     */
+    public static boolean needsDuplicate(ObjectTag object) {
+        return object != null && !(object instanceof ElementTag);
+    }
+
+    /** The persistent storage for this list, or null if this is a small list using the ArrayList storage. */
+    public PersistentVector<ObjectTag> vector;
+
+    /** The number of entries in the vector that 'needsDuplicate'. When 0, a duplicate of this list is just a shared copy. */
+    public int deepValues = 0;
+
+    public PersistentObjectList() {
+    }
+
+    /**
+     * Creates an empty list with room for the given number of entries, up to the small list limit (larger lists use vector storage anyway).
+     */
+    public PersistentObjectList(int initialCapacity) {
+        super(Math.min(initialCapacity, SMALL_LIST_SIZE + 1));
+    }
+
+    public PersistentObjectList(Collection<? extends ObjectTag> values) {
+        addAll(values);
+    }
+
+    private PersistentObjectList(PersistentVector<ObjectTag> vector, int deepValues) {
+        this.vector = vector;
+        this.deepValues = deepValues;
+    }
+
+    /**
+     * Returns a copy of this list that shares structure with it. Values that 'needsDuplicate' are duplicated, all others are shared.
+     */
+    public PersistentObjectList duplicate() {
+        PersistentObjectList copy;
+        if (vector == null) {
+            copy = new PersistentObjectList();
+            copy.plainAddAll(this);
+        }
+        else {
+            copy = new PersistentObjectList(vector.duplicate(), deepValues);
+            if (deepValues == 0) {
+                return copy;
+            }
+        }
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            ObjectTag value = get(i);
+            if (needsDuplicate(value)) {
+                ObjectTag newValue = value.duplicate();
+                if (newValue != value) {
+                    copy.set(i, newValue);
+                }
+            }
+        }
+        return copy;
+    }
+
+    private void plainAddAll(Collection<? extends ObjectTag> values) {
+        super.addAll(values);
+    }
+
+    private void track(ObjectTag added, ObjectTag removed) {
+        if (needsDuplicate(added)) {
+            deepValues++;
+        }
+        if (needsDuplicate(removed)) {
+            deepValues--;
+        }
+    }
+
+    /**
+     * Replaces the contents of this list, using whichever storage fits the new size.
+     */
+    private void rebuild(Object[] values, int count) {
+        super.clear();
+        deepValues = 0;
+        if (count <= SMALL_LIST_SIZE) {
+            vector = null;
+            for (int i = 0; i < count; i++) {
+                super.add((ObjectTag) values[i]);
+            }
+            return;
+        }
+        super.trimToSize();
+        vector = new PersistentVector<>(values, count);
+        for (int i = 0; i < count; i++) {
+            track((ObjectTag) values[i], null);
+        }
+    }
+
+    /**
+     * Moves a small list that has grown too large into vector storage.
+     */
+    private void checkSize() {
+        if (super.size() > SMALL_LIST_SIZE) {
+            Object[] values = super.toArray();
+            rebuild(values, values.length);
+        }
+    }
+
+    public class PersistentIterator implements ListIterator<ObjectTag> {
+
+        public int index;
+
+        public int lastIndex = -1;
+
+        public int expectedModCount = modCount;
+
+        public Object[] array;
+
+        public int arrayStart = -1;
+
+        public PersistentIterator(int index) {
+            this.index = index;
+        }
+
+        private void checkModified() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public ObjectTag next() {
+            checkModified();
+            if (index >= size()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = index++;
+            if (vector == null) {
+                return PersistentObjectList.super.get(lastIndex);
+            }
+            int start = lastIndex & ~31;
+            if (start != arrayStart) {
+                array = vector.arrayFor(lastIndex);
+                arrayStart = start;
+            }
+            return (ObjectTag) array[lastIndex & 31];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        public ObjectTag previous() {
+            checkModified();
+            if (index <= 0) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = --index;
+            return get(index);
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModified();
+            PersistentObjectList.this.remove(lastIndex);
+            index = lastIndex;
+            lastIndex = -1;
+            arrayStart = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(ObjectTag obj) {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModified();
+            PersistentObjectList.this.set(lastIndex, obj);
+            arrayStart = -1;
+        }
+
+        @Override
+        public void add(ObjectTag obj) {
+            checkModified();
+            PersistentObjectList.this.add(index++, obj);
+            lastIndex = -1;
+            arrayStart = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    public class SubList extends AbstractList<ObjectTag> implements RandomAccess {
+
+        public final int offset;
+
+        public int size;
+
+        public SubList(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+
+        @Override
+        public ObjectTag get(int index) {
+            checkIndex(index);
+            return PersistentObjectList.this.get(offset + index);
+        }
+
+        @Override
+        public ObjectTag set(int index, ObjectTag obj) {
+            checkIndex(index);
+            return PersistentObjectList.this.set(offset + index, obj);
+        }
+
+        @Override
+        public void add(int index, ObjectTag obj) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            PersistentObjectList.this.add(offset + index, obj);
+            size++;
+        }
+
+        @Override
+        public ObjectTag remove(int index) {
+            checkIndex(index);
+            size--;
+            return PersistentObjectList.this.remove(offset + index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            PersistentObjectList.this.removeRange(offset + fromIndex, offset + toIndex);
+            size -= toIndex - fromIndex;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // Read operations
+
+    @Override
+    public int size() {
+        return vector == null ? super.size() : vector.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public ObjectTag get(int index) {
+        return vector == null ? super.get(index) : vector.get(index);
+    }
+
+    @Override
+    public int indexOf(Object obj) {
+        if (vector == null) {
+            return super.indexOf(obj);
+        }
+        for (int i = 0; i < vector.size; i++) {
+            if (Objects.equals(obj, vector.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object obj) {
+        if (vector == null) {
+            return super.lastIndexOf(obj);
+        }
+        for (int i = vector.size - 1; i >= 0; i--) {
+            if (Objects.equals(obj, vector.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return indexOf(obj) != -1;
+    }
+
+    @Override
+    public Iterator<ObjectTag> iterator() {
+        return new PersistentIterator(0);
+    }
+
+    @Override
+    public ListIterator<ObjectTag> listIterator() {
+        return new PersistentIterator(0);
+    }
+
+    @Override
+    public ListIterator<ObjectTag> listIterator(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return new PersistentIterator(index);
+    }
+
+    @Override
+    public Spliterator<ObjectTag> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super ObjectTag> action) {
+        if (vector == null) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0; i < vector.size; i += 32) {
+            Object[] array = vector.arrayFor(i);
+            int max = Math.min(32, vector.size - i);
+            for (int x = 0; x < max; x++) {
+                action.accept((ObjectTag) array[x]);
+            }
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        return vector == null ? super.toArray() : vector.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        if (vector == null) {
+            return super.toArray(a);
+        }
+        int size = vector.size;
+        T[] result = a.length >= size ? a : Arrays.copyOf(a, size);
+        for (int i = 0; i < size; i += 32) {
+            System.arraycopy(vector.arrayFor(i), 0, result, i, Math.min(32, size - i));
+        }
+        if (result.length > size) {
+            result[size] = null;
+        }
+        return result;
+    }
+
+    @Override
+    public List<ObjectTag> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+        }
+        return new SubList(fromIndex, toIndex - fromIndex);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>) obj;
+        if (other.size() != size()) {
+            return false;
+        }
+        Iterator<?> otherIterator = other.iterator();
+        for (ObjectTag value : this) {
+            if (!Objects.equals(value, otherIterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (ObjectTag value : this) {
+            hash = 31 * hash + Objects.hashCode(value);
+        }
+        return hash;
+    }
+
+    @Override
+    public Object clone() {
+        if (vector == null) {
+            PersistentObjectList copy = new PersistentObjectList();
+            copy.plainAddAll(this);
+            return copy;
+        }
+        return new PersistentObjectList(vector.duplicate(), deepValues);
+    }
+
+    // Write operations
+
+    @Override
+    public boolean add(ObjectTag obj) {
+        if (vector == null) {
+            super.add(obj);
+            checkSize();
+            return true;
+        }
+        vector.add(obj);
+        track(obj, null);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, ObjectTag obj) {
+        if (vector == null) {
+            super.add(index, obj);
+            checkSize();
+            return;
+        }
+        int size = vector.size;
+        if (index == size) {
+            add(obj);
+            return;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[] values = new Object[size + 1];
+        Object[] current = vector.toArray();
+        System.arraycopy(current, 0, values, 0, index);
+        values[index] = obj;
+        System.arraycopy(current, index, values, index + 1, size - index);
+        rebuild(values, size + 1);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ObjectTag> objs) {
+        if (vector == null) {
+            boolean result = super.addAll(objs);
+            checkSize();
+            return result;
+        }
+        if (objs.isEmpty()) {
+            return false;
+        }
+        for (ObjectTag obj : objs) {
+            vector.add(obj);
+            track(obj, null);
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends ObjectTag> objs) {
+        if (vector == null) {
+            boolean result = super.addAll(index, objs);
+            checkSize();
+            return result;
+        }
+        int size = vector.size;
+        if (index == size) {
+            return addAll(objs);
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[] added = objs.toArray();
+        if (added.length == 0) {
+            return false;
+        }
+        Object[] values = new Object[size + added.length];
+        Object[] current = vector.toArray();
+        System.arraycopy(current, 0, values, 0, index);
+        System.arraycopy(added, 0, values, index, added.length);
+        System.arraycopy(current, index, values, index + added.length, size - index);
+        rebuild(values, values.length);
+        return true;
+    }
+
+    @Override
+    public ObjectTag set(int index, ObjectTag obj) {
+        if (vector == null) {
+            return super.set(index, obj);
+        }
+        ObjectTag old = vector.set(index, obj);
+        track(obj, old);
+        return old;
+    }
+
+    @Override
+    public ObjectTag remove(int index) {
+        if (vector == null) {
+            return super.remove(index);
+        }
+        int size = vector.size;
+        if (index == size - 1) {
+            ObjectTag old = vector.removeLast();
+            track(null, old);
+            modCount++;
+            return old;
+        }
+        vector.checkIndex(index);
+        Object[] values = vector.toArray();
+        ObjectTag old = (ObjectTag) values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        rebuild(values, size - 1);
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        int index = indexOf(obj);
+        if (index == -1) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (vector == null) {
+            super.removeRange(fromIndex, toIndex);
+            return;
+        }
+        int size = vector.size;
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        if (toIndex == size && toIndex - fromIndex <= 32) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                track(null, vector.removeLast());
+            }
+            modCount++;
+            return;
+        }
+        Object[] values = vector.toArray();
+        System.arraycopy(values, toIndex, values, fromIndex, size - toIndex);
+        rebuild(values, size - (toIndex - fromIndex));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> objs) {
+        return removeIf(objs::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> objs) {
+        return removeIf(obj -> !objs.contains(obj));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super ObjectTag> filter) {
+        if (vector == null) {
+            return super.removeIf(filter);
+        }
+        Object[] values = vector.toArray();
+        int count = 0;
+        for (Object value : values) {
+            if (!filter.test((ObjectTag) value)) {
+                values[count++] = value;
+            }
+        }
+        if (count == values.length) {
+            return false;
+        }
+        rebuild(values, count);
+        return true;
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<ObjectTag> operator) {
+        if (vector == null) {
+            super.replaceAll(operator);
+            return;
+        }
+        for (int i = 0; i < vector.size; i++) {
+            set(i, operator.apply(vector.get(i)));
+        }
+    }
+
+    @Override
+    public void sort(Comparator<? super ObjectTag> comparator) {
+        if (vector == null) {
+            super.sort(comparator);
+            return;
+        }
+        ObjectTag[] values = toArray(new ObjectTag[vector.size]);
+        Arrays.sort(values, comparator);
+        rebuild(values, values.length);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        vector = null;
+        deepValues = 0;
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (vector == null) {
+            super.ensureCapacity(Math.min(minCapacity, SMALL_LIST_SIZE + 1));
+        }
+    }
+
+    @Override
+    public void trimToSize() {
+        if (vector == null) {
+            super.trimToSize();
+        }
+    }
+}
@@ -0,0 +1,1177 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The backing map of a MapTag: a persistent (structurally shared) hash array mapped trie for key lookup,
+ * plus a PersistentVector of the entries in insertion order (removed entries leave a null gap until the next compaction).
+ * A 'duplicate' shares both structures with the original, and whichever side writes next only copies the nodes along the path it changes.
+ * Nodes and entries created since the last duplicate are owned by this map (matching 'edit' token) and are modified in place.
+ * Small maps (up to SMALL_MAP_SIZE entries, eg most flag maps) instead just hold parallel key/value arrays in insertion order, searched linearly,
+ * and only upgrade to the trie when they grow past that.
+ * Lookups (get/containsKey/remove) accept either a StringHolder or a raw String key, the latter is matched case-insensitively without allocating anything.
+ * A map can also be created with its content still pending (see 'pendingFill'), in which case it is only filled in when first used.
+ * Duplicating never changes the original map's fields (see 'PersistentVector'), so a duplicate can safely be taken while other threads read the original.
+ * Extends LinkedHashMap only so it can be used where one is expected (eg 'MapTag.map'): every method is redirected to this map's own storage, and the LinkedHashMap storage is never used (see RedirectedLinkedHashMap).
+ * Writes are not thread-safe, same as LinkedHashMap.
+ */
+public class PersistentObjectMap extends RedirectedLinkedHashMap<StringHolder, ObjectTag> {
+
+    private static final long serialVersionUID = 6209185727043914386L;
+
+    /** A stored entry. Entries may be shared between maps, so these are never given out: iteration returns an 'EntryView' instead. */
+    public static final class Entry {
+
+        public final StringHolder key;
+
+        public final int hash;
+
+        public ObjectTag value;
+
+        /** The index of this entry in the insertion-order vector. */
+        public final int index;
+
+        public final PersistentVector.Edit edit;
+
+        public Entry(StringHolder key, int hash, ObjectTag value, int index, PersistentVector.Edit edit) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.index = index;
+            this.edit = edit;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * An entry as given out by iteration. 'setValue' changes the value in this map only, same as 'put'.
+     */
+    public final class EntryView implements Map.Entry<StringHolder, ObjectTag> {
+
+        public final StringHolder key;
+
+        public ObjectTag value;
+
+        public EntryView(StringHolder key, ObjectTag value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public StringHolder getKey() {
+            return key;
+        }
+
+        @Override
+        public ObjectTag getValue() {
+            return value;
+        }
+
+        @Override
+        public ObjectTag setValue(ObjectTag value) {
+            ObjectTag old = this.value;
+            put(key, value);
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /** A trie node, holding an Entry or a sub-node for each bit set in the bitmap. */
+    public static final class BitmapNode {
+
+        public final PersistentVector.Edit edit;
+
+        public int bitmap;
+
+        public Object[] array;
+
+        public BitmapNode(PersistentVector.Edit edit, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+    }
+
+    /** A trie leaf holding entries whose keys have exactly the same hash. */
+    public static final class CollisionNode {
+
+        public final PersistentVector.Edit edit;
+
+        public final int hash;
+
+        public Entry[] entries;
+
+        public CollisionNode(PersistentVector.Edit edit, int hash, Entry[] entries) {
+            this.edit = edit;
+            this.hash = hash;
+            this.entries = entries;
+        }
+    }
+
+    public static final BitmapNode EMPTY_ROOT = new BitmapNode(null, 0, new Object[0]);
+
+    public static int hash(StringHolder key) {
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean isKey(Object key) {
+        return key instanceof StringHolder || key instanceof String;
+    }
+
+    /**
+     * Returns the StringHolder hash code of a StringHolder or raw String key.
+     */
+    private static int lowHashOf(Object key) {
+        return key instanceof StringHolder ? key.hashCode() : StringHolder.lowHash((String) key);
+    }
+
+    private static boolean keyMatches(StringHolder candidate, int lowHash, Object key) {
+        if (candidate == key) {
+            return true;
+        }
+        String low = candidate.low;
+        if (low.hashCode() != lowHash) {
+            return false;
+        }
+        if (key instanceof StringHolder) {
+            return low.equals(((StringHolder) key).low);
+        }
+        return candidate.str.equals(key) || CoreUtilities.equalsIgnoreCase(low, (String) key);
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    /** The largest size a map can be while still using the small array form. */
+    public static final int SMALL_MAP_SIZE = 8;
+
+    public static final StringHolder[] EMPTY_KEYS = new StringHolder[0];
+
+    public static final ObjectTag[] EMPTY_VALUES = new ObjectTag[0];
+
+    /** Keys of a small map, in insertion order, or null if this map is in trie form. Never shared with another map. */
+    public StringHolder[] smallKeys = EMPTY_KEYS;
+
+    /** Values of a small map, matching 'smallKeys'. */
+    public ObjectTag[] smallValues = EMPTY_VALUES;
+
+    /** The trie root, or null if this is a small map. */
+    public BitmapNode root;
+
+    /** Entries in insertion order, or null if this is a small map. */
+    public PersistentVector<Entry> order;
+
+    public int size = 0;
+
+    /** The number of values that 'PersistentObjectList.needsDuplicate'. When 0, a duplicate of this map is just a shared copy. */
+    public int deepValues = 0;
+
+    /** Ownership token: nodes and entries with this edit token belong to this map alone, unless it's marked shared. Null if this is a small map. */
+    public PersistentVector.Edit edit;
+
+    public int modCount = 0;
+
+    private EntrySet entrySet;
+
+    private KeySet keySet;
+
+    private Values values;
+
+    /**
+     * If non-null, this map's content hasn't been filled in yet (eg a lazily parsed MapTag). Before the map is first read or changed,
+     * this is called once with a fresh empty map to fill, and this map takes on that content.
+     */
+    public volatile Consumer<PersistentObjectMap> pendingFill;
+
+    public PersistentObjectMap() {
+    }
+
+    /**
+     * Fills in pending content, if any. Safe to call from multiple threads at once.
+     */
+    public final void resolvePending() {
+        if (pendingFill != null) {
+            fillPending();
+        }
+    }
+
+    private synchronized void fillPending() {
+        Consumer<PersistentObjectMap> fill = pendingFill;
+        if (fill == null) {
+            return;
+        }
+        PersistentObjectMap filled = new PersistentObjectMap();
+        fill.accept(filled);
+        smallKeys = filled.smallKeys;
+        smallValues = filled.smallValues;
+        root = filled.root;
+        order = filled.order;
+        edit = filled.edit;
+        size = filled.size;
+        deepValues = filled.deepValues;
+        modCount++;
+        pendingFill = null;
+    }
+
+    public PersistentObjectMap(Map<StringHolder, ObjectTag> map) {
+        putAll(map);
+    }
+
+    /**
+     * Returns the key to look up a raw String with in the map: the String itself for a PersistentObjectMap (which accepts raw String keys), or a StringHolder for any other map.
+     */
+    public static Object lookupKey(Map<StringHolder, ?> map, String key) {
+        return map instanceof PersistentObjectMap ? key : new StringHolder(key);
+    }
+
+    /**
+     * Returns a copy of this map that shares structure with it. Values that 'needsDuplicate' are duplicated, all others are shared.
+     */
+    public PersistentObjectMap duplicate() {
+        PersistentObjectMap copy = share();
+        if (copy.pendingFill != null || deepValues == 0) {
+            return copy;
+        }
+        if (copy.smallKeys != null) {
+            for (int i = 0; i < copy.size; i++) {
+                ObjectTag value = copy.smallValues[i];
+                if (PersistentObjectList.needsDuplicate(value)) {
+                    ObjectTag newValue = value.duplicate();
+                    if (newValue != value) {
+                        copy.smallReplace(i, newValue);
+                    }
+                }
+            }
+            return copy;
+        }
+        PersistentVector<Entry> order = copy.order;
+        for (int i = 0; i < order.size; i++) {
+            Entry entry = order.get(i);
+            if (entry != null && PersistentObjectList.needsDuplicate(entry.value)) {
+                ObjectTag newValue = entry.value.duplicate();
+                if (newValue != entry.value) {
+                    copy.replaceValue(entry, newValue);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this map with all values shared. Small maps copy their arrays, larger ones share their structure.
+     * Only marks this map's edit token as shared, never changes this map's fields.
+     */
+    private PersistentObjectMap share() {
+        PersistentObjectMap copy = new PersistentObjectMap();
+        Consumer<PersistentObjectMap> fill = pendingFill;
+        if (fill != null) {
+            copy.pendingFill = fill;
+            return copy;
+        }
+        StringHolder[] keys = smallKeys;
+        if (keys != null) {
+            int size = this.size;
+            copy.smallKeys = Arrays.copyOf(keys, size);
+            copy.smallValues = Arrays.copyOf(smallValues, size);
+            copy.size = size;
+            copy.deepValues = deepValues;
+            return copy;
+        }
+        copy.size = size;
+        copy.deepValues = deepValues;
+        copy.smallKeys = null;
+        copy.smallValues = null;
+        copy.root = root;
+        copy.order = order.duplicate();
+        copy.edit = new PersistentVector.Edit();
+        edit.shared = true;
+        return copy;
+    }
+
+    /**
+     * Takes a new edit token if the current one is shared, so that shared nodes and entries aren't modified in place.
+     */
+    private void ownEdit() {
+        if (edit.shared) {
+            edit = new PersistentVector.Edit();
+        }
+    }
+
+    /**
+     * Returns the index of the StringHolder or raw String key in the small arrays, or -1 if not present.
+     */
+    private int smallIndexOf(Object key, int lowHash) {
+        StringHolder[] keys = smallKeys;
+        for (int i = 0; i < size; i++) {
+            if (keyMatches(keys[i], lowHash, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ObjectTag smallReplace(int index, ObjectTag value) {
+        ObjectTag old = smallValues[index];
+        track(value, old);
+        smallValues[index] = value;
+        return old;
+    }
+
+    /**
+     * Converts a small map to trie form.
+     */
+    private void upgrade() {
+        edit = new PersistentVector.Edit();
+        root = EMPTY_ROOT;
+        order = new PersistentVector<>();
+        for (int i = 0; i < size; i++) {
+            StringHolder key = smallKeys[i];
+            Entry entry = new Entry(key, hash(key), smallValues[i], i, edit);
+            root = (BitmapNode) assoc(root, 0, entry);
+            order.add(entry);
+        }
+        smallKeys = null;
+        smallValues = null;
+    }
+
+    private ObjectTag smallPut(StringHolder key, ObjectTag value) {
+        int index = smallIndexOf(key, key.hashCode());
+        if (index != -1) {
+            return smallReplace(index, value);
+        }
+        if (size == smallKeys.length) {
+            int newLength = Math.min(SMALL_MAP_SIZE, Math.max(2, size * 2));
+            smallKeys = Arrays.copyOf(smallKeys, newLength);
+            smallValues = Arrays.copyOf(smallValues, newLength);
+        }
+        smallKeys[size] = key;
+        smallValues[size] = value;
+        size++;
+        modCount++;
+        track(value, null);
+        return null;
+    }
+
+    private void smallRemove(int index) {
+        ObjectTag old = smallValues[index];
+        int moved = size - index - 1;
+        System.arraycopy(smallKeys, index + 1, smallKeys, index, moved);
+        System.arraycopy(smallValues, index + 1, smallValues, index, moved);
+        size--;
+        smallKeys[size] = null;
+        smallValues[size] = null;
+        modCount++;
+        track(null, old);
+    }
+
+    private void track(ObjectTag added, ObjectTag removed) {
+        if (PersistentObjectList.needsDuplicate(added)) {
+            deepValues++;
+        }
+        if (PersistentObjectList.needsDuplicate(removed)) {
+            deepValues--;
+        }
+    }
+
+    private Entry getEntry(Object key, int lowHash) {
+        int hash = spread(lowHash);
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof BitmapNode) {
+                BitmapNode bitmapNode = (BitmapNode) node;
+                int bit = bitFor(hash, shift);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = bitmapNode.array[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+                shift += 5;
+            }
+            else if (node instanceof Entry) {
+                Entry entry = (Entry) node;
+                return entry.hash == hash && keyMatches(entry.key, lowHash, key) ? entry : null;
+            }
+            else {
+                CollisionNode collisionNode = (CollisionNode) node;
+                if (collisionNode.hash == hash) {
+                    for (Entry entry : collisionNode.entries) {
+                        if (keyMatches(entry.key, lowHash, key)) {
+                            return entry;
+                        }
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    private BitmapNode editable(BitmapNode node) {
+        return node.edit == edit ? node : new BitmapNode(edit, node.bitmap, node.array.clone());
+    }
+
+    /**
+     * Returns the node with the entry added, or replacing any existing entry with the same key.
+     */
+    private Object assoc(Object node, int shift, Entry entry) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collisionNode = (CollisionNode) node;
+            if (collisionNode.hash != entry.hash) {
+                BitmapNode wrapper = new BitmapNode(edit, bitFor(collisionNode.hash, shift), new Object[] { collisionNode });
+                return assoc(wrapper, shift, entry);
+            }
+            Entry[] entries = collisionNode.entries;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    if (collisionNode.edit != edit) {
+                        collisionNode = new CollisionNode(edit, collisionNode.hash, entries.clone());
+                    }
+                    collisionNode.entries[i] = entry;
+                    return collisionNode;
+                }
+            }
+            Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            if (collisionNode.edit != edit) {
+                return new CollisionNode(edit, collisionNode.hash, newEntries);
+            }
+            collisionNode.entries = newEntries;
+            return collisionNode;
+        }
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bitFor(entry.hash, shift);
+        int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+        if ((bitmapNode.bitmap & bit) == 0) {
+            Object[] array = bitmapNode.array;
+            Object[] newArray = new Object[array.length + 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            newArray[index] = entry;
+            System.arraycopy(array, index, newArray, index + 1, array.length - index);
+            if (bitmapNode.edit != edit) {
+                return new BitmapNode(edit, bitmapNode.bitmap | bit, newArray);
+            }
+            bitmapNode.bitmap |= bit;
+            bitmapNode.array = newArray;
+            return bitmapNode;
+        }
+        Object child = bitmapNode.array[index];
+        Object newChild;
+        if (child instanceof Entry) {
+            Entry existing = (Entry) child;
+            if (existing.hash == entry.hash && existing.key.equals(entry.key)) {
+                newChild = entry;
+            }
+            else {
+                newChild = merge(shift + 5, existing, entry);
+            }
+        }
+        else {
+            newChild = assoc(child, shift + 5, entry);
+        }
+        if (newChild == child) {
+            return bitmapNode;
+        }
+        bitmapNode = editable(bitmapNode);
+        bitmapNode.array[index] = newChild;
+        return bitmapNode;
+    }
+
+    private Object merge(int shift, Entry first, Entry second) {
+        if (first.hash == second.hash) {
+            return new CollisionNode(edit, first.hash, new Entry[] { first, second });
+        }
+        int firstIndex = (first.hash >>> shift) & 31, secondIndex = (second.hash >>> shift) & 31;
+        if (firstIndex == secondIndex) {
+            return new BitmapNode(edit, 1 << firstIndex, new Object[] { merge(shift + 5, first, second) });
+        }
+        return new BitmapNode(edit, (1 << firstIndex) | (1 << secondIndex), firstIndex < secondIndex ? new Object[] { first, second } : new Object[] { second, first });
+    }
+
+    /**
+     * Returns the node with the entry for the key removed, or null if the node is now empty.
+     */
+    private Object without(Object node, int shift, Entry entry) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collisionNode = (CollisionNode) node;
+            Entry[] entries = collisionNode.entries;
+            int index = -1;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == entry) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == -1) {
+                return collisionNode;
+            }
+            if (entries.length == 2) {
+                return entries[1 - index];
+            }
+            Entry[] newEntries = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, newEntries.length - index);
+            if (collisionNode.edit != edit) {
+                return new CollisionNode(edit, collisionNode.hash, newEntries);
+            }
+            collisionNode.entries = newEntries;
+            return collisionNode;
+        }
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bitFor(entry.hash, shift);
+        if ((bitmapNode.bitmap & bit) == 0) {
+            return bitmapNode;
+        }
+        int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+        Object child = bitmapNode.array[index];
+        Object newChild = child == entry ? null : child instanceof Entry ? child : without(child, shift + 5, entry);
+        if (newChild == child) {
+            return bitmapNode;
+        }
+        if (newChild == null) {
+            if (bitmapNode.bitmap == bit) {
+                return null;
+            }
+            Object[] array = bitmapNode.array;
+            Object[] newArray = new Object[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 1, newArray, index, newArray.length - index);
+            if (bitmapNode.edit != edit) {
+                return new BitmapNode(edit, bitmapNode.bitmap ^ bit, newArray);
+            }
+            bitmapNode.bitmap ^= bit;
+            bitmapNode.array = newArray;
+            return bitmapNode;
+        }
+        if (newChild instanceof BitmapNode && ((BitmapNode) newChild).array.length == 1 && ((BitmapNode) newChild).array[0] instanceof Entry) {
+            newChild = ((BitmapNode) newChild).array[0];
+        }
+        bitmapNode = editable(bitmapNode);
+        bitmapNode.array[index] = newChild;
+        return bitmapNode;
+    }
+
+    private void replaceValue(Entry existing, ObjectTag value) {
+        track(value, existing.value);
+        ownEdit();
+        if (existing.edit == edit) {
+            existing.value = value;
+            return;
+        }
+        Entry entry = new Entry(existing.key, existing.hash, value, existing.index, edit);
+        root = (BitmapNode) assoc(root, 0, entry);
+        order.set(entry.index, entry);
+    }
+
+    private void removeEntry(Entry entry, boolean allowCompact) {
+        ownEdit();
+        BitmapNode newRoot = (BitmapNode) without(root, 0, entry);
+        root = newRoot == null ? EMPTY_ROOT : newRoot;
+        order.set(entry.index, null);
+        size--;
+        modCount++;
+        track(null, entry.value);
+        if (!allowCompact) {
+            return;
+        }
+        if (size == 0) {
+            clear();
+        }
+        else if (order.size - size > size && (size <= SMALL_MAP_SIZE || order.size - size > 32)) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuilds the map without gaps left by removed entries, going back to the small array form if it fits.
+     */
+    public void compact() {
+        resolvePending();
+        if (smallKeys != null) {
+            return;
+        }
+        PersistentVector<Entry> oldOrder = order;
+        if (size <= SMALL_MAP_SIZE) {
+            smallKeys = new StringHolder[size];
+            smallValues = new ObjectTag[size];
+            int index = 0;
+            for (int i = 0; i < oldOrder.size; i++) {
+                Entry entry = oldOrder.get(i);
+                if (entry != null) {
+                    smallKeys[index] = entry.key;
+                    smallValues[index++] = entry.value;
+                }
+            }
+            root = null;
+            order = null;
+            edit = null;
+            modCount++;
+            return;
+        }
+        ownEdit();
+        root = EMPTY_ROOT;
+        order = new PersistentVector<>();
+        for (int i = 0; i < oldOrder.size; i++) {
+            Entry entry = oldOrder.get(i);
+            if (entry != null) {
+                Entry newEntry = new Entry(entry.key, entry.hash, entry.value, order.size, edit);
+                root = (BitmapNode) assoc(root, 0, newEntry);
+                order.add(newEntry);
+            }
+        }
+        modCount++;
+    }
+
+    public class EntryIterator implements Iterator<Map.Entry<StringHolder, ObjectTag>> {
+
+        public int index = 0;
+
+        /** The next stored entry to return (only set for a map in trie form), and the key of the last returned entry. */
+        public Entry next;
+
+        public StringHolder lastKey;
+
+        public int expectedModCount = modCount;
+
+        public EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            if (smallKeys != null) {
+                return;
+            }
+            PersistentVector<Entry> order = PersistentObjectMap.this.order;
+            while (index < order.size) {
+                Entry entry = (Entry) order.arrayFor(index)[index & 31];
+                index++;
+                if (entry != null) {
+                    next = entry;
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return smallKeys != null ? index < size : next != null;
+        }
+
+        @Override
+        public EntryView next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            EntryView result;
+            if (smallKeys != null) {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                result = new EntryView(smallKeys[index], smallValues[index]);
+                index++;
+            }
+            else {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                result = new EntryView(next.key, next.value);
+                advance();
+            }
+            lastKey = result.key;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (smallKeys != null) {
+                smallRemove(index - 1);
+                index--;
+            }
+            else {
+                removeEntry(getEntry(lastKey, lastKey.hashCode()), false);
+            }
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    public class EntrySet extends AbstractSet<Map.Entry<StringHolder, ObjectTag>> {
+
+        @Override
+        public Iterator<Map.Entry<StringHolder, ObjectTag>> iterator() {
+            resolvePending();
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return PersistentObjectMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object obj) {
+            if (!contains(obj)) {
+                return false;
+            }
+            PersistentObjectMap.this.remove(((Map.Entry<?, ?>) obj).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            PersistentObjectMap.this.clear();
+        }
+    }
+
+    public class KeySet extends AbstractSet<StringHolder> {
+
+        @Override
+        public Iterator<StringHolder> iterator() {
+            resolvePending();
+            EntryIterator entries = new EntryIterator();
+            return new Iterator<StringHolder>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public StringHolder next() {
+                    return entries.next().key;
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return PersistentObjectMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return containsKey(obj);
+        }
+
+        @Override
+        public boolean remove(Object obj) {
+            if (!containsKey(obj)) {
+                return false;
+            }
+            PersistentObjectMap.this.remove(obj);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            PersistentObjectMap.this.clear();
+        }
+    }
+
+    public class Values extends AbstractCollection<ObjectTag> {
+
+        @Override
+        public Iterator<ObjectTag> iterator() {
+            resolvePending();
+            EntryIterator entries = new EntryIterator();
+            return new Iterator<ObjectTag>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public ObjectTag next() {
+                    return entries.next().value;
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return PersistentObjectMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return containsValue(obj);
+        }
+
+        @Override
+        public void clear() {
+            PersistentObjectMap.this.clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<StringHolder, ObjectTag>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    @Override
+    public Set<StringHolder> keySet() {
+        if (keySet == null) {
+            keySet = new KeySet();
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<ObjectTag> values() {
+        if (values == null) {
+            values = new Values();
+        }
+        return values;
+    }
+
+    @Override
+    public int size() {
+        resolvePending();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public ObjectTag get(Object key) {
+        if (!isKey(key)) {
+            return null;
+        }
+        resolvePending();
+        int lowHash = lowHashOf(key);
+        if (smallKeys != null) {
+            int index = smallIndexOf(key, lowHash);
+            return index == -1 ? null : smallValues[index];
+        }
+        Entry entry = getEntry(key, lowHash);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!isKey(key)) {
+            return false;
+        }
+        resolvePending();
+        int lowHash = lowHashOf(key);
+        if (smallKeys != null) {
+            return smallIndexOf(key, lowHash) != -1;
+        }
+        return getEntry(key, lowHash) != null;
+    }
+
+    /**
+     * Puts a value under a raw String key. A StringHolder for the key is only needed (and is taken from 'StringHolder.intern') if the key is new to this map.
+     */
+    public ObjectTag put(String key, ObjectTag value) {
+        resolvePending();
+        int lowHash = StringHolder.lowHash(key);
+        if (smallKeys != null) {
+            int index = smallIndexOf(key, lowHash);
+            if (index != -1) {
+                return smallReplace(index, value);
+            }
+        }
+        else {
+            Entry existing = getEntry(key, lowHash);
+            if (existing != null) {
+                ObjectTag old = existing.value;
+                replaceValue(existing, value);
+                return old;
+            }
+        }
+        return put(StringHolder.intern(key), value);
+    }
+
+    @Override
+    public ObjectTag put(StringHolder key, ObjectTag value) {
+        resolvePending();
+        if (smallKeys != null) {
+            if (size < SMALL_MAP_SIZE) {
+                return smallPut(key, value);
+            }
+            int index = smallIndexOf(key, key.hashCode());
+            if (index != -1) {
+                return smallReplace(index, value);
+            }
+            upgrade();
+        }
+        Entry existing = getEntry(key, key.hashCode());
+        if (existing != null) {
+            ObjectTag old = existing.value;
+            replaceValue(existing, value);
+            return old;
+        }
+        ownEdit();
+        Entry entry = new Entry(key, hash(key), value, order.size, edit);
+        root = (BitmapNode) assoc(root, 0, entry);
+        order.add(entry);
+        size++;
+        modCount++;
+        track(value, null);
+        return null;
+    }
+
+    @Override
+    public ObjectTag remove(Object key) {
+        if (!isKey(key)) {
+            return null;
+        }
+        resolvePending();
+        int lowHash = lowHashOf(key);
+        if (smallKeys != null) {
+            int index = smallIndexOf(key, lowHash);
+            if (index == -1) {
+                return null;
+            }
+            ObjectTag old = smallValues[index];
+            smallRemove(index);
+            return old;
+        }
+        Entry entry = getEntry(key, lowHash);
+        if (entry == null) {
+            return null;
+        }
+        removeEntry(entry, true);
+        return entry.value;
+    }
+
+    @Override
+    public void clear() {
+        pendingFill = null;
+        smallKeys = EMPTY_KEYS;
+        smallValues = EMPTY_VALUES;
+        root = null;
+        order = null;
+        edit = null;
+        size = 0;
+        deepValues = 0;
+        modCount++;
+    }
+
+    @Override
+    public ObjectTag getOrDefault(Object key, ObjectTag defaultValue) {
+        ObjectTag value = get(key);
+        return value != null || containsKey(key) ? value : defaultValue;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (ObjectTag existing : values()) {
+            if (Objects.equals(existing, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void putAll(Map<? extends StringHolder, ? extends ObjectTag> map) {
+        for (Map.Entry<? extends StringHolder, ? extends ObjectTag> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public ObjectTag putIfAbsent(StringHolder key, ObjectTag value) {
+        ObjectTag existing = get(key);
+        return existing == null ? put(key, value) : existing;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!containsKey(key) || !Objects.equals(get(key), value)) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    @Override
+    public ObjectTag replace(StringHolder key, ObjectTag value) {
+        return containsKey(key) ? put(key, value) : null;
+    }
+
+    @Override
+    public boolean replace(StringHolder key, ObjectTag oldValue, ObjectTag newValue) {
+        if (!containsKey(key) || !Objects.equals(get(key), oldValue)) {
+            return false;
+        }
+        put(key, newValue);
+        return true;
+    }
+
+    @Override
+    public ObjectTag computeIfAbsent(StringHolder key, Function<? super StringHolder, ? extends ObjectTag> function) {
+        ObjectTag existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        ObjectTag value = function.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public ObjectTag computeIfPresent(StringHolder key, BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> function) {
+        ObjectTag existing = get(key);
+        if (existing == null) {
+            return null;
+        }
+        ObjectTag value = function.apply(key, existing);
+        if (value == null) {
+            remove(key);
+        }
+        else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public ObjectTag compute(StringHolder key, BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> function) {
+        ObjectTag value = function.apply(key, get(key));
+        if (value == null) {
+            remove(key);
+        }
+        else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public ObjectTag merge(StringHolder key, ObjectTag value, BiFunction<? super ObjectTag, ? super ObjectTag, ? extends ObjectTag> function) {
+        ObjectTag existing = get(key);
+        ObjectTag result = existing == null ? value : function.apply(existing, value);
+        if (result == null) {
+            remove(key);
+        }
+        else {
+            put(key, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super StringHolder, ? super ObjectTag> action) {
+        resolvePending();
+        int expectedModCount = modCount;
+        if (smallKeys != null) {
+            for (int i = 0; i < size; i++) {
+                action.accept(smallKeys[i], smallValues[i]);
+            }
+        }
+        else {
+            PersistentVector<Entry> order = this.order;
+            for (int i = 0; i < order.size; i++) {
+                Entry entry = order.get(i);
+                if (entry != null) {
+                    action.accept(entry.key, entry.value);
+                }
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> function) {
+        for (Map.Entry<StringHolder, ObjectTag> entry : entrySet()) {
+            entry.setValue(function.apply(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns a shallow copy (values are shared, not duplicated), sharing structure with this map.
+     */
+    @Override
+    public PersistentObjectMap clone() {
+        return share();
+    }
+
+    @Override
+    public Map.Entry<StringHolder, ObjectTag> lastEntry() {
+        resolvePending();
+        if (size == 0) {
+            return null;
+        }
+        if (smallKeys != null) {
+            return new AbstractMap.SimpleImmutableEntry<>(smallKeys[size - 1], smallValues[size - 1]);
+        }
+        for (int i = order.size - 1; i >= 0; i--) {
+            Entry entry = order.get(i);
+            if (entry != null) {
+                return new AbstractMap.SimpleImmutableEntry<>(entry.key, entry.value);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,292 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent (structurally shared) vector, stored as a 32-way trie of nodes plus a tail buffer for the last few entries.
+ * A 'duplicate' shares every existing node with the original, and whichever side writes next only copies the nodes along the path it changes.
+ * So duplicating is O(1), and a write after duplicating costs at most O(log32 n) node copies instead of a full copy.
+ * Nodes created since the last duplicate are owned by this vector (matching 'edit' token) and are modified in place.
+ * Duplicating never changes the original vector's fields: it only marks the original's token as shared, so that the original takes a new token on its next write.
+ * So a duplicate can safely be taken while other threads read the original. Writes are not thread-safe, same as ArrayList.
+ */
+public class PersistentVector<E> {
+
+    /**
+     * An ownership token. Once marked shared (by a duplicate), everything tagged with it is shared, and the holder must take a new token before modifying anything in place.
+     */
+    public static final class Edit {
+
+        public volatile boolean shared;
+    }
+
+    public static final class Node {
+
+        public final Edit edit;
+
+        public final Object[] array;
+
+        public Node(Edit edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    public static final Node EMPTY_NODE = new Node(null, new Object[32]);
+
+    public static final Object[] EMPTY_TAIL = new Object[0];
+
+    public int size = 0;
+
+    public int shift = 5;
+
+    public Node root = EMPTY_NODE;
+
+    public Object[] tail = EMPTY_TAIL;
+
+    /** The token the tail array was created under. The tail is not shared with any other vector if this is the current (unshared) 'edit' token. */
+    public Edit tailEdit;
+
+    /** Ownership token: nodes with this edit token belong to this vector alone, unless the token is marked shared. */
+    public Edit edit = new Edit();
+
+    public PersistentVector() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public PersistentVector(Object[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            add((E) values[i]);
+        }
+    }
+
+    /**
+     * Returns a copy of this vector that shares all current contents with it. O(1).
+     */
+    public PersistentVector<E> duplicate() {
+        PersistentVector<E> copy = new PersistentVector<>();
+        copy.size = size;
+        copy.shift = shift;
+        copy.root = root;
+        copy.tail = tail;
+        edit.shared = true;
+        return copy;
+    }
+
+    /**
+     * Returns the edit token to modify this vector under, taking a new one first if the current one is shared.
+     */
+    public final Edit ownEdit() {
+        Edit current = edit;
+        if (current.shared) {
+            current = new Edit();
+            edit = current;
+        }
+        return current;
+    }
+
+    private boolean ownsTail() {
+        return tailEdit == ownEdit();
+    }
+
+    private void ownTail() {
+        if (!ownsTail()) {
+            tail = tail.clone();
+            tailEdit = edit;
+        }
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final int tailOffset() {
+        return size < 32 ? 0 : ((size - 1) >>> 5) << 5;
+    }
+
+    public final void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Returns the backing array that holds the given index, at position (index & 31).
+     */
+    public final Object[] arrayFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= 5) {
+            node = (Node) node.array[(index >>> level) & 31];
+        }
+        return node.array;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final E get(int index) {
+        checkIndex(index);
+        return (E) arrayFor(index)[index & 31];
+    }
+
+    /**
+     * Returns the node, or a copy of it if it isn't owned. Only valid after 'ownEdit'.
+     */
+    private Node editable(Node node) {
+        return node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    @SuppressWarnings("unchecked")
+    public final E set(int index, E value) {
+        checkIndex(index);
+        Object[] array;
+        ownEdit();
+        if (index >= tailOffset()) {
+            ownTail();
+            array = tail;
+        }
+        else {
+            Node node = editable(root);
+            root = node;
+            for (int level = shift; level > 0; level -= 5) {
+                int subIndex = (index >>> level) & 31;
+                Node child = editable((Node) node.array[subIndex]);
+                node.array[subIndex] = child;
+                node = child;
+            }
+            array = node.array;
+        }
+        E old = (E) array[index & 31];
+        array[index & 31] = value;
+        return old;
+    }
+
+    public final void add(E value) {
+        int inTail = size - tailOffset();
+        Edit edit = ownEdit();
+        if (inTail < 32) {
+            if (inTail == tail.length) {
+                tail = Arrays.copyOf(tail, Math.min(32, Math.max(4, inTail * 2)));
+                tailEdit = edit;
+            }
+            else {
+                ownTail();
+            }
+            tail[inTail] = value;
+            size++;
+            return;
+        }
+        Node tailNode = new Node(tailEdit == edit ? edit : null, tail);
+        if ((size >>> 5) > (1 << shift)) {
+            Node newRoot = new Node(edit, new Object[32]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(shift, tailNode);
+            root = newRoot;
+            shift += 5;
+        }
+        else {
+            root = pushTail(shift, root, tailNode);
+        }
+        tail = new Object[32];
+        tail[0] = value;
+        tailEdit = edit;
+        size++;
+    }
+
+    private Node pushTail(int level, Node parent, Node tailNode) {
+        int subIndex = ((size - 1) >>> level) & 31;
+        Node result = editable(parent);
+        Node toInsert;
+        if (level == 5) {
+            toInsert = tailNode;
+        }
+        else {
+            Node child = (Node) parent.array[subIndex];
+            toInsert = child != null ? pushTail(level - 5, child, tailNode) : newPath(level - 5, tailNode);
+        }
+        result.array[subIndex] = toInsert;
+        return result;
+    }
+
+    private Node newPath(int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Node result = new Node(edit, new Object[32]);
+        result.array[0] = newPath(level - 5, node);
+        return result;
+    }
+
+    /**
+     * Removes and returns the last entry.
+     */
+    public final E removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        E last = get(size - 1);
+        if (size == 1) {
+            clear();
+            return last;
+        }
+        int inTail = size - tailOffset();
+        ownEdit();
+        if (inTail > 1) {
+            ownTail();
+            tail[inTail - 1] = null;
+            size--;
+            return last;
+        }
+        Object[] newTail = arrayFor(size - 2);
+        Node newRoot = popTail(shift, root);
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > 5 && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            shift -= 5;
+        }
+        root = newRoot;
+        tail = newTail;
+        tailEdit = null;
+        size--;
+        return last;
+    }
+
+    private Node popTail(int level, Node node) {
+        int subIndex = ((size - 2) >>> level) & 31;
+        if (level > 5) {
+            Node newChild = popTail(level - 5, (Node) node.array[subIndex]);
+            if (newChild == null && subIndex == 0) {
+                return null;
+            }
+            Node result = editable(node);
+            result.array[subIndex] = newChild;
+            return result;
+        }
+        else if (subIndex == 0) {
+            return null;
+        }
+        Node result = editable(node);
+        result.array[subIndex] = null;
+        return result;
+    }
+
+    public final void clear() {
+        size = 0;
+        shift = 5;
+        root = EMPTY_NODE;
+        tail = EMPTY_TAIL;
+        tailEdit = null;
+    }
+
+    public final Object[] toArray() {
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i += 32) {
+            System.arraycopy(arrayFor(i), 0, result, i, Math.min(32, size - i));
+        }
+        return result;
+    }
+}
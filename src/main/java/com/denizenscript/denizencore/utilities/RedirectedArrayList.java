@@ -0,0 +1,63 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * Base for an ArrayList subclass that keeps (some of) its content outside the normal ArrayList storage (see NumberRangeList and PersistentObjectList).
+ * Newer JDK versions give ArrayList methods with direct access to its own storage, so they're redirected here to 'get', 'add' and 'remove'.
+ * They're declared here on the generic type so that they still override the JDK's versions when built against an older JDK, which wouldn't generate bridge methods for a subclass's own versions.
+ * Java serialization writes a plain ArrayList copy instead (see 'writeReplace'), as the inherited 'writeObject' would only write the ArrayList storage.
+ */
+public abstract class RedirectedArrayList<E> extends ArrayList<E> {
+
+    private static final long serialVersionUID = 2961840379457265307L;
+
+    public RedirectedArrayList() {
+    }
+
+    public RedirectedArrayList(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public E getFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(0);
+    }
+
+    public E getLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(size() - 1);
+    }
+
+    public void addFirst(E obj) {
+        add(0, obj);
+    }
+
+    public void addLast(E obj) {
+        add(obj);
+    }
+
+    public E removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(0);
+    }
+
+    public E removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(size() - 1);
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new ArrayList<>(this);
+    }
+}
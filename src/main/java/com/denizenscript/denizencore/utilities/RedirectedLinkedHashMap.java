@@ -0,0 +1,64 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.io.ObjectStreamException;
+import java.util.*;
+
+/**
+ * Base for a LinkedHashMap subclass that keeps its content in its own storage (see PersistentObjectMap).
+ * Newer JDK versions give LinkedHashMap methods with direct access to its own storage, so they're redirected here to the normal Map methods.
+ * They're declared here on the generic types so that they still override the JDK's versions when built against an older JDK, which wouldn't generate bridge methods for a subclass's own versions.
+ * Note that Java 21's 'reversed' and 'sequenced...' views can't be redirected while this is built for Java 8 (their return types don't exist there), so they would see an empty map and must not be used.
+ * Java serialization writes a plain LinkedHashMap copy instead (see 'writeReplace'), as the inherited 'writeObject' would only write the unused LinkedHashMap storage.
+ */
+public abstract class RedirectedLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1538302491842765014L;
+
+    public Map.Entry<K, V> firstEntry() {
+        Iterator<Map.Entry<K, V>> iterator = entrySet().iterator();
+        return iterator.hasNext() ? new AbstractMap.SimpleImmutableEntry<>(iterator.next()) : null;
+    }
+
+    public Map.Entry<K, V> lastEntry() {
+        Map.Entry<K, V> last = null;
+        for (Map.Entry<K, V> entry : entrySet()) {
+            last = entry;
+        }
+        return last == null ? null : new AbstractMap.SimpleImmutableEntry<>(last);
+    }
+
+    public Map.Entry<K, V> pollFirstEntry() {
+        Map.Entry<K, V> entry = firstEntry();
+        if (entry != null) {
+            remove(entry.getKey());
+        }
+        return entry;
+    }
+
+    public Map.Entry<K, V> pollLastEntry() {
+        Map.Entry<K, V> entry = lastEntry();
+        if (entry != null) {
+            remove(entry.getKey());
+        }
+        return entry;
+    }
+
+    public V putFirst(K key, V value) {
+        V old = remove(key);
+        LinkedHashMap<K, V> rest = new LinkedHashMap<>(this);
+        clear();
+        put(key, value);
+        putAll(rest);
+        return old;
+    }
+
+    public V putLast(K key, V value) {
+        V old = remove(key);
+        put(key, value);
+        return old;
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new LinkedHashMap<>(this);
+    }
+}
@@ -0,0 +1,52 @@
+package com.denizenscript.denizencore.utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, thread-safe cache of compiled regex Patterns, keyed by pattern text and compile flags.
+ * Used by tags that take a regex as input, so that a regex used repeatedly by scripts is only compiled once.
+ */
+public class RegexCache {
+
+    /**
+     * Describes how a tag uses its parameter as a regex, so that a constant parameter can be pre-compiled when the tag is compiled at script load.
+     */
+    @FunctionalInterface
+    public interface ParamPattern {
+
+        /**
+         * Returns the Pattern the tag would use for the given parameter text, or null if that parameter isn't used as a regex.
+         */
+        Pattern compile(String param);
+    }
+
+    /** The maximum number of Patterns kept per set of flags. When exceeded, that set is emptied and starts refilling. */
+    public static int maxSize = 1024;
+
+    public static final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Pattern>> patternsByFlags = new ConcurrentHashMap<>();
+
+    public static Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    /**
+     * Returns the compiled Pattern for the given regex and flags, compiling it if not already cached.
+     * Throws PatternSyntaxException for invalid input, same as Pattern.compile.
+     */
+    public static Pattern get(String regex, int flags) {
+        ConcurrentHashMap<String, Pattern> patterns = patternsByFlags.get(flags);
+        if (patterns == null) {
+            patterns = patternsByFlags.computeIfAbsent(flags, f -> new ConcurrentHashMap<>());
+        }
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            if (patterns.size() >= maxSize) {
+                patterns.clear();
+            }
+            patterns.put(regex, pattern);
+        }
+        return pattern;
+    }
+}
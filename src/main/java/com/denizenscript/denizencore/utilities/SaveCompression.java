@@ -0,0 +1,79 @@
+package com.denizenscript.denizencore.utilities;
+
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional gzip compression of saved data files (flags, notables, and runlaters), enabled by 'CoreConfiguration.saveCompression'.
+ * Compressed files are recognized by their gzip header when loaded, so a file saved either way can always be loaded.
+ */
+public class SaveCompression {
+
+    public static final int GZIP_MAGIC_FIRST = 0x1f, GZIP_MAGIC_SECOND = 0x8b;
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The largest initial buffer 'decompress' will allocate from a file's size hint. Larger files still load, the buffer just grows as needed. */
+    public static final int MAX_SIZE_HINT = 64 * 1024 * 1024;
+
+    /** The largest compression ratio 'decompress' will trust a file's size hint for. */
+    public static final int MAX_HINT_RATIO = 16;
+
+    public static class GzipOutput extends GZIPOutputStream {
+
+        public GzipOutput(OutputStream output) throws IOException {
+            super(output, BUFFER_SIZE);
+            def.setLevel(CoreConfiguration.saveCompressionLevel);
+        }
+
+        public long uncompressedBytes() {
+            return def.getBytesRead();
+        }
+    }
+
+    public static boolean isCompressed(byte[] data) {
+        return data.length >= 18 && (data[0] & 0xFF) == GZIP_MAGIC_FIRST && (data[1] & 0xFF) == GZIP_MAGIC_SECOND;
+    }
+
+    public static byte[] decompress(byte[] data) throws IOException {
+        // Note: the gzip trailer ends with the uncompressed size (modulo 2^32), which is only used as a size hint.
+        // It's read from the file, so it's clamped to a sane size rather than trusted outright.
+        int length = data.length;
+        int sizeHint = (data[length - 4] & 0xFF) | (data[length - 3] & 0xFF) << 8 | (data[length - 2] & 0xFF) << 16 | (data[length - 1] & 0xFF) << 24;
+        long maxHint = Math.min(MAX_SIZE_HINT, Math.max(BUFFER_SIZE, length * (long) MAX_HINT_RATIO));
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(data), BUFFER_SIZE)) {
+            return readFully(input, sizeHint > 0 ? (int) Math.min(sizeHint, maxHint) : BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Reads the rest of the stream into a byte array, initially sized for 'sizeHint' bytes.
+     */
+    public static byte[] readFully(InputStream input, int sizeHint) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(sizeHint);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Reports the compression ratio and time of a compressed save to the debug log.
+     */
+    public static void reportSave(String filePath, long uncompressedBytes, long compressedBytes, long millis) {
+        Debug.log("SaveCompression", "Compressed save of " + filePath + " from " + uncompressedBytes + " to " + compressedBytes + " bytes (ratio "
+                + (compressedBytes == 0 ? "n/a" : String.format("%.2f", uncompressedBytes / (double) compressedBytes)) + ") at level " + CoreConfiguration.saveCompressionLevel + " in " + millis + "ms");
+    }
+
+    /**
+     * Reports the time taken to load and decompress a compressed file to the debug log.
+     */
+    public static void reportLoad(String filePath, long compressedBytes, long uncompressedBytes, long millis) {
+        Debug.log("SaveCompression", "Decompressed " + filePath + " from " + compressedBytes + " to " + uncompressedBytes + " bytes in " + millis + "ms");
+    }
+}
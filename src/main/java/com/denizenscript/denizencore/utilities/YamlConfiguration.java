@@ -12,7 +12,9 @@ import org.yaml.snakeyaml.representer.Representer;
 import org.yaml.snakeyaml.resolver.Resolver;
 import org.yaml.snakeyaml.scanner.ScannerImpl;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.*;
 
 /**
@@ -100,7 +102,7 @@ public class YamlConfiguration {
             Object key = entry.getKey();
             Object value = entry.getValue();
             objs.remove(key);
-            objs.put(key == null ? null : new StringHolder(key.toString()), value);
+            objs.put(key == null ? null : StringHolder.intern(key.toString()), value);
         }
         for (Map.Entry<StringHolder, Object> entry : objs.entrySet()) {
             if (entry.getValue() instanceof Map) {
@@ -220,18 +222,32 @@ public class YamlConfiguration {
         return strings;
     }
 
-    public String saveToString(boolean patchLines) {
+    public static Yaml createDumper() {
         DumperOptions options = new DumperOptions();
         options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
         options.setAllowUnicode(true);
-        Yaml yaml = new Yaml(options);
-        String dumped = yaml.dump(reverse(contents, patchLines));
+        return new Yaml(options);
+    }
+
+    public String saveToString(boolean patchLines) {
+        String dumped = createDumper().dump(reverse(contents, patchLines));
         if (CoreConfiguration.debugVerbose) {
             Debug.log("Outputting " + dumped);
         }
         return dumped;
     }
 
+    /**
+     * Same as 'saveToString', but writes the output as it goes rather than building it as one string.
+     */
+    public void saveToWriter(Writer writer, boolean patchLines) throws IOException {
+        if (CoreConfiguration.debugVerbose) {
+            writer.write(saveToString(patchLines));
+            return;
+        }
+        createDumper().dump(reverse(contents, patchLines), writer);
+    }
+
     public Object get(String path) {
         if (path.isEmpty()) {
             return contents;
@@ -270,14 +286,14 @@ public class YamlConfiguration {
                     emptyEmptyMaps(parts);
                 }
                 else {
-                    portion.put(new StringHolder(parts.get(i)), o);
+                    portion.put(StringHolder.intern(parts.get(i)), o);
                 }
                 dirty = true;
                 return;
             }
             else if (oPortion == null) {
                 Map<StringHolder, Object> map = new LinkedHashMap<>();
-                portion.put(new StringHolder(parts.get(i)), map);
+                portion.put(StringHolder.intern(parts.get(i)), map);
                 portion = map;
             }
             else if (oPortion instanceof Map) {
@@ -285,7 +301,7 @@ public class YamlConfiguration {
             }
             else {
                 Map<StringHolder, Object> map = new LinkedHashMap<>();
-                portion.put(new StringHolder(parts.get(i)), map);
+                portion.put(StringHolder.intern(parts.get(i)), map);
                 portion = map;
             }
         }
@@ -9,6 +9,7 @@ import org.objectweb.asm.*;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.regex.PatternSyntaxException;
 
 public class TagCodeGenerator {
 
@@ -31,6 +32,36 @@ public class TagCodeGenerator {
         return !component.paramParsed.hasTag;
     }
 
+    /**
+     * If the component's tag uses its parameter as a regex and that parameter is constant, compiles it into the RegexCache now rather than on first run.
+     */
+    public static void precompileRegexParam(Attribute.AttributeComponent component, TagContext genContext) {
+        if (component.data.regexParam == null || component.rawParam == null || !hasStaticContext(component, genContext)) {
+            return;
+        }
+        try {
+            component.data.regexParam.compile(component.paramParsed.parse(genContext).toString());
+        }
+        catch (PatternSyntaxException ex) {
+            // Invalid input is reported when the tag actually runs
+        }
+    }
+
+    /**
+     * If the component's tag has a constant parameter handler and that parameter is constant, runs the handler now and keeps the result on the component.
+     */
+    public static void precompileConstantParam(Attribute.AttributeComponent component, TagContext genContext) {
+        if (component.data.constantParamHandler == null || component.rawParam == null || !hasStaticContext(component, genContext)) {
+            return;
+        }
+        try {
+            component.compiledParam = component.data.constantParamHandler.apply(component.paramParsed.parse(genContext).toString());
+        }
+        catch (RuntimeException ex) {
+            // Invalid input is reported when the tag actually runs
+        }
+    }
+
     public static TagRunnable.BaseInterface<? extends ObjectTag> generatePartialTag(TagManager.ParseableTagPiece toParse, TagContext genContext) {
         ReplaceableTagEvent.ReferenceData data = toParse.tagData;
         if (data == null || data.tagBase == null || data.tagBase.baseForm == null || data.attribs.attributes.length < 1) {
@@ -49,6 +80,8 @@ public class TagCodeGenerator {
                 break;
             }
             applicableParts++;
+            precompileRegexParam(pieces[i], genContext);
+            precompileConstantParam(pieces[i], genContext);
             if (canBeStatic) {
                 if (piece.isStatic && hasStaticContext(pieces[i], genContext)) {
                     staticParts++;
@@ -2,6 +2,7 @@ package com.denizenscript.denizencore.utilities.debugging;
 
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ScriptTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.tags.TagContext;
@@ -105,11 +106,25 @@ public class Debug {
         if (context == null) {
             context = currentContext;
         }
-        if (context != null && context.entry != null) {
-            echoError(context.entry, addedContext, error);
+        if (context == null) {
+            echoErrorFor(null, null, addedContext, error);
+            return;
+        }
+        ScriptEntry entry = context.entry;
+        ScriptTag script = context.script;
+        if (context.deferredErrors != null) {
+            context.deferredErrors.add(() -> echoErrorFor(entry, script, addedContext, error));
+            return;
+        }
+        echoErrorFor(entry, script, addedContext, error);
+    }
+
+    private static void echoErrorFor(ScriptEntry entry, ScriptTag script, String addedContext, String error) {
+        if (entry != null) {
+            echoError(entry, addedContext, error);
         }
-        else if (context != null && context.script != null) {
-            echoError(context.script.getContainer(), addedContext, error);
+        else if (script != null) {
+            echoError(script.getContainer(), addedContext, error);
         }
         else {
             DenizenCore.runOnMainThread(() -> DebugInternals.echoErrorInternal(null, addedContext, error, true));
@@ -17,7 +17,8 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 
 import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -328,9 +329,13 @@ public class DebugInternals {
     /** Hack-fix to block multiple footers in a row. */
     public static boolean skipFooter = false;
 
-    /** Date format used by debug recordings. */
+    /** @deprecated not thread-safe and no longer used, use 'debugRecordTimeFormatter'. */
+    @Deprecated
     public static SimpleDateFormat debugRecordDateFormat = new SimpleDateFormat("HH:mm:ss");
 
+    /** Time format used by debug recordings. Thread-safe. */
+    public static DateTimeFormatter debugRecordTimeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
+
     /** Internal final debug output called. Should generally not be called directly - instead use echoDebug, log, echoError, ... */
     public static void finalOutputDebugText(String message, Debuggable caller, boolean reformat) {
         lastErrorHeader = "";
@@ -386,7 +391,7 @@ public class DebugInternals {
             try {
                 //                                                         "HH:mm:ss"
                 String toRecord = " " + formatted.replace("<FORCE_ALIGN>", "        ")+ "\n";
-                Debug.debugRecording.append(URLEncoder.encode(debugRecordDateFormat.format(new Date()) + toRecord, "UTF-8"));
+                Debug.debugRecording.append(URLEncoder.encode(debugRecordTimeFormatter.format(LocalTime.now()) + toRecord, "UTF-8"));
             }
             catch (Throwable ex) {
                 Debug.echoError(ex);
@@ -4,7 +4,9 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.*;
 
 public class DebugLog extends Logger {
@@ -32,12 +34,12 @@ public class DebugLog extends Logger {
     }
 
     private static class DebugFormatter extends Formatter {
-        private final SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss ");
+        private final DateTimeFormatter date = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss ").withZone(ZoneId.systemDefault());
 
         @Override
         public String format(LogRecord rec) {
             Throwable exception = rec.getThrown();
-            String out = this.date.format(rec.getMillis());
+            String out = this.date.format(Instant.ofEpochMilli(rec.getMillis()));
             out += "[" + CoreUtilities.toUpperCase(rec.getLevel().getName()) + "] ";
             out += rec.getMessage() + '\n';
             if (exception != null) {
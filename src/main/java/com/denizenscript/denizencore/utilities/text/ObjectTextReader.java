@@ -0,0 +1,228 @@
+package com.denizenscript.denizencore.utilities.text;
+
+/**
+ * Single-pass reader for object text formats (property blocks like "[a=b;c=d]", pipe-separated list entries, ...).
+ * Finds section boundaries by index without creating intermediate strings, and unescapes sections directly into one reused buffer.
+ * Not thread-safe: use one reader per parse.
+ */
+public class ObjectTextReader {
+
+    public final CharSequence text;
+
+    /** The current read position. */
+    public int index;
+
+    /** The end of the readable range (exclusive). */
+    public final int end;
+
+    public final StringBuilder buffer = new StringBuilder();
+
+    /** The bounds of the last section read by 'nextProperty' (end exclusive). */
+    public int sectionStart, sectionEnd;
+
+    /** The index of the first '=' in the last section read by 'nextProperty', or -1 if there is none. */
+    public int separator;
+
+    public ObjectTextReader(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    public ObjectTextReader(CharSequence text, int start, int end) {
+        this.text = text;
+        this.index = start;
+        this.end = end;
+    }
+
+    public final String slice(int start, int end) {
+        if (text instanceof String) {
+            return ((String) text).substring(start, end);
+        }
+        return text.subSequence(start, end).toString();
+    }
+
+    public final int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the next section of a property block, ended by a ';' or ']' outside of any nested brackets.
+     * The reader should start just after the block's opening '['.
+     * Returns false when there are no more complete sections. Trailing text with no end symbol is ignored, same as 'ObjectFetcher.separateProperties'.
+     */
+    public final boolean nextProperty() {
+        int brackets = 0;
+        separator = -1;
+        sectionStart = index;
+        for (int i = index; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '[') {
+                brackets++;
+            }
+            else if (c == ']' && brackets > 0) {
+                brackets--;
+            }
+            else if ((c == ';' || c == ']') && brackets == 0) {
+                sectionEnd = i;
+                index = i + 1;
+                return true;
+            }
+            else if (c == '=' && separator == -1) {
+                separator = i;
+            }
+        }
+        index = end;
+        return false;
+    }
+
+    /**
+     * Appends the range with '&sc', '&lb', '&rb', '&eq', and '&amp' unescaped.
+     */
+    public final void partialUnescapeInto(int start, int end) {
+        int last = start;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != '&') {
+                continue;
+            }
+            char replacement;
+            int length = 3;
+            if (matchAt(i + 1, end, 's', 'c')) {
+                replacement = ';';
+            }
+            else if (matchAt(i + 1, end, 'l', 'b')) {
+                replacement = '[';
+            }
+            else if (matchAt(i + 1, end, 'r', 'b')) {
+                replacement = ']';
+            }
+            else if (matchAt(i + 1, end, 'e', 'q')) {
+                replacement = '=';
+            }
+            else if (matchAt(i + 1, end, 'a', 'm') && i + 3 < end && text.charAt(i + 3) == 'p') {
+                replacement = '&';
+                length = 4;
+            }
+            else {
+                continue;
+            }
+            buffer.append(text, last, i).append(replacement);
+            i += length - 1;
+            last = i + 1;
+        }
+        buffer.append(text, last, end);
+    }
+
+    private boolean matchAt(int index, int end, char first, char second) {
+        return index + 1 < end && text.charAt(index) == first && text.charAt(index + 1) == second;
+    }
+
+    /**
+     * Returns the range unescaped the same way as 'ObjectFetcher.unescapeProperty': escapes are replaced everywhere except within nested [brackets].
+     */
+    public final String unescapeProperty(int start, int end) {
+        if (indexOf('&', start, end) == -1) {
+            return slice(start, end);
+        }
+        buffer.setLength(0);
+        int openBracket = indexOf('[', start, end);
+        if (openBracket == -1) {
+            partialUnescapeInto(start, end);
+            return buffer.toString();
+        }
+        int segmentStart = start;
+        int brackets = 0;
+        for (int i = openBracket; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '[') {
+                brackets++;
+                if (brackets == 1) {
+                    partialUnescapeInto(segmentStart, i);
+                    segmentStart = i;
+                }
+            }
+            else if (c == ']') {
+                brackets--;
+                if (brackets == 0) {
+                    buffer.append(text, segmentStart, i);
+                    segmentStart = i;
+                    i = indexOf('[', segmentStart, end) - 1;
+                    if (i < 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        partialUnescapeInto(segmentStart, end);
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the range with the given two escapes (and '&amp') unescaped, for list entry style escaping.
+     * 'first'/'firstValue' and 'second'/'secondValue' are optional extra escape names (without the '&') and their values, or null.
+     */
+    private String unescapeEntry(int start, int end, String first, char firstValue, String second, char secondValue) {
+        if (indexOf('&', start, end) == -1) {
+            return slice(start, end);
+        }
+        buffer.setLength(0);
+        int last = start;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != '&') {
+                continue;
+            }
+            String name;
+            char replacement;
+            if (first != null && matchName(i + 1, end, first)) {
+                name = first;
+                replacement = firstValue;
+            }
+            else if (second != null && matchName(i + 1, end, second)) {
+                name = second;
+                replacement = secondValue;
+            }
+            else if (matchName(i + 1, end, "amp")) {
+                name = "amp";
+                replacement = '&';
+            }
+            else {
+                continue;
+            }
+            buffer.append(text, last, i).append(replacement);
+            i += name.length();
+            last = i + 1;
+        }
+        buffer.append(text, last, end);
+        return buffer.toString();
+    }
+
+    private boolean matchName(int index, int end, String name) {
+        int length = name.length();
+        if (index + length > end) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(index + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the range unescaped the same way as 'ListTag.unescapeEntry' ('&pipe' and '&amp').
+     */
+    public final String unescapeListEntry(int start, int end) {
+        return unescapeEntry(start, end, "pipe", '|', null, ' ');
+    }
+
+    /**
+     * Returns the range unescaped the same way as 'MapTag.unescapeLegacyEntry' ('&fs', '&pipe', and '&amp').
+     */
+    public final String unescapeLegacyEntry(int start, int end) {
+        return unescapeEntry(start, end, "fs", '/', "pipe", '|');
+    }
+}
@@ -2,9 +2,93 @@ package com.denizenscript.denizencore.utilities.text;
 
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
 /** Helper for case-insensitive strings that remember their original casing. */
 public class StringHolder {
 
+    private static final class PoolReference extends WeakReference<StringHolder> {
+
+        public final String key;
+
+        public PoolReference(StringHolder holder) {
+            super(holder, poolQueue);
+            key = holder.str;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, PoolReference> pool = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<StringHolder> poolQueue = new ReferenceQueue<>();
+
+    /**
+     * Returns a shared StringHolder for the exact given text, only creating (and lowercasing) a new one if no holder for that text is still in use elsewhere.
+     * Use this for keys that get stored (map keys, flag names, config keys) so that the same few keys aren't recreated over and over.
+     * Thread-safe. Holders are only weakly referenced by the pool, so unused keys don't leak.
+     */
+    public static StringHolder intern(String str) {
+        PoolReference ref = pool.get(str);
+        if (ref != null) {
+            StringHolder holder = ref.get();
+            if (holder != null) {
+                return holder;
+            }
+        }
+        Reference<? extends StringHolder> cleared;
+        while ((cleared = poolQueue.poll()) != null) {
+            pool.remove(((PoolReference) cleared).key, cleared);
+        }
+        StringHolder holder = new StringHolder(str);
+        PoolReference newRef = new PoolReference(holder);
+        while (true) {
+            PoolReference existing = pool.putIfAbsent(str, newRef);
+            if (existing == null) {
+                return holder;
+            }
+            StringHolder other = existing.get();
+            if (other != null) {
+                return other;
+            }
+            if (pool.replace(str, existing, newRef)) {
+                return holder;
+            }
+        }
+    }
+
+    /**
+     * Returns the hash code a StringHolder of the given text would have, without allocating anything.
+     * Already-lowercase text just uses the String's own (cached) hash code.
+     */
+    public static int lowHash(String str) {
+        int len = str.length();
+        int firstUpper = 0;
+        while (firstUpper < len) {
+            char c = str.charAt(firstUpper);
+            if (c >= 'A' && c <= 'Z') {
+                break;
+            }
+            firstUpper++;
+        }
+        if (firstUpper == len) {
+            return str.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0; i < firstUpper; i++) {
+            hash = 31 * hash + str.charAt(i);
+        }
+        for (int i = firstUpper; i < len; i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c -= 'A' - 'a';
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
     /** Input text with original casing. */
     public final String str;
 
@@ -0,0 +1,211 @@
+package com.denizenscript.denizencore.benchmark;
+
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.DenizenImplementation;
+import com.denizenscript.denizencore.flags.FlaggableObject;
+import com.denizenscript.denizencore.objects.Argument;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ScriptTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.ScriptEntryData;
+import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
+import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A minimal implementation for running the engine standalone in the benchmarks of this package, with no scripts and a temporary data folder.
+ */
+public class BenchmarkImplementation implements DenizenImplementation {
+
+    public static class BenchmarkEntryData extends ScriptEntryData {
+
+        @Override
+        public void transferDataFrom(ScriptEntryData data) {
+        }
+
+        @Override
+        public TagContext getTagContext() {
+            return new BenchmarkTagContext(false, null, null);
+        }
+
+        @Override
+        public YamlConfiguration save() {
+            return new YamlConfiguration();
+        }
+
+        @Override
+        public void load(YamlConfiguration config) {
+        }
+    }
+
+    public static class BenchmarkTagContext extends TagContext {
+
+        public BenchmarkTagContext(boolean debug, ScriptEntry entry, ScriptTag script) {
+            super(debug, entry, script);
+        }
+
+        public BenchmarkTagContext(ScriptEntry entry) {
+            super(entry);
+        }
+
+        @Override
+        public ScriptEntryData getScriptEntryData() {
+            return new BenchmarkEntryData();
+        }
+    }
+
+    /** If true, debug output is printed to the console. */
+    public static boolean showDebug = false;
+
+    public File folder;
+
+    public BenchmarkImplementation(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Initializes the engine with a new implementation using a fresh temporary folder, and returns the implementation.
+     */
+    public static BenchmarkImplementation init() throws IOException {
+        BenchmarkImplementation implementation = new BenchmarkImplementation(Files.createTempDirectory("denizencore-benchmark").toFile());
+        new File(implementation.folder, "scripts").mkdirs();
+        CoreUtilities.noDebugContext = new BenchmarkTagContext(false, null, null);
+        CoreUtilities.basicContext = new BenchmarkTagContext(true, null, null);
+        CoreUtilities.errorButNoDebugContext = new BenchmarkTagContext(false, null, null);
+        DenizenCore.init(implementation);
+        DenizenCore.reloadScripts();
+        return implementation;
+    }
+
+    @Override
+    public File getScriptFolder() {
+        return new File(folder, "scripts");
+    }
+
+    @Override
+    public String getImplementationVersion() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getImplementationName() {
+        return "Benchmark";
+    }
+
+    @Override
+    public void preScriptReload() {
+    }
+
+    @Override
+    public void onScriptReload() {
+    }
+
+    @Override
+    public ScriptEntryData getEmptyScriptEntryData() {
+        return new BenchmarkEntryData();
+    }
+
+    @Override
+    public boolean handleCustomArgs(ScriptEntry entry, Argument arg) {
+        return false;
+    }
+
+    @Override
+    public void refreshScriptContainers() {
+    }
+
+    @Override
+    public TagContext getTagContext(ScriptContainer container) {
+        return new BenchmarkTagContext(false, null, container == null ? null : new ScriptTag(container));
+    }
+
+    @Override
+    public TagContext getTagContext(ScriptEntry entry) {
+        return new BenchmarkTagContext(entry);
+    }
+
+    @Override
+    public String cleanseLogString(String str) {
+        return str;
+    }
+
+    @Override
+    public void preTagExecute() {
+    }
+
+    @Override
+    public void postTagExecute() {
+    }
+
+    @Override
+    public boolean needsHandleArgPrefix(String prefix) {
+        return false;
+    }
+
+    @Override
+    public boolean canWriteToFile(File f) {
+        return true;
+    }
+
+    @Override
+    public String getRandomColor() {
+        return "";
+    }
+
+    @Override
+    public boolean canReadFile(File f) {
+        return true;
+    }
+
+    @Override
+    public File getDataFolder() {
+        return folder;
+    }
+
+    @Override
+    public String queueHeaderInfo(ScriptEntry entry) {
+        return "";
+    }
+
+    @Override
+    public FlaggableObject simpleWordToFlaggable(String word, ScriptEntry entry) {
+        return null;
+    }
+
+    @Override
+    public ObjectTag getSpecialDef(String def, ScriptQueue queue) {
+        return null;
+    }
+
+    @Override
+    public boolean setSpecialDef(String def, ScriptQueue queue, ObjectTag value) {
+        return false;
+    }
+
+    @Override
+    public void addExtraErrorHeaders(StringBuilder headerBuilder, ScriptEntry source) {
+    }
+
+    @Override
+    public String applyDebugColors(String uncolored) {
+        return uncolored;
+    }
+
+    @Override
+    public void doFinalDebugOutput(String rawText) {
+        if (showDebug) {
+            System.out.println(rawText);
+        }
+    }
+
+    @Override
+    public String stripColor(String message) {
+        return message;
+    }
+}
@@ -0,0 +1,125 @@
+package com.denizenscript.denizencore.benchmark;
+
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.objects.core.TimeTag;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.File;
+
+/**
+ * Measures retained heap: bytes per flag after loading a flag file into many trackers and decoding every flag, and the container overhead of small maps and lists.
+ * Run with the test classpath, optionally giving a flag file to load (without the '.dat' extension) and the number of trackers to load it into (default 2000), eg:
+ * java -cp target/classes:target/test-classes:(dependencies) com.denizenscript.denizencore.benchmark.FlagHeapBenchmark path/to/flags 2000
+ * Without a file (or with '-' for it), a generated file of 25 mixed flags is used: plain, expiring, nested-map and list flags.
+ * Retained sizes are measured from the used heap after repeated GCs, so run with no other load and a fixed heap (eg -Xms2g -Xmx2g) for stable numbers.
+ */
+public class FlagHeapBenchmark {
+
+    public static Object[] retained;
+
+    public static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static String generateFlagFile(BenchmarkImplementation implementation) {
+        SavableMapFlagTracker tracker = new SavableMapFlagTracker();
+        for (int i = 0; i < 10; i++) {
+            tracker.setFlag("plain_" + i, new ElementTag("value number " + i), null);
+        }
+        for (int i = 0; i < 3; i++) {
+            tracker.setFlag("expiring_" + i, new ElementTag(i), new TimeTag(TimeTag.now().millis() + 24 * 60 * 60 * 1000L));
+        }
+        for (int i = 0; i < 4; i++) {
+            tracker.setFlag("nested_" + i + ".first", new ElementTag("a"), null);
+            tracker.setFlag("nested_" + i + ".second.leaf", new ElementTag(i), null);
+        }
+        for (int i = 0; i < 4; i++) {
+            ListTag list = new ListTag();
+            for (int j = 0; j < (i == 3 ? 40 : 3 + i); j++) {
+                list.addObject(new ElementTag("entry " + j));
+            }
+            tracker.setFlag("list_" + i, list, null);
+        }
+        for (int i = 0; i < 4; i++) {
+            MapTag map = new MapTag();
+            for (int j = 0; j < 2 + i * 3; j++) {
+                map.putObject("key_" + j, new ElementTag(j));
+            }
+            tracker.setFlag("map_" + i, map, null);
+        }
+        File folder = new File(implementation.folder, "flags_" + System.nanoTime());
+        folder.mkdirs();
+        String path = new File(folder, "flags").getPath();
+        tracker.saveToFile(path);
+        return path;
+    }
+
+    /**
+     * Returns the heap retained by 'retained' once filled by the given runnable. Objects should only be referenced from 'retained', never from a local.
+     */
+    public static long measureRetained(Runnable fill) throws InterruptedException {
+        retained = null;
+        long before = usedHeap();
+        fill.run();
+        return usedHeap() - before;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkImplementation implementation = BenchmarkImplementation.init();
+        String path = args.length > 0 && !args[0].equals("-") ? args[0] : generateFlagFile(implementation);
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int flagCount = SavableMapFlagTracker.loadFlagFile(path, false).listAllFlags().size();
+        long bytes = measureRetained(() -> {
+            retained = new SavableMapFlagTracker[copies];
+            for (int i = 0; i < copies; i++) {
+                SavableMapFlagTracker tracker = SavableMapFlagTracker.loadFlagFile(path, false);
+                for (String flag : tracker.listAllFlags()) {
+                    tracker.getRootMap(flag);
+                }
+                retained[i] = tracker;
+            }
+        });
+        System.out.println(String.format("%d trackers of %d flags: %.1f bytes/flag retained", copies, flagCount, bytes / (double) (copies * (long) flagCount)));
+        int instances = 200000;
+        ElementTag value = new ElementTag("x");
+        StringHolder[] keys = new StringHolder[8];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new StringHolder("key_" + i);
+        }
+        for (int entries : new int[] { 0, 1, 3, 8 }) {
+            bytes = measureRetained(() -> {
+                retained = new MapTag[instances];
+                for (int i = 0; i < instances; i++) {
+                    MapTag map = new MapTag();
+                    for (int j = 0; j < entries; j++) {
+                        map.map.put(keys[j], value);
+                    }
+                    retained[i] = map;
+                }
+            });
+            System.out.println(String.format("map, %d entries: %.1f bytes retained (shared keys and values)", entries, bytes / (double) instances));
+        }
+        for (int entries : new int[] { 0, 1, 3, 10 }) {
+            bytes = measureRetained(() -> {
+                retained = new ListTag[instances];
+                for (int i = 0; i < instances; i++) {
+                    ListTag list = new ListTag();
+                    for (int j = 0; j < entries; j++) {
+                        list.addObject(value);
+                    }
+                    retained[i] = list;
+                }
+            });
+            System.out.println(String.format("list, %d entries: %.1f bytes retained (shared values)", entries, bytes / (double) instances));
+        }
+        System.exit(0);
+    }
+}
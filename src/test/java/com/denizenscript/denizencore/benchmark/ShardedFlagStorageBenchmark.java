@@ -0,0 +1,77 @@
+package com.denizenscript.denizencore.benchmark;
+
+import com.denizenscript.denizencore.flags.FlagStorageBackend;
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.flags.ShardedFlagStorage;
+import com.denizenscript.denizencore.flags.SingleFileFlagStorage;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+
+import java.io.File;
+import java.util.HashSet;
+
+/**
+ * Compares flag storage backends: the time for a full save, a load, and a save after a handful of changes, for a large number of root flags.
+ * Run with the test classpath, optionally giving the flag count (default 1000000) and then the shard counts to compare (default 16 64), eg:
+ * java -cp target/classes:target/test-classes:(dependencies) com.denizenscript.denizencore.benchmark.ShardedFlagStorageBenchmark 1000000 16 64
+ * Each backend is measured in both the text and binary formats. Load and save times are the best of 3 runs.
+ * Needs a heap large enough for the flags (about 2GB for the default count).
+ */
+public class ShardedFlagStorageBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flagCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int[] shardCounts = new int[args.length > 1 ? args.length - 1 : 2];
+        for (int i = 0; i < shardCounts.length; i++) {
+            shardCounts[i] = args.length > 1 ? Integer.parseInt(args[i + 1]) : (i == 0 ? 16 : 64);
+        }
+        BenchmarkImplementation implementation = BenchmarkImplementation.init();
+        SavableMapFlagTracker source = new SavableMapFlagTracker();
+        for (int i = 0; i < flagCount; i++) {
+            source.setFlag("flag_" + i, new ElementTag("some value text number " + i + " with a bit more data"), null);
+        }
+        for (boolean binary : new boolean[] { false, true }) {
+            CoreConfiguration.flagBinaryFormat = binary;
+            measure(implementation, source, SingleFileFlagStorage.instance, binary);
+            for (int shards : shardCounts) {
+                measure(implementation, source, new ShardedFlagStorage(shards), binary);
+            }
+        }
+        System.exit(0);
+    }
+
+    public static void measure(BenchmarkImplementation implementation, SavableMapFlagTracker source, FlagStorageBackend backend, boolean binary) {
+        File folder = new File(implementation.folder, "flags_" + System.nanoTime());
+        folder.mkdirs();
+        String path = new File(folder, "flags").getPath();
+        SavableMapFlagTracker tracker = SavableMapFlagTracker.loadFlagFile(path, false, backend);
+        tracker.map.putAll(source.map);
+        tracker.dirtyKeys = backend.isIncremental() ? new HashSet<>() : null;
+        tracker.needsFullSave = true;
+        tracker.saveToFile(path);
+        tracker.needsFullSave = true;
+        long start = System.nanoTime();
+        tracker.saveToFile(path);
+        long fullSave = System.nanoTime() - start;
+        long load = Long.MAX_VALUE;
+        SavableMapFlagTracker loaded = null;
+        for (int run = 0; run < 3; run++) {
+            System.gc();
+            start = System.nanoTime();
+            loaded = SavableMapFlagTracker.loadFlagFile(path, false, backend);
+            load = Math.min(load, System.nanoTime() - start);
+        }
+        long changedSave = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            for (int i = 0; i < 5; i++) {
+                loaded.setFlag("flag_" + ((i * 7919 + run) % source.map.size()), new ElementTag("changed " + run), null);
+            }
+            start = System.nanoTime();
+            loaded.saveToFile(path);
+            changedSave = Math.min(changedSave, System.nanoTime() - start);
+        }
+        String name = backend instanceof ShardedFlagStorage ? ((ShardedFlagStorage) backend).shardCount + " shards" : "single file";
+        System.out.println(String.format("%-6s %-12s flags=%d full save=%dms load=%dms save after 5 changes=%.1fms",
+                binary ? "binary" : "text", name, loaded.map.size(), fullSave / 1000000, load / 1000000, changedSave / 1e6));
+    }
+}
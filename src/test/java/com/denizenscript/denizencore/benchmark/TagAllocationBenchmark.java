@@ -0,0 +1,46 @@
+package com.denizenscript.denizencore.benchmark;
+
+import com.denizenscript.denizencore.tags.ParseableTag;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.tags.TagManager;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated and the time taken per tag read, for a few tags that exercise the attribute machinery.
+ * Run with the test classpath, optionally giving the number of measured reads per tag (default 1000000), eg:
+ * java -cp target/classes:target/test-classes:(dependencies) com.denizenscript.denizencore.benchmark.TagAllocationBenchmark 1000000
+ * Requires a HotSpot-based JVM, for per-thread allocation counting.
+ */
+public class TagAllocationBenchmark {
+
+    public static final String[] TAGS = {
+            "<util.current_time_millis>",
+            "<util.random.int[1].to[1]>",
+            "<util.current_time_millis.add[<util.random.int[1].to[1]>]>",
+            "<util.current_time_millis.nothing.if_null[x]>"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int reads = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        BenchmarkImplementation.init();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        TagContext context = new BenchmarkImplementation.BenchmarkTagContext(null);
+        for (String tag : TAGS) {
+            ParseableTag parsed = TagManager.parseTextToTag(tag, context);
+            for (int i = 0; i < reads / 5; i++) {
+                parsed.parse(context);
+            }
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < reads; i++) {
+                parsed.parse(context);
+            }
+            long time = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            System.out.println(tag + ": " + (allocated / reads) + " bytes/read, " + (time / reads) + " ns/read");
+        }
+        System.exit(0);
+    }
+}